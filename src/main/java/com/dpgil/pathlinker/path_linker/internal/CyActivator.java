@@ -1,11 +1,16 @@
 package com.dpgil.pathlinker.path_linker.internal;
 
 import org.cytoscape.model.CyNetworkManager;
+import org.cytoscape.model.events.AddedEdgesListener;
+import org.cytoscape.model.events.AddedNodesListener;
 import org.cytoscape.model.events.ColumnCreatedListener;
 import org.cytoscape.model.events.ColumnDeletedListener;
 import org.cytoscape.model.events.ColumnNameChangedListener;
+import org.cytoscape.model.events.NetworkAboutToBeDestroyedListener;
 import org.cytoscape.model.events.NetworkAddedListener;
 import org.cytoscape.model.events.NetworkDestroyedListener;
+import org.cytoscape.model.events.RemovedEdgesListener;
+import org.cytoscape.model.events.RemovedNodesListener;
 import org.cytoscape.model.events.RowsSetListener;
 
 import java.util.Properties;
@@ -21,10 +26,13 @@ import org.osgi.framework.BundleContext;
 import org.osgi.util.tracker.ServiceTracker;
 
 import com.dpgil.pathlinker.path_linker.internal.event.PathLinkerColumnUpdateListener;
+import com.dpgil.pathlinker.path_linker.internal.event.PathLinkerHeuristicCacheListener;
 import com.dpgil.pathlinker.path_linker.internal.event.PathLinkerNetworkEventListener;
 import com.dpgil.pathlinker.path_linker.internal.event.PathLinkerNodeSelectionListener;
+import com.dpgil.pathlinker.path_linker.internal.event.PathLinkerResumableRunListener;
 import com.dpgil.pathlinker.path_linker.internal.rest.PathLinkerImpl;
 import com.dpgil.pathlinker.path_linker.internal.rest.PathLinkerResource;
+import com.dpgil.pathlinker.path_linker.internal.util.HeuristicCache;
 import com.dpgil.pathlinker.path_linker.internal.view.PathLinkerControlPanel;
 
 /**
@@ -42,6 +50,11 @@ public class CyActivator extends AbstractCyActivator
     private PathLinkerNodeSelectionListener nodeViewEventListener;
     private PathLinkerColumnUpdateListener columnUpdateListener;
     private PathLinkerNetworkEventListener networkEventListener;
+    private PathLinkerHeuristicCacheListener heuristicCacheListener;
+    private PathLinkerResumableRunListener resumableRunListener;
+
+    /** the cache of the heuristic distances shared by the runs of the panel and of CyRest */
+    private HeuristicCache heuristicCache;
 
     private CyApplicationManager cyApplicationManager;
     private CyServiceRegistrar serviceRegistrar;
@@ -73,6 +86,7 @@ public class CyActivator extends AbstractCyActivator
         ciExceptionFactory = (CIExceptionFactory) ciExceptionFactoryTracker.getService();
 
         controlPanel = new PathLinkerControlPanel();
+        heuristicCache = new HeuristicCache();
 
         // initializes control panel
         controlPanel.initialize(
@@ -81,12 +95,14 @@ public class CyActivator extends AbstractCyActivator
                 cyApplicationManager,
                 networkManager,
                 adapter,
+                heuristicCache,
                 _version,
                 _buildDate);
 
         nodeViewEventListener = new PathLinkerNodeSelectionListener(controlPanel, cyApplicationManager);
         columnUpdateListener = new PathLinkerColumnUpdateListener(controlPanel);
         networkEventListener = new PathLinkerNetworkEventListener(controlPanel);
+        heuristicCacheListener = new PathLinkerHeuristicCacheListener(heuristicCache);
 
         // register control panel
         registerService(context, controlPanel, CytoPanelComponent.class, new Properties());
@@ -96,7 +112,8 @@ public class CyActivator extends AbstractCyActivator
                 controlPanel,
                 cyApplicationManager, networkManager, adapter,
                 serviceRegistrar, cySwingApp,
-                ciExceptionFactory);
+                ciExceptionFactory, heuristicCache);
+        resumableRunListener = new PathLinkerResumableRunListener(controlPanel, cyRestClient);
 
         // register all necessary services to the bundle
         registerService(context, adapter, CyAppAdapter.class, new Properties());
@@ -118,6 +135,24 @@ public class CyActivator extends AbstractCyActivator
         registerService(context, networkEventListener, NetworkAddedListener.class, new Properties());
         registerService(context, networkEventListener, NetworkDestroyedListener.class, new Properties());
 
+        // drop the cached heuristic distances of a network when its nodes, edges or weights change
+        registerService(context, heuristicCacheListener, RowsSetListener.class, new Properties());
+        registerService(context, heuristicCacheListener, ColumnDeletedListener.class, new Properties());
+        registerService(context, heuristicCacheListener, AddedNodesListener.class, new Properties());
+        registerService(context, heuristicCacheListener, RemovedNodesListener.class, new Properties());
+        registerService(context, heuristicCacheListener, AddedEdgesListener.class, new Properties());
+        registerService(context, heuristicCacheListener, RemovedEdgesListener.class, new Properties());
+        registerService(context, heuristicCacheListener, NetworkAboutToBeDestroyedListener.class, new Properties());
+
+        // mark the runs on a network stale when its nodes, edges or weights change, so they are not continued
+        registerService(context, resumableRunListener, RowsSetListener.class, new Properties());
+        registerService(context, resumableRunListener, ColumnDeletedListener.class, new Properties());
+        registerService(context, resumableRunListener, AddedNodesListener.class, new Properties());
+        registerService(context, resumableRunListener, RemovedNodesListener.class, new Properties());
+        registerService(context, resumableRunListener, AddedEdgesListener.class, new Properties());
+        registerService(context, resumableRunListener, RemovedEdgesListener.class, new Properties());
+        registerService(context, resumableRunListener, NetworkAboutToBeDestroyedListener.class, new Properties());
+
         // register CyRest service
         registerService(context, cyRestClient, PathLinkerResource.class, new Properties());
     }
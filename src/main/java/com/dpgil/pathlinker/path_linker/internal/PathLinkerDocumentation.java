@@ -20,4 +20,14 @@ public class PathLinkerDocumentation {
             + "and subnetwork view and name of the \"path rank\" column created by the app." + '\n' + '\n' 
             + "To learn more about the PathLinker app, please see the [documentation]"
             + "(http://pathlinker-cytoscape-app.readthedocs.io/en/latest/PathLinker_Cytoscape.html).";
+
+    public static final String CONTINUE_SWAGGER_NOTES = "This function continues an earlier run of the "
+            + "PathLinker Cytoscape App, given the result id it returned, to more paths. "
+            + "The app keeps the state of the algorithm after a run, so only the new paths are computed. "
+            + "A run partitioned by source keeps no state of its partitions, it computes all its paths again. "
+            + "The app keeps the state of the last few runs only, an older result id is not found." + '\n' + '\n'
+            + "This function returns the ranked list of all the paths of the run as well as the SUIDs of the new subnetwork "
+            + "and subnetwork view and name of the \"path rank\" column created by the app." + '\n' + '\n' 
+            + "To learn more about the PathLinker app, please see the [documentation]"
+            + "(http://pathlinker-cytoscape-app.readthedocs.io/en/latest/PathLinker_Cytoscape.html).";
 }
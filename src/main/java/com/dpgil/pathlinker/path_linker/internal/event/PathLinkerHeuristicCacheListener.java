@@ -0,0 +1,87 @@
+package com.dpgil.pathlinker.path_linker.internal.event;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.cytoscape.model.CyTable;
+import org.cytoscape.model.events.AddedEdgesEvent;
+import org.cytoscape.model.events.AddedEdgesListener;
+import org.cytoscape.model.events.AddedNodesEvent;
+import org.cytoscape.model.events.AddedNodesListener;
+import org.cytoscape.model.events.ColumnDeletedEvent;
+import org.cytoscape.model.events.ColumnDeletedListener;
+import org.cytoscape.model.events.NetworkAboutToBeDestroyedEvent;
+import org.cytoscape.model.events.NetworkAboutToBeDestroyedListener;
+import org.cytoscape.model.events.RemovedEdgesEvent;
+import org.cytoscape.model.events.RemovedEdgesListener;
+import org.cytoscape.model.events.RemovedNodesEvent;
+import org.cytoscape.model.events.RemovedNodesListener;
+import org.cytoscape.model.events.RowSetRecord;
+import org.cytoscape.model.events.RowsSetEvent;
+import org.cytoscape.model.events.RowsSetListener;
+
+import com.dpgil.pathlinker.path_linker.internal.util.HeuristicCache;
+
+/**
+ * Listener class for the HeuristicCache
+ *      Drops the cached distances of a network when its nodes, edges
+ *      or edge weight column change, or when it is destroyed
+ */
+public class PathLinkerHeuristicCacheListener implements RowsSetListener, ColumnDeletedListener,
+        AddedNodesListener, RemovedNodesListener, AddedEdgesListener, RemovedEdgesListener,
+        NetworkAboutToBeDestroyedListener {
+
+    /** the cache of the heuristic distances shared by the runs */
+    private HeuristicCache heuristicCache;
+
+    /**
+     * Default constructor to gain access to the cache
+     * @param heuristicCache the cache of the heuristic distances shared by the runs
+     */
+    public PathLinkerHeuristicCacheListener(HeuristicCache heuristicCache) {
+        this.heuristicCache = heuristicCache;
+    }
+
+    @Override
+    public void handleEvent(RowsSetEvent e) {
+        // the runs themselves select nodes and edges, so only the entries
+        // whose weight column is set are dropped
+        Set<String> columns = new HashSet<String>();
+        for (RowSetRecord record : e.getPayloadCollection())
+            columns.add(record.getColumn());
+
+        CyTable table = e.getSource();
+        for (String column : columns)
+            heuristicCache.invalidate(table, column);
+    }
+
+    @Override
+    public void handleEvent(ColumnDeletedEvent e) {
+        heuristicCache.invalidate(e.getSource(), e.getColumnName());
+    }
+
+    @Override
+    public void handleEvent(AddedNodesEvent e) {
+        heuristicCache.invalidate(e.getSource());
+    }
+
+    @Override
+    public void handleEvent(RemovedNodesEvent e) {
+        heuristicCache.invalidate(e.getSource());
+    }
+
+    @Override
+    public void handleEvent(AddedEdgesEvent e) {
+        heuristicCache.invalidate(e.getSource());
+    }
+
+    @Override
+    public void handleEvent(RemovedEdgesEvent e) {
+        heuristicCache.invalidate(e.getSource());
+    }
+
+    @Override
+    public void handleEvent(NetworkAboutToBeDestroyedEvent e) {
+        heuristicCache.invalidate(e.getNetwork());
+    }
+}
@@ -0,0 +1,101 @@
+package com.dpgil.pathlinker.path_linker.internal.event;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.cytoscape.model.CyTable;
+import org.cytoscape.model.events.AddedEdgesEvent;
+import org.cytoscape.model.events.AddedEdgesListener;
+import org.cytoscape.model.events.AddedNodesEvent;
+import org.cytoscape.model.events.AddedNodesListener;
+import org.cytoscape.model.events.ColumnDeletedEvent;
+import org.cytoscape.model.events.ColumnDeletedListener;
+import org.cytoscape.model.events.NetworkAboutToBeDestroyedEvent;
+import org.cytoscape.model.events.NetworkAboutToBeDestroyedListener;
+import org.cytoscape.model.events.RemovedEdgesEvent;
+import org.cytoscape.model.events.RemovedEdgesListener;
+import org.cytoscape.model.events.RemovedNodesEvent;
+import org.cytoscape.model.events.RemovedNodesListener;
+import org.cytoscape.model.events.RowSetRecord;
+import org.cytoscape.model.events.RowsSetEvent;
+import org.cytoscape.model.events.RowsSetListener;
+
+import com.dpgil.pathlinker.path_linker.internal.rest.PathLinkerImpl;
+import com.dpgil.pathlinker.path_linker.internal.view.PathLinkerControlPanel;
+
+/**
+ * Listener class for the runs that can be continued to more paths
+ *      Marks the runs on a network stale when its nodes, edges or edge
+ *      weight column change, or when it is destroyed, so they are no
+ *      longer continued from the result panels or through CyRest
+ */
+public class PathLinkerResumableRunListener implements RowsSetListener, ColumnDeletedListener,
+        AddedNodesListener, RemovedNodesListener, AddedEdgesListener, RemovedEdgesListener,
+        NetworkAboutToBeDestroyedListener {
+
+    /** the PathLinker control panel, which keeps the runs of the result panels */
+    private PathLinkerControlPanel controlPanel;
+    /** the CyRest implementation, which keeps the runs of its results */
+    private PathLinkerImpl cyRestClient;
+
+    /**
+     * Default constructor to gain access to the runs
+     * @param controlPanel the PathLinker control panel
+     * @param cyRestClient the PathLinker CyRest implementation
+     */
+    public PathLinkerResumableRunListener(PathLinkerControlPanel controlPanel, PathLinkerImpl cyRestClient) {
+        this.controlPanel = controlPanel;
+        this.cyRestClient = cyRestClient;
+    }
+
+    @Override
+    public void handleEvent(RowsSetEvent e) {
+        // the runs themselves select nodes and edges, so only the runs
+        // whose weight column is set are marked stale
+        Set<String> columns = new HashSet<String>();
+        for (RowSetRecord record : e.getPayloadCollection())
+            columns.add(record.getColumn());
+
+        CyTable table = e.getSource();
+        for (String column : columns) {
+            controlPanel.invalidateRuns(table, column);
+            cyRestClient.invalidateRuns(table, column);
+        }
+    }
+
+    @Override
+    public void handleEvent(ColumnDeletedEvent e) {
+        controlPanel.invalidateRuns(e.getSource(), e.getColumnName());
+        cyRestClient.invalidateRuns(e.getSource(), e.getColumnName());
+    }
+
+    @Override
+    public void handleEvent(AddedNodesEvent e) {
+        controlPanel.invalidateRuns(e.getSource());
+        cyRestClient.invalidateRuns(e.getSource());
+    }
+
+    @Override
+    public void handleEvent(RemovedNodesEvent e) {
+        controlPanel.invalidateRuns(e.getSource());
+        cyRestClient.invalidateRuns(e.getSource());
+    }
+
+    @Override
+    public void handleEvent(AddedEdgesEvent e) {
+        controlPanel.invalidateRuns(e.getSource());
+        cyRestClient.invalidateRuns(e.getSource());
+    }
+
+    @Override
+    public void handleEvent(RemovedEdgesEvent e) {
+        controlPanel.invalidateRuns(e.getSource());
+        cyRestClient.invalidateRuns(e.getSource());
+    }
+
+    @Override
+    public void handleEvent(NetworkAboutToBeDestroyedEvent e) {
+        controlPanel.invalidateRuns(e.getNetwork());
+        cyRestClient.invalidateRuns(e.getNetwork());
+    }
+}
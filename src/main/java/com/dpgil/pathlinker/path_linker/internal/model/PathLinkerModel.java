@@ -1,20 +1,37 @@
 package com.dpgil.pathlinker.path_linker.internal.model;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.cytoscape.model.CyEdge;
 import org.cytoscape.model.CyNetwork;
 import org.cytoscape.model.CyNode;
+import org.cytoscape.model.CyTable;
 import org.cytoscape.model.subnetwork.CyRootNetwork;
 import org.cytoscape.model.subnetwork.CySubNetwork;
 
 import com.dpgil.pathlinker.path_linker.internal.util.Algorithms;
 import com.dpgil.pathlinker.path_linker.internal.util.EdgeWeightType;
+import com.dpgil.pathlinker.path_linker.internal.util.GraphSnapshot;
+import com.dpgil.pathlinker.path_linker.internal.util.HeuristicCache;
+import com.dpgil.pathlinker.path_linker.internal.util.KSPAlgorithm;
+import com.dpgil.pathlinker.path_linker.internal.util.KSPContext;
+import com.dpgil.pathlinker.path_linker.internal.util.KSPProgressListener;
+import com.dpgil.pathlinker.path_linker.internal.util.KSPStatistics;
+import com.dpgil.pathlinker.path_linker.internal.util.SharedBound;
+import com.dpgil.pathlinker.path_linker.internal.util.Algorithms.KSPIterator;
 import com.dpgil.pathlinker.path_linker.internal.util.Algorithms.PathWay;
 
 /** Back end model for the PathLinker plugin */
@@ -23,6 +40,8 @@ public class PathLinkerModel {
 	private CyNetwork originalNetwork;
 	/** The network to perform the algorithm on */
 	private CyNetwork network;
+	/** The compact snapshot of the network that the algorithm runs on */
+	private GraphSnapshot graph;
 	/** A mapping of the node object to its name*/
 	private Map<CyNode, String> cyNodeToId;
 	/** Whether or not to created a bi-directed copy of the network and run PathLinker on that */
@@ -49,6 +68,8 @@ public class PathLinkerModel {
 	private EdgeWeightType edgeWeightType;
 	/** Weight of edges to be used by the algorithm */
 	private Map<CyEdge, Double> edgeWeights;
+	/** Maps each edge of the network the algorithm runs on to the edges of the original network it stands for */
+	private Map<CyEdge, List<CyEdge>> originalEdges;
 	/** Edges that we hide from the algorithm */
 	private Set<CyEdge> hiddenEdges;
 	/** The super source to call ksp with and removed after the algorithm */
@@ -67,6 +88,44 @@ public class PathLinkerModel {
 	private Set<CyNode> subgraphTargets;
 	/** The path result produced by the ksp algorithm */
 	private ArrayList<PathWay> result;
+	/** Whether or not to run the spur searches of each iteration of the algorithm in parallel */
+	private boolean parallelSpurSearch;
+	/** Whether or not to run the algorithm for groups of sources on their own, in parallel, and merge the paths */
+	private boolean partitionBySource;
+	/** The number of groups of sources a partitioned run runs in parallel, 0 for the parallelism of the pool */
+	private int sourceGroups;
+	/** The algorithm the spur searches of the ksp algorithm run */
+	private KSPAlgorithm kspAlgorithm = KSPAlgorithm.YEN;
+	/** The counters of the work done by the last run of the ksp algorithm */
+	private KSPStatistics statistics;
+	/** The cache of the heuristic distances of earlier runs, null to compute them for every run */
+	private HeuristicCache heuristicCache;
+	/** The number of landmarks guiding the searches, 0 to guide them with the exact distances */
+	private int landmarkCount;
+	/** The time the ksp algorithm may run in milliseconds, 0 for no limit */
+	private long maxRuntimeMillis;
+	/** The memory the paths and candidates of the ksp algorithm may take in bytes, 0 for no limit */
+	private long maxCandidateMemory;
+	/** The listener of the progress of the ksp algorithm, null if nobody listens */
+	private KSPProgressListener progressListener;
+	/** The context of the running ksp algorithm, null before it starts */
+	private volatile KSPContext context;
+	/** The state of the ksp algorithm after the run, to continue it to more paths */
+	private KSPIterator paths;
+	/** Whether or not the run was cancelled, until the run ends */
+	private volatile boolean cancelled;
+	/** The contexts of the running partitions of a run partitioned by source */
+	private final Set<KSPContext> partitionContexts = Collections.synchronizedSet(new HashSet<KSPContext>());
+	/** The distances to the targets shared by the partitions of a run partitioned by source */
+	private double[] partitionDistances;
+	/** The tree of the shortest paths to the targets shared by the partitions */
+	private int[] partitionTree;
+	/** Whether or not a partition of the last partitioned run was cancelled */
+	private volatile boolean partitionsCancelled;
+	/** Whether or not a partition of the last partitioned run ran out of time or memory */
+	private volatile boolean partitionsTruncated;
+	/** Whether or not the network or its weights changed since the run, it can't be continued then */
+	private volatile boolean stale;
 
 	/**
 	 * Constructor of the model
@@ -105,6 +164,165 @@ public class PathLinkerModel {
 	    this.commonSourcesTargets = 0;
 	}
 
+	/**
+	 * Setter method of parallelSpurSearch
+	 * @param parallelSpurSearch whether or not to run the spur searches of each
+	 *                           iteration of the algorithm in parallel
+	 */
+	public void setParallelSpurSearch(boolean parallelSpurSearch) {
+	    this.parallelSpurSearch = parallelSpurSearch;
+	}
+
+	/**
+	 * Setter method of partitionBySource
+	 * @param partitionBySource whether or not to run the algorithm for groups of sources on
+	 *                          their own, in parallel, and merge the paths of the groups. Only
+	 *                          applies when sources and targets are not allowed in paths
+	 */
+	public void setPartitionBySource(boolean partitionBySource) {
+	    this.partitionBySource = partitionBySource;
+	}
+
+	/**
+	 * Setter method of sourceGroups
+	 * @param sourceGroups the number of groups of sources a run partitioned by source runs
+	 *                     in parallel, at most one per source. 0 for as many as the common
+	 *                     pool runs at once
+	 */
+	public void setSourceGroups(int sourceGroups) {
+	    this.sourceGroups = sourceGroups;
+	}
+
+	/**
+	 * Setter method of kspAlgorithm
+	 * @param kspAlgorithm the algorithm the spur searches of the ksp algorithm run
+	 */
+	public void setKSPAlgorithm(KSPAlgorithm kspAlgorithm) {
+	    this.kspAlgorithm = kspAlgorithm;
+	}
+
+	/**
+	 * Setter method of heuristicCache
+	 * @param heuristicCache the cache of the heuristic distances of earlier runs with
+	 *                       the same network, edge weights and targets, null to
+	 *                       compute them for every run
+	 */
+	public void setHeuristicCache(HeuristicCache heuristicCache) {
+	    this.heuristicCache = heuristicCache;
+	}
+
+	/**
+	 * Setter method of landmarkCount
+	 * @param landmarkCount the number of landmarks guiding the searches, kept in the
+	 *                      heuristic cache for any targets. 0 to guide them with the
+	 *                      exact distances to the targets
+	 */
+	public void setLandmarkCount(int landmarkCount) {
+	    this.landmarkCount = landmarkCount;
+	}
+
+	/**
+	 * Setter method of maxRuntimeMillis
+	 * @param maxRuntimeMillis the time the ksp algorithm may run in milliseconds, the
+	 *                         result then keeps the paths found until then. 0 for no limit
+	 */
+	public void setMaxRuntimeMillis(long maxRuntimeMillis) {
+	    this.maxRuntimeMillis = maxRuntimeMillis;
+	}
+
+	/**
+	 * Setter method of maxCandidateMemory
+	 * @param maxCandidateMemory the estimated memory the paths and candidates of the ksp
+	 *                           algorithm may take in bytes, the result then keeps the
+	 *                           paths found until then. 0 for no limit
+	 */
+	public void setMaxCandidateMemory(long maxCandidateMemory) {
+	    this.maxCandidateMemory = maxCandidateMemory;
+	}
+
+	/**
+	 * Setter method of progressListener
+	 * @param progressListener the listener called after each path the ksp algorithm accepts,
+	 *                         null if nobody listens
+	 */
+	public void setProgressListener(KSPProgressListener progressListener) {
+	    this.progressListener = progressListener;
+	}
+
+	/**
+	 * Cancels the run, from any thread. The ksp algorithm stops within its current search
+	 * and the result keeps the paths accepted until then
+	 */
+	public void cancel() {
+	    cancelled = true;
+
+	    KSPContext running = context;
+	    if (running != null)
+	        running.cancel();
+
+	    synchronized (partitionContexts) {
+	        for (KSPContext partition : partitionContexts)
+	            partition.cancel();
+	    }
+	}
+
+	/**
+	 * Getter method of cancelled
+	 * @return true if the run was cancelled, the result may then have fewer paths than asked for
+	 */
+	public boolean isCancelled() {
+	    KSPContext running = context;
+	    return running != null ? running.isCancelled() : this.cancelled || partitionsCancelled;
+	}
+
+	/**
+	 * Getter method of truncated
+	 * @return true if the run ran out of time or memory, the result then has the exact
+	 *         paths found until then but may have fewer than asked for
+	 */
+	public boolean isTruncated() {
+	    KSPContext running = context;
+	    return running != null ? running.isTruncated() : partitionsTruncated;
+	}
+
+	/**
+	 * Getter method of partitioned
+	 * @return true if the run is partitioned by source, it keeps no state of its partitions
+	 *         then, and continuing it computes all its paths again
+	 */
+	public boolean isPartitioned() {
+	    return partitionBySource && !allowSourcesTargetsInPaths && sourcesList.size() > 1;
+	}
+
+	/**
+	 * Marks the run as stale, after the nodes, the edges or the edge weights of
+	 * its network changed or the network was destroyed. The state of the run is
+	 * then of the old network, so the run can't be continued
+	 */
+	public void setStale() {
+	    this.stale = true;
+	}
+
+	/**
+	 * Getter method of stale
+	 * @return true if the network of the run changed since the run, it can't be continued then
+	 */
+	public boolean isStale() {
+	    return stale;
+	}
+
+	/**
+	 * Returns if the weights of the run come from a column of an edge table
+	 * @param table the table
+	 * @param column the name of the column
+	 * @return true if the run is weighted by the column, and the table holds the edge columns
+	 *         of the original network
+	 */
+	public boolean isWeightedBy(CyTable table, String column) {
+	    return edgeWeightType != EdgeWeightType.UNWEIGHTED && column.equals(edgeWeightColumnName)
+	            && HeuristicCache.isEdgeTable(originalNetwork, table);
+	}
+
 	/**
 	 * Getter method of the subgraph sources
 	 * @return subgraphSources
@@ -121,6 +339,22 @@ public class PathLinkerModel {
 	    return this.subgraphTargets;
 	}
 
+	/**
+	 * Getter method of the original network
+	 * @return the network selected by the user that the model runs on
+	 */
+	public CyNetwork getOriginalNetwork() {
+	    return this.originalNetwork;
+	}
+
+	/**
+	 * Getter method of input k value
+	 * @return the number of paths asked for, raised when the run is continued
+	 */
+	public int getInputK() {
+	    return this.inputK;
+	}
+
 	/**
 	 * Getter method of output k value
 	 * @return output k value
@@ -129,6 +363,26 @@ public class PathLinkerModel {
 	    return this.outputK;
 	}
 
+	/**
+	 * Getter method of the edges of the original network that an edge of a result path stands for
+	 * @param edge an edge of a result path, as returned by PathWay.getEdge
+	 * @return the directed edges of the original network from the source to the target of the edge,
+	 *         the undirected edges between them, and the reverse directed edges if the network is
+	 *         treated as undirected
+	 */
+	public List<CyEdge> getOriginalEdges(CyEdge edge) {
+	    List<CyEdge> edges = originalEdges.get(edge);
+	    return edges != null ? edges : new ArrayList<CyEdge>();
+	}
+
+	/**
+	 * Getter method of the statistics of the last run of the ksp algorithm
+	 * @return statistics, null if the algorithm has not run
+	 */
+	public KSPStatistics getStatistics() {
+	    return this.statistics;
+	}
+
 	/**
 	 * Getter method of the result
 	 * @return result
@@ -166,9 +420,347 @@ public class PathLinkerModel {
 		// and targets, respectively
 		addSuperNodes();
 
-		// runs the KSP algorithm
-		result = Algorithms.ksp(network, cyNodeToId, superSource, superTarget, 
+		// builds the compact snapshot of the network once, so the algorithm
+		// doesn't have to query the network or the weight map while searching
+		graph = new GraphSnapshot(network, edgeWeights);
+
+		// the paths through different sources are disjoint when sources are
+		// not allowed inside paths, so each group of sources can run on its own
+		if (isPartitioned()) {
+		    partitionDistances = null;
+		    runPartitionedKSP();
+		    return;
+		}
+
+		// runs the KSP algorithm. all the state of the run is kept in its own
+		// context, so several models can run the algorithm at the same time
+		KSPContext context = newContext();
+		context.setMaxRuntimeMillis(maxRuntimeMillis);
+		context.setMaxCandidateMemory(maxCandidateMemory);
+		context.setProgressListener(progressListener);
+
+		// a cancel before the context existed only set the flag, so the
+		// flag is checked once the context is visible to cancel
+		this.context = context;
+		if (cancelled)
+		    context.cancel();
+
+		// the state of the algorithm is kept after the run, so the run can be
+		// continued to more paths without computing these again
+		paths = Algorithms.kspIterator(context, cyNodeToId, graph.getIndex(superSource), graph.getIndex(superTarget), 
 		        inputK + commonSourcesTargets, includePathScoreTies);
+		result = new ArrayList<PathWay>();
+		ArrayList<PathWay> newPaths = paths.remaining();
+		statistics = context.getStatistics();
+		addResultPaths(newPaths, paths.accepted());
+	}
+
+	/**
+	 * Creates the context of a run of the KSP algorithm on the snapshot, with the
+	 * options of the model but the budgets and the progress listener
+	 * @return the context
+	 */
+	private KSPContext newContext() {
+	    KSPContext context = new KSPContext(graph, hiddenEdges);
+	    // the undirected edges of the copy are hidden only in the direction
+	    // entering the sources and leaving the targets
+	    if (!allowSourcesTargetsInPaths) {
+	        context.hideUndirectedEdges(sourcesList, true);
+	        context.hideUndirectedEdges(targetsList, false);
+	    }
+	    if (parallelSpurSearch)
+	        context.setSpurSearchPool(ForkJoinPool.commonPool());
+	    context.setAlgorithm(kspAlgorithm);
+	    if (heuristicCache != null)
+	        context.setHeuristicCache(heuristicCache, new HeuristicCache.Key(originalNetwork, edgeWeightColumnName,
+	                edgeWeightType, edgePenalty, treatNetworkAsUndirected, targetsList));
+	    context.setLandmarkCount(landmarkCount);
+
+	    return context;
+	}
+
+	/**
+	 * Runs the KSP algorithm for each group of sources on its own, in parallel on the common
+	 * pool, and merges the paths of the groups. Sources are not allowed inside paths, so every
+	 * path leaves the super source through one source and never meets another one. The
+	 * paths of each group are then a family of their own, and the lightest paths of all
+	 * the families together are the paths of the whole run. There are as many groups as the
+	 * pool runs at once, each partition repeats some of the work of the others. The partitions
+	 * share a bound on the weight of those paths, so a partition stops once its paths are
+	 * heavier than the paths the others found, rather than finding maxK paths of its own. The
+	 * distances to the targets are computed once and shared by the partitions.
+	 * The partitions keep no state, a partitioned run is continued by running it again
+	 */
+	private void runPartitionedKSP() {
+	    final int source = graph.getIndex(superSource);
+	    final int target = graph.getIndex(superTarget);
+	    final int maxK = inputK + commonSourcesTargets;
+	    final long start = System.currentTimeMillis();
+
+	    partitionsCancelled = false;
+	    partitionsTruncated = false;
+	    context = null;
+	    paths = null;
+
+	    // the distances to the targets are computed once before the partitions
+	    // start, and kept for the runs that continue the run
+	    if (partitionDistances == null) {
+	        partitionTree = new int[graph.nodeCount()];
+	        partitionDistances = Algorithms.computeHeuristicDistances(newContext(), source, target, partitionTree);
+	    }
+
+	    // each partition keeps the edges of the super source to its group of
+	    // sources, the first edges of its paths
+	    ForkJoinPool pool = ForkJoinPool.commonPool();
+	    final List<CyEdge> sourceEdges = network.getAdjacentEdgeList(superSource, CyEdge.Type.OUTGOING);
+	    double[] sourceWeights = sourcePathWeights(sourceEdges, target);
+	    final List<List<CyEdge>> groups = groupSources(sourceEdges, sourceWeights,
+	            sourceGroups > 0 ? sourceGroups : pool.getParallelism());
+	    final int partitions = groups.size();
+
+	    // the partitions running at the same time share the memory budget
+	    final long partitionMemory = maxCandidateMemory / Math.max(1, Math.min(pool.getParallelism(), partitions));
+
+	    final KSPStatistics total = new KSPStatistics();
+	    final AtomicInteger acceptedPaths = new AtomicInteger();
+	    final boolean[] stopped = new boolean[partitions];
+
+	    // the partitions stop at the paths heavier than the maxK lightest
+	    // paths all of them found so far, with at least 3 paths for the ties.
+	    // the lightest path through each source is known from the tree, so
+	    // the bound starts from those paths before the partitions found maxK paths
+	    int count = includePathScoreTies ? Math.max(maxK, 3) : maxK;
+	    final SharedBound sharedBound = new SharedBound(count, initialBound(sourceWeights, count));
+
+	    List<Callable<ArrayList<PathWay>>> runs = new ArrayList<Callable<ArrayList<PathWay>>>();
+	    for (int i = 0; i < partitions; i++) {
+	        final int partition = i;
+	        runs.add(new Callable<ArrayList<PathWay>>() {
+	            @Override
+	            public ArrayList<PathWay> call() {
+	                KSPContext context = partitionContext(sourceEdges, groups.get(partition), start, partitionMemory, 
+	                        acceptedPaths, sharedBound);
+	                if (context == null) {
+	                    stopped[partition] = true;
+	                    return new ArrayList<PathWay>();
+	                }
+
+	                try {
+	                    return Algorithms.ksp(context, cyNodeToId, source, target, maxK, includePathScoreTies);
+	                } finally {
+	                    partitionContexts.remove(context);
+	                    stopped[partition] = context.isCancelled() || context.isTruncated();
+	                    if (context.isCancelled())
+	                        partitionsCancelled = true;
+	                    if (context.isTruncated())
+	                        partitionsTruncated = true;
+	                    total.add(context.getStatistics());
+	                }
+	            }
+	        });
+	    }
+
+	    List<ArrayList<PathWay>> lists = new ArrayList<ArrayList<PathWay>>();
+	    try {
+	        for (Future<ArrayList<PathWay>> future : pool.invokeAll(runs))
+	            lists.add(future.get());
+	    } catch (InterruptedException e) {
+	        Thread.currentThread().interrupt();
+	        throw new IllegalStateException("Interrupted while running the partitions", e);
+	    } catch (ExecutionException e) {
+	        throw new IllegalStateException("A partition failed", e.getCause());
+	    }
+
+	    // a partition that stopped early may miss paths heavier than its last
+	    // one, so the merged paths stop there and are exact
+	    double maxWeight = Double.POSITIVE_INFINITY;
+	    for (int i = 0; i < partitions; i++) {
+	        if (stopped[i]) {
+	            List<PathWay> list = lists.get(i);
+	            maxWeight = Math.min(maxWeight, list.isEmpty() ? Double.NEGATIVE_INFINITY : list.get(list.size() - 1).weight);
+	        }
+	    }
+
+	    ArrayList<PathWay> merged = Algorithms.mergePaths(lists, maxK, includePathScoreTies, maxWeight);
+	    statistics = total;
+	    result = new ArrayList<PathWay>();
+	    addResultPaths(merged, merged.size());
+	}
+
+	/**
+	 * Computes the weight of the path along the tree of the shortest paths from each source
+	 * of a run partitioned by source, each the lightest path of the source
+	 * @param sourceEdges the edges of the super source to the sources
+	 * @param target      the id of the super target
+	 * @return the weight of the path of each source, positive infinity if the tree has no
+	 *         path of the run from the source
+	 */
+	private double[] sourcePathWeights(List<CyEdge> sourceEdges, int target) {
+	    KSPContext context = newContext();
+	    double[] weights = new double[sourceEdges.size()];
+	    for (int i = 0; i < weights.length; i++) {
+	        int edge = graph.getEdgeIndex(sourceEdges.get(i));
+	        weights[i] = graph.edgeWeight(edge)
+	                + Algorithms.treePathWeight(context, partitionTree, graph.edgeTarget(edge), target);
+	    }
+
+	    return weights;
+	}
+
+	/**
+	 * Computes the bound the partitions of a run partitioned by source start from: the
+	 * weight of the count-th lightest of the paths of the sources, each a path of its own
+	 * @param sourceWeights the weight of the path of each source
+	 * @param count         the number of paths of the whole run
+	 * @return the bound, positive infinity if fewer than count sources have a path
+	 */
+	private double initialBound(double[] sourceWeights, int count) {
+	    if (sourceWeights.length < count)
+	        return Double.POSITIVE_INFINITY;
+
+	    double[] weights = sourceWeights.clone();
+	    Arrays.sort(weights);
+	    return weights[count - 1];
+	}
+
+	/**
+	 * Splits the sources of a run partitioned by source into groups. The sources are dealt
+	 * to the groups in the order of the weights of their paths, so each group gets some of
+	 * the sources of the lightest paths
+	 * @param sourceEdges   the edges of the super source to the sources
+	 * @param sourceWeights the weight of the path of each source
+	 * @param groupCount    the number of groups, at most one per source
+	 * @return the edges of the super source to the sources of each group
+	 */
+	private List<List<CyEdge>> groupSources(final List<CyEdge> sourceEdges, final double[] sourceWeights, int groupCount) {
+	    Integer[] order = new Integer[sourceEdges.size()];
+	    for (int i = 0; i < order.length; i++)
+	        order[i] = i;
+	    Arrays.sort(order, new Comparator<Integer>() {
+	        @Override
+	        public int compare(Integer a, Integer b) {
+	            return Double.compare(sourceWeights[a], sourceWeights[b]);
+	        }
+	    });
+
+	    List<List<CyEdge>> groups = new ArrayList<List<CyEdge>>();
+	    for (int i = 0; i < Math.max(1, Math.min(groupCount, order.length)); i++)
+	        groups.add(new ArrayList<CyEdge>());
+	    for (int i = 0; i < order.length; i++)
+	        groups.get(i % groups.size()).add(sourceEdges.get(order[i]));
+
+	    return groups;
+	}
+
+	/**
+	 * Creates the context of a partition of a run partitioned by source, hiding the
+	 * edges of the super source to the other sources
+	 * @param sourceEdges   the edges of the super source to the sources
+	 * @param groupEdges    the edges of the super source to the sources of the partition
+	 * @param start         the time the run started, in milliseconds
+	 * @param memory        the memory budget of the partition in bytes, 0 for no limit
+	 * @param acceptedPaths the paths accepted so far by all the partitions
+	 * @param sharedBound   the bound on the paths of the run shared by the partitions
+	 * @return the context, null if the run was cancelled or ran out of time before the
+	 *         partition started
+	 */
+	private KSPContext partitionContext(List<CyEdge> sourceEdges, List<CyEdge> groupEdges, final long start, long memory, 
+	        final AtomicInteger acceptedPaths, SharedBound sharedBound) {
+	    // the time budget is the one of the whole run
+	    long remaining = maxRuntimeMillis - (System.currentTimeMillis() - start);
+	    if (cancelled) {
+	        partitionsCancelled = true;
+	        return null;
+	    }
+	    if (maxRuntimeMillis > 0 && remaining <= 0) {
+	        partitionsTruncated = true;
+	        return null;
+	    }
+
+	    KSPContext context = newContext();
+	    List<CyEdge> otherEdges = new ArrayList<CyEdge>(sourceEdges);
+	    otherEdges.removeAll(new HashSet<CyEdge>(groupEdges));
+	    context.hideEdges(otherEdges);
+	    context.setMaxRuntimeMillis(maxRuntimeMillis > 0 ? remaining : 0);
+	    context.setMaxCandidateMemory(memory);
+	    context.setSharedBound(sharedBound);
+	    context.setHeuristicDistances(partitionDistances, partitionTree);
+
+	    // the partitions report on their own threads, the progress is reported
+	    // as the paths of all the partitions, at most the paths of the run
+	    final int maxK = inputK + commonSourcesTargets;
+	    if (progressListener != null) {
+	        context.setProgressListener(new KSPProgressListener() {
+	            /** the paths the partition reported so far */
+	            private int reported;
+
+	            @Override
+	            public void pathAccepted(int paths, int candidates, long elapsedMillis) {
+	                int sum = acceptedPaths.addAndGet(paths - reported);
+	                reported = paths;
+	                synchronized (acceptedPaths) {
+	                    progressListener.pathAccepted(Math.min(sum, maxK), candidates, System.currentTimeMillis() - start);
+	                }
+	            }
+	        });
+	    }
+
+	    // a cancel of the model from now on reaches the context, and a cancel
+	    // before it is checked once the context is visible
+	    partitionContexts.add(context);
+	    if (cancelled)
+	        context.cancel();
+
+	    return context;
+	}
+
+	/**
+	 * Continues the run to more paths after runKSP. The ksp algorithm goes on from
+	 * the paths found so far, so only the new paths are computed, and the network
+	 * and the distances to the targets are not prepared again. A cancelled or
+	 * truncated run goes on from where it stopped, with its budgets starting over.
+	 * A run partitioned by source keeps no state of its partitions, it computes all
+	 * its paths again. The model must not run anything else at the same time
+	 * @param k the number of paths, kept if not larger than the number of the run
+	 * @throws IllegalStateException if the run is stale
+	 */
+	public void continueKSP(int k) {
+	    if (stale)
+	        throw new IllegalStateException("The network of the run changed since the run");
+
+	    inputK = Math.max(inputK, k);
+
+	    // a partitioned run keeps no state of its partitions, it runs again
+	    // on the prepared network and the cached distances
+	    if (isPartitioned()) {
+	        runPartitionedKSP();
+	        return;
+	    }
+
+	    KSPContext context = this.context;
+	    context.setProgressListener(progressListener);
+	    paths.extend(inputK + commonSourcesTargets);
+
+	    // resuming the run cleared the cancellation of the context, a cancel
+	    // in between is only in the flag of the model
+	    if (cancelled)
+	        context.cancel();
+
+	    ArrayList<PathWay> newPaths = paths.remaining();
+	    statistics = context.getStatistics();
+	    addResultPaths(newPaths, paths.accepted());
+	}
+
+	/**
+	 * Adds the paths of the ksp algorithm to the result, and selects the paths of
+	 * the result for generating the ksp subgraph
+	 * @param newPaths the paths returned by the ksp algorithm since the last call
+	 * @param accepted the number of paths the ksp algorithm returned in all
+	 */
+	private void addResultPaths(ArrayList<PathWay> newPaths, int accepted) {
+		// the cancellation of the run is kept by its context from now on, so
+		// the run can be continued
+		cancelled = false;
 
 		// discard first _commonSourcesTargets paths
 		// this is for a temporary hack: when there are n nodes that are both
@@ -177,18 +769,39 @@ public class PathLinkerModel {
 		// node -> superTarget
 		// we don't want these, so we generate k + n paths and discard those n
 		// paths
-		result.subList(0, commonSourcesTargets).clear();
+		// a cancelled run may have found fewer paths than that, the rest are
+		// discarded when the run is continued
+		int returned = accepted - newPaths.size();
+		int discarded = Math.min(commonSourcesTargets, accepted) - Math.min(commonSourcesTargets, returned);
+		newPaths.subList(0, discarded).clear();
 
 		// sort the result paths in alphabetical order if weight is same
-		Algorithms.sortResult(result);
+		Algorithms.sortResult(newPaths);
 
 		// "un log-transforms" the path scores in the weighted options
 		// as to undo the log transformations and leave the path scores
 		// in terms of the edge weights
-		undoLogTransformPathLength(result);
+		undoLogTransformPathLength(newPaths);
+
+		// the paths of the same score as the last path of a continued run are
+		// sorted again together with the new paths of that score. the result
+		// is a new list, the views of the earlier result keep theirs
+		int previous = result.size();
+		result = new ArrayList<PathWay>(result);
+		result.addAll(newPaths);
+		if (previous > 0 && previous < result.size()) {
+		    double weight = result.get(previous).weight;
+		    int from = previous;
+		    while (from > 0 && result.get(from - 1).weight == weight)
+		        from--;
+		    int to = previous;
+		    while (to < result.size() && result.get(to).weight == weight)
+		        to++;
+		    Collections.sort(result.subList(from, to));
+		}
 
 		// selects all the paths that involved in the resulting for generating ksp subgraph
-		selectKSPSubgraph(result);
+		selectKSPSubgraph();
 
 		// set the number of paths the subgraph contains
 		outputK = result.size();
@@ -216,6 +829,10 @@ public class PathLinkerModel {
 	 * 2. treats multiple edges as one edge with a weight of the average of the
 	 * multiple edges. This is done because pathlinker is not compatible with
 	 * multigraphs.
+	 * The two directions between a pair of nodes only differ when there is a directed
+	 * edge between them in the original network and the network is not treated as
+	 * undirected. Every other pair of nodes is copied as a single undirected edge,
+	 * which the snapshot searches in both directions, rather than as two directed edges
 	 */
 	private void initializeNetwork() {
 		// Originally I had created a text version of each edge and stored and checked 
@@ -238,6 +855,19 @@ public class PathLinkerModel {
 		// source/target pair in the original network 
 		// so we can go through afterwards and remove the extra edges
 		HashMap<String, List<Double>> edgeMultiWeights = new HashMap<String, List<Double>>(); 
+		// maps each newly created edge to the edges of the original network it was created from,
+		// so the edges of the result paths can be selected without querying the original network
+		originalEdges = new HashMap<CyEdge, List<CyEdge>>();
+
+		// the pairs of nodes with a directed edge between them, which need a
+		// directed edge for each direction. None if the network is treated as undirected
+		HashSet<String> directedPairs = new HashSet<String>();
+		if (!treatNetworkAsUndirected) {
+		    for (CyEdge e : originalNetwork.getEdgeList()) {
+		        if (e.isDirected())
+		            directedPairs.add(pairKey(e.getSource(), e.getTarget()));
+		    }
+		}
 
 		// copy all of the edges of the original network to this network
 		// convert undirected edges to bidirectional edges
@@ -250,13 +880,23 @@ public class PathLinkerModel {
 			// should be edit in the future to avoid constant checks
 			Double w = edgeWeightType == EdgeWeightType.UNWEIGHTED ? 1 : getNetworkTableWeight(e);
 
+			// the same edge stands for both directions if they get the same edges
+			// of the original network, and so the same weight
+			String pair = pairKey(source, target);
+			if (!directedPairs.contains(pair)) {
+			    checkAddEdge(sourcetargetToEdge, edgeMultiWeights, e, source, target, pair, false, w);
+			    continue;
+			}
+
 			// check if this source-target was already added as an edge. If it was, keep track of the 
 			// multiple weights. If not, add it as a new edge
-			checkAddEdge(sourcetargetToEdge, edgeMultiWeights, source, target, w);
+			checkAddEdge(sourcetargetToEdge, edgeMultiWeights, e, source, target, 
+			        source.getSUID() + "-" + target.getSUID(), true, w);
 			// also add the reverse direction if the original edge was undirected
             // or if the treatNetworkAsUndirected option is checked
 			if (!e.isDirected() || treatNetworkAsUndirected)
-				checkAddEdge(sourcetargetToEdge, edgeMultiWeights, target, source, w);
+				checkAddEdge(sourcetargetToEdge, edgeMultiWeights, e, target, source, 
+				        target.getSUID() + "-" + source.getSUID(), true, w);
 		}
 
 		edgeWeights = new HashMap<CyEdge, Double>();
@@ -301,13 +941,13 @@ public class PathLinkerModel {
 				hiddenEdges.addAll(network.getAdjacentEdgeList(target, CyEdge.Type.OUTGOING));
 			}
 		}
-
-		Algorithms.initializeHiddenEdges(hiddenEdges);
 	}
 
 	/**
 	 * Sets the edge weights to be used in the algorithm. Doesn't actually set
-	 * the weights as attributes because that dominates runtime.
+	 * the weights as attributes because that dominates runtime. The hidden
+	 * edges are weighted too, so the distances to the target the algorithm
+	 * is guided by don't depend on the sources, and can be cached across runs.
 	 */
 	private void setEdgeWeights() {
 
@@ -328,9 +968,6 @@ public class PathLinkerModel {
 		else if (edgeWeightType == EdgeWeightType.ADDITIVE) {
 			applyAdditiveEdgePenalty(edgePenalty);
 		}
-
-		// sets the weights in the algorithms class
-		Algorithms.setEdgeWeights(edgeWeights);
 	}
 
 	/**
@@ -350,7 +987,7 @@ public class PathLinkerModel {
 
 			// sets an edge weight of 0, so the edges connecting the super nodes
 			// and the sources/targets don't affect the final path weights
-			Algorithms.setWeight(superEdge, 0.);
+			edgeWeights.put(superEdge, 0.);
 			superEdges.add(superEdge);
 		}
 		// attaches all targets to super target
@@ -359,7 +996,7 @@ public class PathLinkerModel {
 
 			// sets an edge weight of 0, so the edges connecting the super nodes
 			// and the sources/targets don't affect the final path weights
-			Algorithms.setWeight(superEdge, 0.);
+			edgeWeights.put(superEdge, 0.);
 			superEdges.add(superEdge);
 		}
 	}
@@ -385,40 +1022,72 @@ public class PathLinkerModel {
 	 * 			maps the source-target SUIDs to the edge in the new network
 	 * @param edgeMultiWeights
 	 * 			maps each edge to the list of weights 
+	 * @param originalEdge
+	 * 			the edge of the original network
 	 * @param source 
 	 * 			source node
 	 * @param target 
 	 * 			target node
+	 * @param sourcetargetSUID 
+	 * 			the key of the edge, the source-target SUIDs for a directed edge 
+	 * 			and the key of the pair of nodes for an undirected edge
+	 * @param directed 
+	 * 			whether the edge is directed
 	 * @param w 
 	 * 			edge weight
 	 */
 	private void checkAddEdge(HashMap<String, CyEdge> sourcetargetToEdge, 
 			HashMap<String, List<Double>> edgeMultiWeights,
-			CyNode source, CyNode target, Double w){
+			CyEdge originalEdge, CyNode source, CyNode target, String sourcetargetSUID, 
+			boolean directed, Double w){
 
-		String sourceSUID = source.getSUID().toString();
-		String targetSUID = target.getSUID().toString();
-		String sourcetargetSUID = sourceSUID + "-" + targetSUID;
 		boolean duplicate = sourcetargetToEdge.containsKey(sourcetargetSUID);
 
 		// make sure we aren't adding any duplicate edges to this new network
 		if (!duplicate){
 			// add the first direction of the edge
-			CyEdge newEdge = network.addEdge(source, target, true);
+			CyEdge newEdge = network.addEdge(source, target, directed);
 			sourcetargetToEdge.put(sourcetargetSUID, newEdge);
 			List<Double> weights = new ArrayList<Double>();
 			weights.add(w);
 			edgeMultiWeights.put(sourcetargetSUID, weights);
+			List<CyEdge> edges = new ArrayList<CyEdge>();
+			edges.add(originalEdge);
+			originalEdges.put(newEdge, edges);
 		}
 		else{
 			// if the network already contains this edge, then add the extra edge weight to this edge's list of edge weights
 			edgeMultiWeights.get(sourcetargetSUID).add(w);
+			originalEdges.get(sourcetargetToEdge.get(sourcetargetSUID)).add(originalEdge);
 		}
 	}
 
+	/**
+	 * Returns the key of a pair of nodes, the same whichever node comes first
+	 * @param node1 a node of the pair
+	 * @param node2 the other node of the pair
+	 * @return the SUIDs of the nodes, smaller first
+	 */
+	private static String pairKey(CyNode node1, CyNode node2) {
+	    long suid1 = node1.getSUID();
+	    long suid2 = node2.getSUID();
+	    return suid1 < suid2 ? suid1 + "-" + suid2 : suid2 + "-" + suid1;
+	}
+
 	/**
 	 * Selects all the nodes and edges that is in the k shortest paths to generate the ksp subgraph
-	 * The PathLinkerControlPanel->createKSPSubgraphAndView method uses the selected paths to generate the ksp subgraph
+	 * The CreateKSPViewTask->createKSPSubgraphAndView method uses the selected paths to generate the ksp subgraph
+	 * The selection is shared by all the runs on the original network, so it is made while holding
+	 * the lock of the network, which the CreateKSPViewTask holds until the subgraph is created
+	 */
+	public void selectKSPSubgraph() {
+	    synchronized (originalNetwork) {
+	        selectKSPSubgraph(result);
+	    }
+	}
+
+	/**
+	 * Selects all the nodes and edges that is in the given paths
 	 * @param paths the list of paths generated by ksp algorithm
 	 */
 	private void selectKSPSubgraph(ArrayList<PathWay> paths) {
@@ -452,19 +1121,11 @@ public class PathLinkerModel {
 				if (targetNames.contains(node2name))
 					subgraphTargets.add(node2);
 
-				// add all of the directed edges from node1 to node2
-				List<CyEdge> edges = originalNetwork.getConnectingEdgeList(node1, node2, CyEdge.Type.DIRECTED);
-				for (CyEdge edge : edges){
-					// verifies the edges direction
-					if (edge.getSource().equals(node1) && edge.getTarget().equals(node2))
-						originalNetwork.getRow(edge).set(CyNetwork.SELECTED, true);
-                    // also check the reverse direction if the network is treated as undirected
-					if (treatNetworkAsUndirected && (edge.getSource().equals(node2) && edge.getTarget().equals(node1)))
-						originalNetwork.getRow(edge).set(CyNetwork.SELECTED, true);
-				}
-				// also add all of the undirected edges from node1 to node2
-				edges = originalNetwork.getConnectingEdgeList(node1, node2, CyEdge.Type.UNDIRECTED);
-				for (CyEdge edge : edges) originalNetwork.getRow(edge).set(CyNetwork.SELECTED, true);
+				// add all of the edges of the original network the path edge from node1 to node2
+				// was created from: the directed edges from node1 to node2, the undirected edges
+				// and the reverse directed edges if the network is treated as undirected
+				for (CyEdge edge : getOriginalEdges(currPath.getEdge(i)))
+					originalNetwork.getRow(edge).set(CyNetwork.SELECTED, true);
 			}
 		}
 	}
@@ -487,9 +1148,6 @@ public class PathLinkerModel {
 			return;
 
 		for (CyEdge edge : edgeWeights.keySet()) {
-			if (hiddenEdges.contains(edge))
-				continue;
-
 			double edgeWeight = edgeWeights.get(edge);
 			double w = edgeWeight / edgePenalty;
 			edgeWeights.put(edge, w);
@@ -502,9 +1160,6 @@ public class PathLinkerModel {
 	 */
 	private void logTransformEdgeWeights() {
 		for (CyEdge edge : edgeWeights.keySet()) {
-			if (hiddenEdges.contains(edge))
-				continue;
-
 			double edgeWeight = edgeWeights.get(edge);
 
 			// double w = -1 * Math.log(edge_weight);
@@ -545,9 +1200,6 @@ public class PathLinkerModel {
 			return;
 
 		for (CyEdge edge : edgeWeights.keySet()) {
-			if (hiddenEdges.contains(edge))
-				continue;
-
 			double edgeWeight = edgeWeights.get(edge);
 			double w = edgeWeight + edgePenalty;
 			edgeWeights.put(edge, w);
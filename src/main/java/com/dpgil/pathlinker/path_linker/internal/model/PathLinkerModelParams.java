@@ -15,6 +15,7 @@ import org.cytoscape.model.CyNetwork;
 import org.cytoscape.model.CyNode;
 
 import com.dpgil.pathlinker.path_linker.internal.util.EdgeWeightType;
+import com.dpgil.pathlinker.path_linker.internal.util.KSPAlgorithm;
 import com.dpgil.pathlinker.path_linker.internal.util.PathLinkerError;
 
 import io.swagger.annotations.ApiModel;
@@ -65,6 +66,45 @@ public class PathLinkerModelParams {
             example = "false", dataType = "boolean")
     public Boolean skipSubnetworkGeneration = false;
 
+    @ApiModelProperty(value = "Run the spur path searches of each iteration of the algorithm in parallel on all cores. "
+            + "Gives the same paths as the sequential run", 
+            example = "false", dataType = "boolean")
+    public boolean parallelSpurSearch = false;
+
+    @ApiModelProperty(value = "Run the algorithm for groups of sources on their own, a group per core, and merge the paths "
+            + "of the groups. Only applies when sources and targets are not allowed in paths, so the paths through "
+            + "different sources are disjoint. Gives paths of the same lengths as a single run, and scales runs with "
+            + "many sources across cores. A partitioned run keeps no state, continuing it computes all its paths again",
+            example = "false", dataType = "boolean")
+    public boolean partitionBySource = false;
+
+    @ApiModelProperty(value = "The algorithm of the spur path searches. YEN runs A* from each spur node, "
+            + "NODE_CLASSIFICATION stops each search at the first node whose shortest path to the targets is still open. "
+            + "Both give paths of the same lengths. Default = YEN",
+            example = "YEN")
+    public KSPAlgorithm kspAlgorithm = KSPAlgorithm.YEN;
+
+    @ApiModelProperty(value = "Guide the searches by the distances to and from this many landmark nodes, "
+            + "computed once for the network and its edge weights and reused for any targets, "
+            + "instead of computing the exact distances to the targets of each run. 0 uses the exact distances. "
+            + "Both give paths of the same lengths. The landmarks only pay off for few paths on large networks "
+            + "whose targets change from run to run. Default = 0",
+            example = "0", dataType = "integer")
+    public int landmarkCount = 0;
+
+    @ApiModelProperty(value = "Stop the algorithm once it ran this many milliseconds and return the paths found until then. "
+            + "The paths returned are exact, but there may be fewer than k of them, and the response flags the run as truncated. "
+            + "0 for no limit. Default = 0",
+            example = "0", dataType = "integer")
+    public long maxRuntimeMillis = 0;
+
+    @ApiModelProperty(value = "Stop the algorithm once its paths and candidate paths take an estimated this many bytes "
+            + "and return the paths found until then. "
+            + "The paths returned are exact, but there may be fewer than k of them, and the response flags the run as truncated. "
+            + "0 for no limit. Default = 0",
+            example = "0", dataType = "integer")
+    public long maxCandidateMemory = 0;
+
     /** A mapping of the name of a node to the actual node object */
     private Map<String, CyNode> idToCyNode;
     /** A mapping of the node object to its name*/
@@ -259,6 +299,77 @@ public class PathLinkerModelParams {
             errorList.add(error);
         }
 
+        // check user input for kspAlgorithm
+        if (kspAlgorithm == null) {
+            String errorMsg = "Invalid kspAlgorithm. kspAlgorithm must be YEN or NODE_CLASSIFICATION";
+            String uiErrorMsg = "Invalid value entered for the KSP algorithm.\n";
+
+            if (!quit) {
+                uiErrorMsg += "  - Setting to default: YEN.\n";
+                kspAlgorithm = KSPAlgorithm.YEN;
+            }
+
+            PathLinkerError error = new PathLinkerError(PathLinkerError.INVALID_INPUT_CODE, 
+                    PathLinkerError.RESOURCE_ERROR_ROOT + ":" + resourcePath + ":" + PathLinkerError.INVALID_INPUT_ERROR, 
+                    errorMsg, uiErrorMsg);
+
+            errorList.add(error);
+        }
+
+        // check user input for landmarkCount
+        if (landmarkCount < 0) {
+            String errorMsg = "Invalid landmarkCount. landmarkCount cannot be less than 0";
+            String uiErrorMsg = "Invalid value entered for the number of landmarks: " + landmarkCount + ".\n"
+                    + "  - Must be a non-negative integer.\n";
+
+            if (!quit) {
+                uiErrorMsg += "  - Setting to default: 0.\n";
+                landmarkCount = 0;
+            }
+
+            PathLinkerError error = new PathLinkerError(PathLinkerError.INVALID_INPUT_CODE, 
+                    PathLinkerError.RESOURCE_ERROR_ROOT + ":" + resourcePath + ":" + PathLinkerError.INVALID_INPUT_ERROR, 
+                    errorMsg, uiErrorMsg);
+
+            errorList.add(error);
+        }
+
+        // check user input for maxRuntimeMillis
+        if (maxRuntimeMillis < 0) {
+            String errorMsg = "Invalid maxRuntimeMillis. maxRuntimeMillis cannot be less than 0";
+            String uiErrorMsg = "Invalid value entered for the maximum runtime: " + maxRuntimeMillis + ".\n"
+                    + "  - Must be a non-negative integer.\n";
+
+            if (!quit) {
+                uiErrorMsg += "  - Setting to default: 0.\n";
+                maxRuntimeMillis = 0;
+            }
+
+            PathLinkerError error = new PathLinkerError(PathLinkerError.INVALID_INPUT_CODE, 
+                    PathLinkerError.RESOURCE_ERROR_ROOT + ":" + resourcePath + ":" + PathLinkerError.INVALID_INPUT_ERROR, 
+                    errorMsg, uiErrorMsg);
+
+            errorList.add(error);
+        }
+
+        // check user input for maxCandidateMemory
+        if (maxCandidateMemory < 0) {
+            String errorMsg = "Invalid maxCandidateMemory. maxCandidateMemory cannot be less than 0";
+            String uiErrorMsg = "Invalid value entered for the maximum candidate memory: " + maxCandidateMemory + ".\n"
+                    + "  - Must be a non-negative integer.\n";
+
+            if (!quit) {
+                uiErrorMsg += "  - Setting to default: 0.\n";
+                maxCandidateMemory = 0;
+            }
+
+            PathLinkerError error = new PathLinkerError(PathLinkerError.INVALID_INPUT_CODE, 
+                    PathLinkerError.RESOURCE_ERROR_ROOT + ":" + resourcePath + ":" + PathLinkerError.INVALID_INPUT_ERROR, 
+                    errorMsg, uiErrorMsg);
+
+            errorList.add(error);
+        }
+
         // check user input for edgeWeightType
         if (edgeWeightType == null) {
             String errorMsg = "Invalid edgeWeightType. edgeWeightType must be UNWEIGHTED, ADDITIVE, or PROBABILITIES" ;
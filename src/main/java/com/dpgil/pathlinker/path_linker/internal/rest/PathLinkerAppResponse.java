@@ -24,6 +24,10 @@ public class PathLinkerAppResponse {
     private String pathRankColumnName;
     /** List of PathLinkerPath objects */
     private List<Path> paths;
+    /** Whether or not the run stopped at its time or memory budget */
+    private boolean truncated;
+    /** The id of the result, to continue the run to more paths */
+    private Long resultId;
 
     /**
      * Getter method of the subnetworkSUID
@@ -93,4 +97,39 @@ public class PathLinkerAppResponse {
     public void setPaths(List<Path> paths) {
         this.paths = paths;
     }
+
+    /**
+     * Getter method of the resultId
+     * @return resultId the id of the result, to continue the run to more paths
+     */
+    @ApiModelProperty(value = "Id of the result, to continue the run to more paths with the continue function", example = "1")
+    public Long getResultId() {
+        return resultId;
+    }
+
+    /**
+     * Setter method of the resultId
+     * @param resultId the id of the result, to continue the run to more paths
+     */
+    public void setResultId(Long resultId) {
+        this.resultId = resultId;
+    }
+
+    /**
+     * Getter method of the truncated
+     * @return truncated true if the run stopped at its time or memory budget
+     */
+    @ApiModelProperty(value = "Whether the run stopped at maxRuntimeMillis or maxCandidateMemory. "
+            + "The paths are then exact, but there may be fewer than k of them", example = "false")
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * Setter method of the truncated
+     * @param truncated whether or not the run stopped at its time or memory budget
+     */
+    public void setTruncated(boolean truncated) {
+        this.truncated = truncated;
+    }
 }
@@ -3,7 +3,10 @@ package com.dpgil.pathlinker.path_linker.internal.rest;
 import java.math.RoundingMode;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
@@ -15,6 +18,7 @@ import org.cytoscape.ci.CIExceptionFactory;
 import org.cytoscape.ci.model.CIError;
 import org.cytoscape.model.CyNetwork;
 import org.cytoscape.model.CyNetworkManager;
+import org.cytoscape.model.CyTable;
 import org.cytoscape.service.util.CyServiceRegistrar;
 import org.cytoscape.view.model.CyNetworkView;
 import org.cytoscape.work.SynchronousTaskManager;
@@ -26,6 +30,7 @@ import com.dpgil.pathlinker.path_linker.internal.task.CreateKSPViewTask;
 import com.dpgil.pathlinker.path_linker.internal.task.CreateResultPanelTask;
 import com.dpgil.pathlinker.path_linker.internal.task.RunKSPTask;
 import com.dpgil.pathlinker.path_linker.internal.util.Algorithms.PathWay;
+import com.dpgil.pathlinker.path_linker.internal.util.HeuristicCache;
 import com.dpgil.pathlinker.path_linker.internal.util.PathLinkerError;
 import com.dpgil.pathlinker.path_linker.internal.util.Path;
 import com.dpgil.pathlinker.path_linker.internal.view.PathLinkerControlPanel;
@@ -35,6 +40,9 @@ import com.dpgil.pathlinker.path_linker.internal.view.PathLinkerControlPanel;
  */
 public class PathLinkerImpl implements PathLinkerResource {
 
+    /** the number of runs kept to be continued, each keeps its copy of the network and the state of the algorithm */
+    private static final int MAX_RESUMABLE_RUNS = 8;
+
     /** the PathLinker control panel associated with */
     private PathLinkerControlPanel controlPanel;
     /** Cytoscape application manager */
@@ -47,10 +55,21 @@ public class PathLinkerImpl implements PathLinkerResource {
     private CyServiceRegistrar serviceRegistrar;
     /** swing application to set the status of the result panel */
     private CySwingApplication cySwingApp;
-    /** PathLinker Model object to run analysis */
-    private PathLinkerModel pathLinkerModel;
     /** CI Factories for Exceptions */
     private final CIExceptionFactory ciExceptionFactory;
+    /** the cache of the heuristic distances shared by the runs */
+    private final HeuristicCache heuristicCache;
+    /** the models of the latest runs by their result id, to continue them to more paths */
+    private final Map<Long, PathLinkerModel> resumableRuns = new LinkedHashMap<Long, PathLinkerModel>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, PathLinkerModel> eldest) {
+            return size() > MAX_RESUMABLE_RUNS;
+        }
+    };
+    /** the id of the next result */
+    private long nextResultId = 1;
 
     /**
      * Default constructor
@@ -61,6 +80,7 @@ public class PathLinkerImpl implements PathLinkerResource {
      * @param serviceRegistrar      service registrar
      * @param cySwingApp            swing app
      * @param ciExceptionFactory    CIException factory
+     * @param heuristicCache        cache of the heuristic distances shared by the runs
      */
     public PathLinkerImpl(
             PathLinkerControlPanel controlPanel,
@@ -69,7 +89,8 @@ public class PathLinkerImpl implements PathLinkerResource {
             CyAppAdapter adapter,
             CyServiceRegistrar serviceRegistrar,
             CySwingApplication cySwingApp,
-            CIExceptionFactory ciExceptionFactory) {
+            CIExceptionFactory ciExceptionFactory,
+            HeuristicCache heuristicCache) {
         this.controlPanel = controlPanel;
         this.cyApplicationManager = cyApplicationManager;
         this.cyNetworkManager = cyNetworkManager;
@@ -77,6 +98,7 @@ public class PathLinkerImpl implements PathLinkerResource {
         this.serviceRegistrar = serviceRegistrar;
         this.cySwingApp = cySwingApp;
         this.ciExceptionFactory = ciExceptionFactory;
+        this.heuristicCache = heuristicCache;
     }
 
     /**
@@ -132,28 +154,151 @@ public class PathLinkerImpl implements PathLinkerResource {
         SynchronousTaskManager<?> synTaskMan = adapter.getCyServiceRegistrar().getService(SynchronousTaskManager.class);
 
         // performs KSP algorithm by creating the runKSPTask
-        RunKSPTask runKSPTask = new RunKSPTask(cyNetwork, modelParams);
+        RunKSPTask runKSPTask = new RunKSPTask(cyNetwork, modelParams, heuristicCache);
         synTaskMan.execute(new TaskIterator(runKSPTask));
 
+        // obtain results from the runKSPTask
+        PathLinkerModel pathLinkerModel = runKSPTask.getResults(PathLinkerModel.class);
+
+        // the id of the result, given in its response
+        long resultId;
+        synchronized (resumableRuns) {
+            resultId = nextResultId++;
+        }
+
+        Response response = buildResponse(cyNetwork, pathLinkerModel, modelParams.skipSubnetworkGeneration, resultId);
+
+        // keeps the model to continue the run to more paths later, once its response is built
+        synchronized (resumableRuns) {
+            resumableRuns.put(resultId, pathLinkerModel);
+        }
+
+        return response;
+    }
+
+    /**
+     * Implementation of continueRun method from PathLinkerResource
+     * Continues an earlier run to more paths, computing only the new paths
+     * 
+     * @param resultId the id of the result of the earlier run
+     * @param k the number of paths to continue the run to
+     * @param skipSubnetworkGeneration whether or not to skip generating the subnetwork and its view
+     * @return appropriate JSON response on the result
+     */
+    @Override
+    public Response continueRun(long resultId, int k, boolean skipSubnetworkGeneration) {
+        PathLinkerModel model;
+        synchronized (resumableRuns) {
+            model = resumableRuns.get(resultId);
+        }
+
+        if (model == null) {
+            throw ciExceptionFactory.getCIException(PathLinkerError.RESULT_NOT_FOUND_CODE, 
+                    new CIError[]{new PathLinkerError(PathLinkerError.RESULT_NOT_FOUND_CODE, 
+                            PathLinkerError.RESOURCE_ERROR_ROOT + ":continueRun:" + PathLinkerError.RESULT_NOT_FOUND_ERROR, 
+                            "No result with id " + resultId + ", it may have been replaced by newer runs "
+                            + "or its network may have changed", null)
+            });
+        }
+
+        if (k < 1) {
+            throw ciExceptionFactory.getCIException(PathLinkerError.INVALID_INPUT_CODE, 
+                    new CIError[]{new PathLinkerError(PathLinkerError.INVALID_INPUT_CODE, 
+                            PathLinkerError.RESOURCE_ERROR_ROOT + ":continueRun:" + PathLinkerError.INVALID_INPUT_ERROR, 
+                            "Invalid k. k must be greater than or equal to 1", null)
+            });
+        }
+
+        // the run of a model is continued by one caller at a time
+        synchronized (model) {
+            // the network may have changed since the model was looked up
+            if (model.isStale()) {
+                throw ciExceptionFactory.getCIException(PathLinkerError.RESULT_NOT_FOUND_CODE, 
+                        new CIError[]{new PathLinkerError(PathLinkerError.RESULT_NOT_FOUND_CODE, 
+                                PathLinkerError.RESOURCE_ERROR_ROOT + ":continueRun:" + PathLinkerError.RESULT_NOT_FOUND_ERROR, 
+                                "The network of the result with id " + resultId + " changed since the run", null)
+                });
+            }
+
+            SynchronousTaskManager<?> synTaskMan = adapter.getCyServiceRegistrar().getService(SynchronousTaskManager.class);
+            synTaskMan.execute(new TaskIterator(new RunKSPTask(model, k)));
+
+            return buildResponse(model.getOriginalNetwork(), model, skipSubnetworkGeneration, resultId);
+        }
+    }
+
+    /**
+     * Drops the runs on a network, after its nodes or edges changed or it is destroyed,
+     * and marks them stale so a continuation that looked them up already is refused
+     * @param network the network
+     */
+    public void invalidateRuns(CyNetwork network) {
+        synchronized (resumableRuns) {
+            Iterator<PathLinkerModel> it = resumableRuns.values().iterator();
+            while (it.hasNext()) {
+                PathLinkerModel model = it.next();
+                if (model.getOriginalNetwork() == network) {
+                    model.setStale();
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops the runs whose weights come from a column of an edge table, after the values
+     * of the column changed or it is deleted, and marks them stale
+     * @param table the table
+     * @param column the name of the column
+     */
+    public void invalidateRuns(CyTable table, String column) {
+        synchronized (resumableRuns) {
+            Iterator<PathLinkerModel> it = resumableRuns.values().iterator();
+            while (it.hasNext()) {
+                PathLinkerModel model = it.next();
+                if (model.isWeightedBy(table, column)) {
+                    model.setStale();
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Generates the subnetwork and the result panel of a run unless skipped, 
+     * and builds the response from its paths
+     * @param cyNetwork the network the algorithm ran on
+     * @param pathLinkerModel the model of the run
+     * @param skipSubnetworkGeneration whether or not to skip generating the subnetwork and its view
+     * @param resultId the id of the result, to continue the run
+     * @return appropriate JSON response on the result
+     */
+    private Response buildResponse(CyNetwork cyNetwork, PathLinkerModel pathLinkerModel, 
+            boolean skipSubnetworkGeneration, long resultId) {
+        // create synchronous task manager to run the task on creating KSP subgraph and etc.
+        SynchronousTaskManager<?> synTaskMan = adapter.getCyServiceRegistrar().getService(SynchronousTaskManager.class);
+
         // response to be returned
         PathLinkerAppResponse response = new PathLinkerAppResponse();
 
-        // obtain results from the runKSPTask
-        pathLinkerModel = runKSPTask.getResults(PathLinkerModel.class);
-
         // check for error where no path is found
         if (pathLinkerModel.getOutputK() == 0) {
             throw ciExceptionFactory.getCIException(PathLinkerError.PATH_NOT_FOUND_CODE, 
                     new CIError[]{new PathLinkerError(PathLinkerError.PATH_NOT_FOUND_CODE, 
                             PathLinkerError.RESOURCE_ERROR_ROOT + ":runPathLinker:" + PathLinkerError.PATH_NOT_FOUND_ERROR, 
-                            "No path found", null)
+                            pathLinkerModel.isTruncated() ? "No path found before the run ran out of time or memory" 
+                                    : "No path found", null)
             });
         }
 
+        // the paths of a run stopped by its budgets are exact, but may be fewer than k
+        response.setTruncated(pathLinkerModel.isTruncated());
+        response.setResultId(resultId);
+
         List<PathWay> paths = pathLinkerModel.getResult(); // obtain result path
 
         // only generate subgraph/view if user agrees to
-        if (!modelParams.skipSubnetworkGeneration) {
+        if (!skipSubnetworkGeneration) {
             // construct createKSPViewTask to create KSP subgraph, subgraph view, path rank, and update related properties
             CreateKSPViewTask createKSPViewTask = new CreateKSPViewTask(controlPanel, cyNetwork, pathLinkerModel , adapter, cyApplicationManager);
             synTaskMan.execute(new TaskIterator(createKSPViewTask));
@@ -167,7 +312,7 @@ public class PathLinkerImpl implements PathLinkerResource {
             CreateResultPanelTask createResultPanelTask = new CreateResultPanelTask(controlPanel,
                     createKSPViewTask.getResults(CyNetwork.class), 
                     String.valueOf(controlPanel.nameIndex),
-                    cyNetworkManager, paths, serviceRegistrar, cySwingApp);
+                    cyNetworkManager, paths, pathLinkerModel, serviceRegistrar, cySwingApp);
             synTaskMan.execute(new TaskIterator(createResultPanelTask));
         }
 
@@ -184,7 +329,7 @@ public class PathLinkerImpl implements PathLinkerResource {
             ArrayList<String> currentPath = new ArrayList<String>();
 
             for (int j = 1; j < path.size() - 1; j++) {
-                currentPath.add(path.nodeIdMap.get(path.get(j)));
+                currentPath.add(path.getName(j));
             }
 
             result.add(new Path(i + 1, Double.valueOf(df.format(paths.get(i).weight)), currentPath));
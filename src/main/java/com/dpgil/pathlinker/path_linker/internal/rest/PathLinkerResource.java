@@ -89,4 +89,42 @@ public interface PathLinkerResource {
     public Response run(
             @ApiParam(value = "PathLinker Parameters", required = true) PathLinkerModelParams modelParams
             );
+
+    /**
+     * Post Function that continues an earlier run to more paths, computing only the new paths;
+     *      generate new network/network view,
+     *      and return network/view SUIDs and k-number sorted path list
+     * @param resultId the id of the result of the earlier run
+     * @param k the number of paths to continue the run to
+     * @param skipSubnetworkGeneration whether or not to skip generating the subnetwork and its view
+     * @return k-number sorted path list in JSON Array format
+     */
+    @POST
+    @Produces("application/json")
+    @Path("results/{resultId}/continue")
+    @ApiOperation(value = "Continue a PathLinker Run to More Paths", 
+    notes = PathLinkerDocumentation.CONTINUE_SWAGGER_NOTES,
+    response = PathLinkerAppResponse.class)
+    @ApiResponses(value = { 
+            @ApiResponse(code = PathLinkerError.RESULT_NOT_FOUND_CODE, message = "Result Does Not Exist", response = CIResponse.class),
+            @ApiResponse(code = PathLinkerError.INVALID_INPUT_CODE, 
+            message = "Invalid User Input" + '\n' + '\n'
+            + "Possible problems:" + '\n'
+            + " - k is less than 1.", 
+            response = CIResponse.class),
+            @ApiResponse(code = PathLinkerError.PATH_NOT_FOUND_CODE, 
+            message = "No Path Found" + '\n' + '\n'
+            + "PathLinker cannot find a sequence of edges (path) connecting the source(s) to the target(s) in the given network.", 
+            response = CIResponse.class),
+    })
+    public Response continueRun(
+            @ApiParam(value = "Result id returned by the earlier run") 
+            @PathParam("resultId") long resultId,
+
+            @ApiParam(value = "The number of paths to continue the run to", required = true) 
+            @QueryParam("k") int k,
+
+            @ApiParam(value = "Skip generating the subnetwork and its view") 
+            @QueryParam("skipSubnetworkGeneration") @DefaultValue("false") boolean skipSubnetworkGeneration
+            );
 }
@@ -128,17 +128,24 @@ public class CreateKSPViewTask extends AbstractNetworkTask implements Observable
      * Creates a new sub-network and sub-network view for the subgraph generated by the KSP
      */
     public void createKSPSubgraphAndView() {
-        // creates task iterator and execute it to generate a sub-network from the original network
-        // the bypass values and other styles from the original network will be pass down to the sub-network
-        TaskIterator subNetworkTask = adapter.get_NewNetworkSelectedNodesAndEdgesTaskFactory().createTaskIterator(network);
-
-        // creates synchronous task manager to execute the task on creating the subnetwork
-        SynchronousTaskManager<?> synTaskMan = adapter.getCyServiceRegistrar().getService(SynchronousTaskManager.class);
-        synTaskMan.execute(subNetworkTask);
-
-        // assign the new sub network and network views
-        kspSubgraph = applicationManager.getCurrentNetworkView().getModel();
-        kspSubgraphView = applicationManager.getCurrentNetworkView();
+        // the sub-network is created from the selected nodes and edges of the original network,
+        // which another run on the same network may select at the same time. holds the lock of
+        // the network from selecting the paths of this model until the sub-network is created
+        synchronized (model.getOriginalNetwork()) {
+            model.selectKSPSubgraph();
+
+            // creates task iterator and execute it to generate a sub-network from the original network
+            // the bypass values and other styles from the original network will be pass down to the sub-network
+            TaskIterator subNetworkTask = adapter.get_NewNetworkSelectedNodesAndEdgesTaskFactory().createTaskIterator(network);
+
+            // creates synchronous task manager to execute the task on creating the subnetwork
+            SynchronousTaskManager<?> synTaskMan = adapter.getCyServiceRegistrar().getService(SynchronousTaskManager.class);
+            synTaskMan.execute(subNetworkTask);
+
+            // assign the new sub network and network views
+            kspSubgraph = applicationManager.getCurrentNetworkView().getModel();
+            kspSubgraphView = applicationManager.getCurrentNetworkView();
+        }
 
         // use a visual bypass to color the sources and targets for the sub-network view
         Color targetColor = new Color(255, 223, 0);
@@ -236,23 +243,12 @@ public class CreateKSPViewTask extends AbstractNetworkTask implements Observable
 
             // excluding supersource and supertarget
             for (int j = 1; j < currPath.size() - 2; j++) {
-                CyNode node1 = currPath.get(j);
-                CyNode node2 = currPath.get(j + 1);
-
-                // add all of the directed edges from node1 to node2
-                List<CyEdge> edges = network.getConnectingEdgeList(node1, node2, CyEdge.Type.DIRECTED);
-                for (CyEdge edge : edges)
-                {
-                    if (network.getRow(edge).get(pathRankColumnName, Integer.class) == null &&
-                            ((edge.getSource().equals(node1) && edge.getTarget().equals(node2)) ||
-                            (model.treatNetworkAsUndirected && edge.getSource().equals(node2) && edge.getTarget().equals(node1)))) // verifies the edges direction
-                        network.getRow(edge).set(pathRankColumnName, i + 1);
-                }
-                // also add all of the undirected edges from node1 to node2
-                edges = network.getConnectingEdgeList(node1, node2, CyEdge.Type.UNDIRECTED);
-                for (CyEdge edge : edges) 
+                // rank all of the edges of the network the path edge from the jth node
+                // to the (j+1)th node stands for, in either direction if the network is
+                // treated as undirected
+                for (CyEdge edge : model.getOriginalEdges(currPath.getEdge(j)))
                     if (network.getRow(edge).get(pathRankColumnName, Integer.class) == null)
-                        network.getRow(edge).set(pathRankColumnName,  i + 1);
+                        network.getRow(edge).set(pathRankColumnName, i + 1);
             }
         }
 
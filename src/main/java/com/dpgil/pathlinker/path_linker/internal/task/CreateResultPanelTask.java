@@ -14,6 +14,7 @@ import org.cytoscape.task.AbstractNetworkTask;
 import org.cytoscape.work.ObservableTask;
 import org.cytoscape.work.TaskMonitor;
 
+import com.dpgil.pathlinker.path_linker.internal.model.PathLinkerModel;
 import com.dpgil.pathlinker.path_linker.internal.util.Algorithms.PathWay;
 import com.dpgil.pathlinker.path_linker.internal.view.PathLinkerControlPanel;
 import com.dpgil.pathlinker.path_linker.internal.view.PathLinkerResultPanel;
@@ -33,6 +34,8 @@ public class CreateResultPanelTask extends AbstractNetworkTask implements Observ
     private CyNetworkManager networkManager;
     /** the result paths that the result panel is constructed from */
     private List<PathWay> results;
+    /** the model of the run, to continue it to more paths */
+    private PathLinkerModel model;
     /** service registrar to register result panel */
     private CyServiceRegistrar serviceRegistrar;
     /** swing application to set the status of the result panel */
@@ -47,6 +50,7 @@ public class CreateResultPanelTask extends AbstractNetworkTask implements Observ
      * @param title the title
      * @param networkManager the network manager
      * @param results the result paths
+     * @param model the model of the run
      * @param serviceRegistrar the CyServiceRegistrar
      * @param cySwingApp the CySwingApplication
      */
@@ -56,6 +60,7 @@ public class CreateResultPanelTask extends AbstractNetworkTask implements Observ
             String title,
             CyNetworkManager networkManager,
             List<PathWay> results,
+            PathLinkerModel model,
             CyServiceRegistrar serviceRegistrar,
             CySwingApplication cySwingApp) {
 
@@ -65,6 +70,7 @@ public class CreateResultPanelTask extends AbstractNetworkTask implements Observ
         this.title = title;
         this.networkManager = networkManager;
         this.results = results;
+        this.model = model;
         this.serviceRegistrar = serviceRegistrar;
         this.cySwingApp = cySwingApp;
     }
@@ -102,9 +108,16 @@ public class CreateResultPanelTask extends AbstractNetworkTask implements Observ
     private void createResultPanel() {
         // create and register a new panel in result panel with specific title
         // the result panel name will be sync with network and path rank using nameIndex
-        resultPanel = new PathLinkerResultPanel(controlPanel, title, networkManager, network, results);
+        resultPanel = new PathLinkerResultPanel(controlPanel, title, networkManager, network, results, model);
         serviceRegistrar.registerService(resultPanel, CytoPanelComponent.class, new Properties());
 
+        // the panel takes the model over from the panel of the run it continues
+        if (model != null) {
+            PathLinkerResultPanel previous = controlPanel._modelToResultPanelMap.put(model, resultPanel);
+            if (previous != null)
+                previous.releaseModel();
+        }
+
         // open and show the result panel if in hide state
         CytoPanel cytoPanel = cySwingApp.getCytoPanel(resultPanel.getCytoPanelName());
 
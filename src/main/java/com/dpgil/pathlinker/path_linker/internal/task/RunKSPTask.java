@@ -7,31 +7,55 @@ import org.cytoscape.work.TaskMonitor;
 
 import com.dpgil.pathlinker.path_linker.internal.model.PathLinkerModel;
 import com.dpgil.pathlinker.path_linker.internal.model.PathLinkerModelParams;
+import com.dpgil.pathlinker.path_linker.internal.util.HeuristicCache;
+import com.dpgil.pathlinker.path_linker.internal.util.KSPProgressListener;
 
 /**
  * Class which creates a task that runs the KSP algorithm
  */
 public class RunKSPTask extends AbstractNetworkTask implements ObservableTask {
 
+    /** the least time between two progress reports to the task monitor, in milliseconds */
+    private static final long PROGRESS_INTERVAL = 100;
+
     /** network to perform ksp algorithm */
     private CyNetwork network;
     /** parameters to create model for running the ksp algorithm */
     private PathLinkerModelParams modelParams;
-    /** the model to run ksp algorithm */
-    private PathLinkerModel pathLinkerModel;
+    /** the model to run ksp algorithm, set from the thread of the task and read by cancel */
+    private volatile PathLinkerModel pathLinkerModel;
+    /** the cache of the heuristic distances shared by the runs */
+    private HeuristicCache heuristicCache;
     /** task monitor for the RunKSPTask */
     private TaskMonitor taskMonitor;
+    /** the number of paths to continue the run of the model to, 0 for a new run */
+    private int continueK;
 
     /**
      * Default constructor
      * @param network network to perform ksp algorithm
      * @param modelParams parameters to create model for running the ksp algorithm
+     * @param heuristicCache the cache of the heuristic distances shared by the runs
      */
     public RunKSPTask(CyNetwork network, 
-            PathLinkerModelParams modelParams) {
+            PathLinkerModelParams modelParams, HeuristicCache heuristicCache) {
         super(network);
         this.network = network;
         this.modelParams = modelParams;
+        this.heuristicCache = heuristicCache;
+    }
+
+    /**
+     * Constructor for a task that continues the run of a model to more paths,
+     * computing only the new paths
+     * @param pathLinkerModel the model of an earlier run
+     * @param k the number of paths to continue the run to
+     */
+    public RunKSPTask(PathLinkerModel pathLinkerModel, int k) {
+        super(pathLinkerModel.getOriginalNetwork());
+        this.network = pathLinkerModel.getOriginalNetwork();
+        this.pathLinkerModel = pathLinkerModel;
+        this.continueK = k;
     }
 
     /**
@@ -58,7 +82,23 @@ public class RunKSPTask extends AbstractNetworkTask implements ObservableTask {
         this.taskMonitor = taskMonitor;
         taskMonitor.setTitle("Running KSP algorithm");
         taskMonitor.setStatusMessage("Running KSP algorithm. Please wait...");
-        runKSP();
+        if (continueK > 0)
+            continueKSP();
+        else
+            runKSP();
+    }
+
+    /**
+     * Cancels the task. The KSP algorithm stops within milliseconds,
+     * and the model keeps the paths found until then
+     */
+    @Override
+    public void cancel() {
+        super.cancel();
+
+        PathLinkerModel model = pathLinkerModel;
+        if (model != null)
+            model.cancel();
     }
 
     /**
@@ -81,9 +121,68 @@ public class RunKSPTask extends AbstractNetworkTask implements ObservableTask {
                 modelParams.edgeWeightType, 
                 modelParams.edgePenalty,
                 modelParams.getCyNodeToId());
+        pathLinkerModel.setParallelSpurSearch(modelParams.parallelSpurSearch);
+        pathLinkerModel.setPartitionBySource(modelParams.partitionBySource);
+        pathLinkerModel.setKSPAlgorithm(modelParams.kspAlgorithm);
+        pathLinkerModel.setHeuristicCache(heuristicCache);
+        pathLinkerModel.setLandmarkCount(modelParams.landmarkCount);
+        pathLinkerModel.setMaxRuntimeMillis(modelParams.maxRuntimeMillis);
+        pathLinkerModel.setMaxCandidateMemory(modelParams.maxCandidateMemory);
+        pathLinkerModel.setProgressListener(progressListener(modelParams.k));
+
+        // a cancel before the model existed cancels it now
+        if (cancelled)
+            pathLinkerModel.cancel();
 
         // runs the KSP algorithm
         pathLinkerModel.runKSP();
-        taskMonitor.setStatusMessage("Running KSP algorithm success.");
+        reportResult();
+    }
+
+    /**
+     * Continues the KSP algorithm of the model to more paths,
+     * the run of a model is continued by one task at a time
+     */
+    private void continueKSP() {
+        synchronized (pathLinkerModel) {
+            pathLinkerModel.setProgressListener(progressListener(continueK));
+            pathLinkerModel.continueKSP(continueK);
+            reportResult();
+        }
+    }
+
+    /**
+     * Creates the listener that reports the progress of the KSP algorithm to the task monitor
+     * @param k the number of paths the algorithm runs for
+     * @return the listener
+     */
+    private KSPProgressListener progressListener(final int k) {
+        return new KSPProgressListener() {
+            /** the elapsed time of the last report */
+            private long reported = -PROGRESS_INTERVAL;
+
+            @Override
+            public void pathAccepted(int paths, int candidates, long elapsedMillis) {
+                if (elapsedMillis - reported < PROGRESS_INTERVAL)
+                    return;
+
+                reported = elapsedMillis;
+                taskMonitor.setProgress(Math.min(1.0, paths / (double) k));
+                taskMonitor.setStatusMessage("Running KSP algorithm. Found " + paths + " paths, "
+                        + candidates + " candidates, " + (elapsedMillis / 1000) + " s");
+            }
+        };
+    }
+
+    /**
+     * Reports how the run of the KSP algorithm ended to the task monitor
+     */
+    private void reportResult() {
+        if (pathLinkerModel.isCancelled())
+            taskMonitor.setStatusMessage("KSP algorithm cancelled, " + pathLinkerModel.getOutputK() + " paths found.");
+        else if (pathLinkerModel.isTruncated())
+            taskMonitor.setStatusMessage("KSP algorithm ran out of time or memory, " + pathLinkerModel.getOutputK() + " paths found.");
+        else
+            taskMonitor.setStatusMessage("Running KSP algorithm success.");
     }
 }
@@ -1,35 +1,44 @@
 package com.dpgil.pathlinker.path_linker.internal.util;
 
-import java.util.Comparator;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.PriorityQueue;
-import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import javax.swing.JOptionPane;
 import org.cytoscape.model.CyEdge;
 import org.cytoscape.model.CyNode;
-import org.cytoscape.model.CyNetwork;
 
 /**
  * // -------------------------------------------------------------------------
  * /** Algorithms class for the PathLinker plugin. Contains all the algorithms
- * (Dijkstra's, Yen's KSP) used in PathLinker.
+ * (Dijkstra's, Yen's KSP) used in PathLinker. The algorithms run on a
+ * {@link GraphSnapshot} of the network and identify nodes and edges by their
+ * dense ids in the snapshot. The algorithms keep no state of their own, the
+ * state of a KSP run is kept in a {@link KSPContext}, so several runs can
+ * proceed in parallel.
  *
  * @author Daniel Gil
  * @version Apr 23, 2015
  */
 public class Algorithms
 {
-	private static final double            INFINITY = Integer.MAX_VALUE;
-	private static HashSet<CyEdge>         initialHiddenEdges;
-	private static HashSet<CyEdge>         hiddenEdges;
-	private static Map<CyEdge, Double>     _edgeWeights;
+	static final double                    INFINITY = Integer.MAX_VALUE;
+	/** the number of edges from which the distances to the target are computed in parallel */
+	private static final int               PARALLEL_SSSP_EDGES = 1 << 18;
+	/** the searches check the time budget of the run each time they expanded this many nodes, less one */
+	private static final int               BUDGET_CHECK_MASK = 0xFF;
+	/** the estimated memory a spur search kept for an extension of the run takes */
+	private static final long              PRUNED_SEARCH_BYTES = 32;
 
 
 	/**
@@ -39,55 +48,68 @@ public class Algorithms
 	 * If this function returns infinity, then the target
 	 * is necessarily unreachable, so don't expand the search along
 	 * this edge
-	 *            
+	 *
 	 * @param minDists
-	 *            the map of nodes to their minimum distance from the target
+	 *            the minimum distance of each node from the target
 	 * @param node
-	 * 			  the node to check the distance for
+	 * 			  the id of the node to check the distance for
 	 * @return minimum distance to target or infinity if the target is unreachable
-	 *            
+	 *
 	 */
 	private static double heuristicF(
-			HashMap<CyNode, Double> minDists,
-			CyNode node)
+			double[] minDists,
+			int node)
 	{
-		if (minDists.containsKey(node))
-			return minDists.get(node);
-		else
-			return INFINITY;
+		return minDists[node];
 	}
 
 
 	/**
-	 * Represents a pathway. Stores the list of nodes in order in the path,
-	 * the string name of each nodes, and the weight of the path
+	 * Represents a pathway. A lightweight view over the node and edge ids of
+	 * a path found by the algorithm, the nodes and edges of the network it
+	 * ran on, and the names of the nodes. The names are shared by all the
+	 * paths of a run instead of copied into each path
 	 */
 	public static class PathWay implements Comparable<PathWay>
 	{
-		/** the list of nodes in order in the path */
-		public ArrayList<CyNode> nodeList;
+		/** the nodes of the network the path was found in, indexed by id */
+		private final CyNode[] graphNodes;
+		/** the edges of the network the path was found in, indexed by id */
+		private final CyEdge[] graphEdges;
+		/** the ids of the nodes in order in the path */
+		private final int[] nodes;
+		/** the ids of the edges in order in the path */
+		private final int[] edges;
 		/** the total weight of the path */
 		public double            weight;
-		/** the map of node names in the nodeList*/
-		public Map<CyNode, String> nodeIdMap;
+		/** the map of node names, shared by all the paths of a run */
+		private final Map<CyNode, String> nodeIdMap;
 
 		/**
 		 * Constructor for the path class
 		 *
-		 * @param nodeList
-		 *            the list of nodes in order in the path
+		 * @param graphNodes
+		 *            the nodes of the network the path was found in, indexed by id
+		 * @param graphEdges
+		 *            the edges of the network the path was found in, indexed by id
+		 * @param nodes
+		 *            the ids of the nodes in order in the path
+		 * @param edges
+		 *            the ids of the edges in order in the path
 		 * @param map
 		 * 			  the map of the original network, use to find names of the nodes
 		 * @param weight
 		 *            the total weight of the path
 		 */
-		public PathWay(ArrayList<CyNode> nodeList, Map<CyNode, String> map, double weight)
+		PathWay(CyNode[] graphNodes, CyEdge[] graphEdges, int[] nodes, int[] edges,
+				Map<CyNode, String> map, double weight)
 		{
-			this.nodeList = nodeList;
+			this.graphNodes = graphNodes;
+			this.graphEdges = graphEdges;
+			this.nodes = nodes;
+			this.edges = edges;
 			this.weight = weight;
-			this.nodeIdMap = new HashMap<CyNode, String>();
-			for (int i = 0; i < nodeList.size(); i++)
-				nodeIdMap.put(nodeList.get(i), map.get(nodeList.get(i)));
+			this.nodeIdMap = map;
 		}
 
 
@@ -98,7 +120,7 @@ public class Algorithms
 		 */
 		public int size()
 		{
-			return nodeList.size();
+			return nodes.length;
 		}
 
 
@@ -111,26 +133,53 @@ public class Algorithms
 		 */
 		public CyNode get(int i)
 		{
-			return nodeList.get(i);
+			return graphNodes[nodes[i]];
+		}
+
+
+		/**
+		 * Returns the edge from the ith node to the (i+1)th node in the path.
+		 * The edge belongs to the network the algorithm ran on
+		 *
+		 * @param i
+		 *            the rank of the source node of the edge
+		 * @return the ith edge in the path
+		 */
+		public CyEdge getEdge(int i)
+		{
+			return graphEdges[edges[i]];
+		}
+
+
+		/**
+		 * Returns the name of the ith node in the path
+		 *
+		 * @param i
+		 *            the rank of the node to get the name of
+		 * @return the name of the ith node in the path
+		 */
+		public String getName(int i)
+		{
+			return nodeIdMap.get(get(i));
 		}
 
 
 		@Override
 		public boolean equals(Object o)
 		{
-			if (o == null)
+			if (!(o instanceof PathWay))
 				return false;
 
 			PathWay p = (PathWay)o;
 
-			return this.nodeList.equals(p.nodeList);
+			return this.graphNodes == p.graphNodes && Arrays.equals(this.nodes, p.nodes);
 		}
 
 
 		@Override
 		public int hashCode()
 		{
-			return nodeList.hashCode();
+			return Arrays.hashCode(nodes);
 		}
 
 		/**
@@ -144,8 +193,8 @@ public class Algorithms
 
 			int size = this.size() < o.size() ? this.size() : o.size();
 			for (int i = 1; i < size - 1; i++) {
-				String name1 = this.nodeIdMap.get(this.get(i));
-				String name2 = o.nodeIdMap.get(o.get(i));
+				String name1 = this.getName(i);
+				String name2 = o.getName(i);
 				if (name1.compareTo(name2) != 0) return name1.compareTo(name2);
 			}
 			return Integer.compare(this.size(), o.size());
@@ -153,6 +202,140 @@ public class Algorithms
 	}
 
 
+	/**
+	 * Represents a path of a KSP run, stored as a chain of entries in the
+	 * PathStore of the run. Candidate paths share the entries of their prefix
+	 * with the accepted path they deviate from, so a candidate only costs
+	 * the entries of its spur path. The cost and fingerprint of the path are
+	 * kept by the store, so hashing a path is constant time and comparing two
+	 * different paths rarely needs to look at their nodes
+	 */
+	public static class IndexedPath
+	{
+		/** the store holding the entries of the path */
+		private final PathStore store;
+		/** the entry of the last node of the path */
+		private final int last;
+		/** the number of nodes in the path */
+		private final int length;
+		/** the index of the node where the path deviates from the path it was built from */
+		public final int deviation;
+		/** the total weight of the path */
+		public final double weight;
+		/** the ids of the nodes in order, only built for accepted paths */
+		private int[] nodes;
+
+		/**
+		 * Constructor for the indexed path class
+		 *
+		 * @param store
+		 *            the store holding the entries of the path
+		 * @param last
+		 *            the entry of the last node of the path
+		 * @param length
+		 *            the number of nodes in the path
+		 * @param deviation
+		 *            the index of the node where the path deviates from the
+		 *            path it was built from, 0 for the first path
+		 */
+		public IndexedPath(PathStore store, int last, int length, int deviation)
+		{
+			this.store = store;
+			this.last = last;
+			this.length = length;
+			this.deviation = deviation;
+			this.weight = store.cost(last);
+		}
+
+
+		/**
+		 * Returns the size of the path
+		 *
+		 * @return size of the path
+		 */
+		public int size()
+		{
+			return length;
+		}
+
+
+		/**
+		 * Returns the ids of the nodes in order in the path. Built from the
+		 * store on the first call and kept, so it should only be called for
+		 * paths that are accepted
+		 *
+		 * @return the ids of the nodes in the path
+		 */
+		public int[] nodes()
+		{
+			if (nodes == null)
+				nodes = store.nodes(last, length);
+
+			return nodes;
+		}
+
+
+		/**
+		 * Returns the ids of the edges in order in the path
+		 *
+		 * @return the ids of the edges in the path
+		 */
+		public int[] edges()
+		{
+			return store.edges(last, length);
+		}
+
+
+		/**
+		 * Returns the entry of each node of the path in the store, to build
+		 * the paths deviating from this path on top of it
+		 *
+		 * @return the entries of the nodes in order
+		 */
+		public int[] entries()
+		{
+			return store.entries(last, length);
+		}
+
+
+		/**
+		 * Maps the path back to the nodes of the network
+		 *
+		 * @param graph
+		 *            the snapshot the path was computed on
+		 * @param cyNodeToId
+		 *            the map that maps CyNode object to its string name
+		 * @return the path as a PathWay
+		 */
+		public PathWay toPathWay(GraphSnapshot graph, Map<CyNode, String> cyNodeToId)
+		{
+			return new PathWay(graph.nodes(), graph.edges(), nodes(), edges(), cyNodeToId, weight);
+		}
+
+
+		@Override
+		public boolean equals(Object o)
+		{
+			if (!(o instanceof IndexedPath))
+				return false;
+
+			IndexedPath p = (IndexedPath) o;
+
+			return store == p.store && length == p.length
+					&& store.fingerprint(last) == p.store.fingerprint(p.last)
+					&& store.sameNodes(last, p.last);
+		}
+
+
+		@Override
+		public int hashCode()
+		{
+			long fingerprint = store.fingerprint(last);
+			return (int) (fingerprint ^ (fingerprint >>> 32));
+		}
+	}
+
+
 	/**
 	 * Computes the k shortest acyclic paths in the supplied network using Yen's
 	 * algorithm. Assumes that this is NOT a multigraph (there is at most one
@@ -160,16 +343,20 @@ public class Algorithms
 	 * with the distances in the input graph as a heuristic. Because the
 	 * algorithm computes paths over subsets of the initial heuristic is valid
 	 * and effective. If the graph contains n less than k paths, n paths will be
-	 * returned.
+	 * returned. The spur searches run the algorithm selected in the context,
+	 * see KSPAlgorithm. The progress listener of the context is called after
+	 * each path, and a run cancelled through the context or over one of its
+	 * budgets returns the paths accepted until then.
 	 *
-	 * @param network
-	 *            the supplied network
+	 * @param context
+	 *            the context of the run, holds the snapshot of the supplied
+	 *            network and the hidden edges
 	 * @param cyNodeToId
      *            the map that maps CyNode object to its string name
 	 * @param source
-	 *            the source node
+	 *            the id of the source node
 	 * @param target
-	 *            the target node
+	 *            the id of the target node
 	 * @param maxK
 	 *            the number of shortest paths
 	 * @param includePathScoreTies
@@ -177,413 +364,2076 @@ public class Algorithms
 	 * @return a list of k-shortest paths in sorted order by cost
 	 */
 	public static ArrayList<PathWay> ksp(
-			CyNetwork network,
+			KSPContext context,
 			Map<CyNode, String> cyNodeToId,
-			CyNode source,
-			CyNode target,
+			int source,
+			int target,
 			int maxK,
 			boolean includePathScoreTies)
 			{
-		// the list of shortest paths
-		ArrayList<PathWay> A = new ArrayList<PathWay>();
+		return kspIterator(context, cyNodeToId, source, target, maxK, includePathScoreTies).remaining();
+			}
 
-		// compute the original distance from the source to use for the
-		// heuristic function
-		HashMap<CyNode, Double> minDists =
-				reverseSingleSourceDijkstra(network, target);
 
-		// compute the initial shortest path to initialize Yen's
-		PathWay shortestPath = dijkstra(network, cyNodeToId, source, target);
+	/**
+	 * Computes the k shortest acyclic paths as ksp does, one at a time. Each
+	 * path is computed when it is asked for, and is final, so a consumer that
+	 * stops early doesn't pay for the paths it never reads. The paths come in
+	 * the same order as the list of ksp
+	 *
+	 * @param context
+	 *            the context of the run, holds the snapshot of the supplied
+	 *            network and the hidden edges
+	 * @param cyNodeToId
+	 *            the map that maps CyNode object to its string name
+	 * @param source
+	 *            the id of the source node
+	 * @param target
+	 *            the id of the target node
+	 * @param maxK
+	 *            the number of shortest paths
+	 * @param includePathScoreTies
+	 *            the option to include all paths of equal length
+	 * @return an iterator over the k-shortest paths in sorted order by cost
+	 */
+	public static KSPIterator kspIterator(
+			KSPContext context,
+			Map<CyNode, String> cyNodeToId,
+			int source,
+			int target,
+			int maxK,
+			boolean includePathScoreTies)
+	{
+		return new KSPIterator(context, cyNodeToId, source, target, maxK, includePathScoreTies);
+	}
 
-		// there is no path from source to target
-		if (shortestPath == null)
-			return A;
 
-		A.add(shortestPath);
+	/**
+	 * Runs Yen's algorithm one iteration at a time, each iteration accepting
+	 * the next shortest path. The iterator keeps the state of the run between
+	 * the paths: the store of the paths, the candidates and the trie of the
+	 * accepted paths. It uses the context of the run, so it is not thread
+	 * safe, and the context must not run anything else until the iterator is
+	 * done with it. Once the context is cancelled or over a budget the
+	 * iterator returns no more paths, the searches cut short would make the
+	 * next one wrong.
+	 *
+	 * The state is kept once the iterator returned its paths, so the run can
+	 * be extended to more paths, or resumed after it was stopped, without
+	 * computing the paths so far again
+	 */
+	public static final class KSPIterator implements Iterator<PathWay>
+	{
+		/**
+		 * A spur search that found no path within the bound on the
+		 * candidates, and may find one once the run is extended
+		 */
+		private static final class PrunedSearch
+		{
+			/** the accepted path the search deviated from */
+			final IndexedPath path;
+			/** the spur index of the search */
+			final int spurIndex;
+
+			/**
+			 * Constructor for the pruned search
+			 *
+			 * @param path
+			 *            the accepted path the search deviated from
+			 * @param spurIndex
+			 *            the spur index of the search
+			 */
+			PrunedSearch(IndexedPath path, int spurIndex)
+			{
+				this.path = path;
+				this.spurIndex = spurIndex;
+			}
+		}
 
-		// the heap, stores the potential k shortest paths
-		ArrayList<PathWay> B = new ArrayList<PathWay>();
+		/** the context of the run */
+		private final KSPContext context;
+		/** the snapshot of the run */
+		private final GraphSnapshot graph;
+		/** the map that maps CyNode object to its string name */
+		private final Map<CyNode, String> cyNodeToId;
+		/** the id of the source node */
+		private final int source;
+		/** the id of the target node */
+		private final int target;
+		/** the number of shortest paths, raised when the run is extended */
+		private int maxK;
+		/** the option to include all paths of equal length */
+		private final boolean includePathScoreTies;
+
+		/** the distance of each node to the target the searches are guided by */
+		private double[] minDists;
+		/** the edge from each node towards the target in the tree of the shortest paths */
+		private int[] treeEdges;
+		/** the store of all the paths of the run */
+		private PathStore store;
+		/** the candidates of the next shortest paths */
+		private CandidatePool B;
+		/** the trie of the accepted paths */
+		private PrefixTrie prefixCache;
+		/** the spur searches stopped by the bound on the candidates, run again when the run is extended */
+		private ArrayList<PrunedSearch> prunedSearches = new ArrayList<PrunedSearch>();
+		/** whether the pruned searches must run before the next path */
+		private boolean rerunPruned;
+
+		/** the latest path returned, null before the first */
+		private IndexedPath latestPath;
+		/** the number of paths returned */
+		private int accepted;
+		/** the next path to return, null if it is not computed yet */
+		private IndexedPath nextPath;
+		/** whether the run found all its paths */
+		private boolean done;
+		/** whether there are no more paths at all from the source to the target */
+		private boolean exhausted;
+		/** whether the spur searches of the latest path ran and added their candidates */
+		private boolean searched;
 
-		// A cache mapping prefixes of accepted paths to the next node after
-		// the prefix. Used to avoid scanning all previous paths many times,
-		// which otherwise dominates runtime.
-		HashMap<ArrayList<CyNode>, ArrayList<CyNode>> prefixCache =
-				new HashMap<ArrayList<CyNode>, ArrayList<CyNode>>();
-		for (int i = 1; i < shortestPath.size(); i++)
+		/**
+		 * Constructor for the iterator, the first path is computed when it
+		 * is asked for
+		 *
+		 * @param context
+		 *            the context of the run
+		 * @param cyNodeToId
+		 *            the map that maps CyNode object to its string name
+		 * @param source
+		 *            the id of the source node
+		 * @param target
+		 *            the id of the target node
+		 * @param maxK
+		 *            the number of shortest paths
+		 * @param includePathScoreTies
+		 *            the option to include all paths of equal length
+		 */
+		private KSPIterator(
+				KSPContext context,
+				Map<CyNode, String> cyNodeToId,
+				int source,
+				int target,
+				int maxK,
+				boolean includePathScoreTies)
 		{
-			ArrayList<CyNode> subPath =
-					new ArrayList<CyNode>(shortestPath.nodeList.subList(0, i));
-			CyNode node = shortestPath.get(i);
+			this.context = context;
+			this.graph = context.getGraph();
+			this.cyNodeToId = cyNodeToId;
+			this.source = source;
+			this.target = target;
+			this.maxK = maxK;
+			this.includePathScoreTies = includePathScoreTies;
+		}
+
 
-			if (prefixCache.containsKey(subPath))
+		@Override
+		public boolean hasNext()
+		{
+			if (nextPath == null && !done)
 			{
-				prefixCache.get(subPath).add(node);
+				if (latestPath == null)
+					nextPath = firstPath();
+				else
+					nextPath = nextShortestPath();
+
+				done = nextPath == null;
 			}
-			else
+
+			return nextPath != null;
+		}
+
+
+		@Override
+		public PathWay next()
+		{
+			if (!hasNext())
+				throw new NoSuchElementException();
+
+			latestPath = nextPath;
+			nextPath = null;
+			searched = false;
+			accepted++;
+
+			SharedBound shared = context.getSharedBound();
+			if (shared != null)
+				shared.accept(latestPath.weight);
+
+			// a single path needs no more iterations
+			if (maxK <= 1 && !includePathScoreTies)
+				done = true;
+
+			return latestPath.toPathWay(graph, cyNodeToId);
+		}
+
+
+		/**
+		 * Returns the number of paths returned so far
+		 *
+		 * @return the number of paths
+		 */
+		public int accepted()
+		{
+			return accepted;
+		}
+
+
+		/**
+		 * Returns the number of candidate paths waiting to be accepted
+		 *
+		 * @return the number of candidates
+		 */
+		public int candidates()
+		{
+			return B == null ? 0 : B.size();
+		}
+
+
+		/**
+		 * Returns the paths left, calling the progress listener of the
+		 * context after each
+		 *
+		 * @return the paths in sorted order by cost
+		 */
+		public ArrayList<PathWay> remaining()
+		{
+			long start = System.currentTimeMillis();
+			KSPProgressListener listener = context.getProgressListener();
+
+			ArrayList<PathWay> result = new ArrayList<PathWay>();
+			while (hasNext())
+			{
+				result.add(next());
+
+				if (listener != null)
+					listener.pathAccepted(accepted, candidates(), System.currentTimeMillis() - start);
+			}
+
+			return result;
+		}
+
+
+		/**
+		 * Extends the run to more paths, or resumes it after its context was
+		 * stopped. The run goes on from the latest path returned, with the
+		 * candidates and the trie of the accepted paths, so only the new
+		 * paths are computed. The spur searches the bound on the candidates
+		 * cut short run again, with the looser bound of the larger run, and
+		 * the iteration a stopped run was in runs again. The paths are then
+		 * the same as those of a run of maxK paths, up to the order of the
+		 * paths of equal weight
+		 *
+		 * @param maxK
+		 *            the number of shortest paths, kept if not larger than
+		 *            the number of the run
+		 */
+		public void extend(int maxK)
+		{
+			this.maxK = Math.max(this.maxK, maxK);
+			context.resume();
+			if (exhausted)
+				return;
+
+			done = false;
+			if (latestPath == null || this.maxK <= 1 && !includePathScoreTies)
+				return;
+
+			// the path of a single path run came from a bidirectional search,
+			// the state of the later iterations is built around it
+			if (B == null)
 			{
-				prefixCache
-				.put(subPath, new ArrayList<CyNode>(Arrays.asList(node)));
+				treeEdges = new int[graph.nodeCount()];
+				minDists = heuristicDistances(context, source, target, treeEdges);
+				latestPath = startPaths(latestPath.edges());
 			}
+
+			B.setAccepted(maxAccepted());
+			rerunPruned = !prunedSearches.isEmpty();
 		}
 
-		// continue the loop if includePathScoreTies is true even if k is greater or equal to than maxK
-		for (int k = 1; k < maxK || includePathScoreTies; k++)
+
+		/**
+		 * Computes the shortest path, and prepares the state of the later
+		 * iterations
+		 *
+		 * @return the shortest path, null if the target is unreachable
+		 */
+		private IndexedPath firstPath()
 		{
-			// previously computed shortest path
-			PathWay latestPath = A.get(A.size() - 1);
+			context.startClock();
+
+			// a single path needs no heuristic for spur searches, so a
+			// bidirectional search replaces the distances from every node
+			if (maxK <= 1 && !includePathScoreTies)
+			{
+				int[] path = bidirectionalSearch(context, 0, source, target, null, Double.POSITIVE_INFINITY);
+				if (path == null)
+				{
+					exhausted = !context.isStopped();
+					return null;
+				}
+
+				PathStore single = new PathStore(graph);
+				return new IndexedPath(single, single.append(single.start(source), path), path.length + 1, 0);
+			}
+
+			// compute the original distance from the source to use for the
+			// heuristic function, and the tree of the shortest paths to the
+			// target the distances come from, unless an earlier run with the
+			// same weights and targets left them in the cache
+			treeEdges = new int[graph.nodeCount()];
+			minDists = heuristicDistances(context, source, target, treeEdges);
+			if (context.isOutOfTime())
+				return null;
+
+			// reads the initial shortest path to initialize Yen's off the tree,
+			// searching for it only if the tree path uses a hidden edge
+			int[] initialPath = null;
+			if (!isInf(heuristicF(minDists, source)))
+			{
+				initialPath = treePath(context, 0, source, target, treeEdges);
+				if (initialPath == null)
+					initialPath = shortestPathAStar(context, 0, source, target, minDists);
+			}
+
+			// there is no path from source to target
+			if (initialPath == null)
+			{
+				exhausted = !context.isStopped();
+				return null;
+			}
+
+			return startPaths(initialPath);
+		}
+
+
+		/**
+		 * Prepares the state of the later iterations from the shortest path
+		 *
+		 * @param initialPath
+		 *            the ids of the edges of the shortest path
+		 * @return the shortest path, in the store of the run
+		 */
+		private IndexedPath startPaths(int[] initialPath)
+		{
+			// the store of all the paths of the run, candidates share the
+			// prefix they have in common with the path they deviate from. the
+			// store keeps the edges of the paths and the cost of each prefix
+			store = new PathStore(graph);
+			IndexedPath shortestPath = new IndexedPath(store, store.append(store.start(source), initialPath),
+					initialPath.length + 1, 0);
+
+			// the heap, stores the potential k shortest paths. the pool bounds
+			// the weight of the candidates that can be accepted
+			B = new CandidatePool(maxAccepted());
+
+			// A trie of the accepted paths, the children of a prefix are the
+			// nodes that follow the prefix in the accepted paths. Used to avoid
+			// scanning all previous paths many times, which otherwise dominates
+			// runtime.
+			prefixCache = new PrefixTrie();
+			prefixCache.insert(shortestPath.nodes(), shortestPath.edges());
+
+			return shortestPath;
+		}
+
+
+		/**
+		 * Returns the bound shared with the other runs of a partitioned run
+		 *
+		 * @return the bound, positive infinity if the run is on its own
+		 */
+		private double sharedBound()
+		{
+			SharedBound shared = context.getSharedBound();
+			return shared != null ? shared.get() : Double.POSITIVE_INFINITY;
+		}
+
+
+		/**
+		 * Returns the number of candidates the run accepts at most: maxK - 1,
+		 * or as long as they tie with the maxK-th path, which is accepted
+		 * only once there are 3 paths
+		 *
+		 * @return the number of candidates
+		 */
+		private int maxAccepted()
+		{
+			return (includePathScoreTies ? Math.max(maxK, 3) : maxK) - 1;
+		}
+
+
+		/**
+		 * Runs an iteration of Yen's algorithm, from the latest path returned
+		 *
+		 * @return the next shortest path, null if there is none or the run
+		 *         has all its paths
+		 */
+		private IndexedPath nextShortestPath()
+		{
+			// continue the loop if includePathScoreTies is true even if k is greater or equal to than maxK
+			int k = accepted;
+			if (k >= maxK && !includePathScoreTies || context.isOutOfTime())
+				return null;
+
+			// the candidates of the next iteration would take more memory
+			// than the run may, the paths so far are exact
+			long maxMemory = context.getMaxCandidateMemory();
+			if (maxMemory > 0 && store.bytes() + B.bytes() + PRUNED_SEARCH_BYTES * prunedSearches.size() > maxMemory)
+			{
+				context.truncate();
+				return null;
+			}
+
+			// the run was extended, the searches cut short by the bound of
+			// the smaller run may find candidates within the new bound
+			if (rerunPruned)
+			{
+				searchPruned();
+				if (context.isStopped())
+					return null;
+
+				rerunPruned = false;
+			}
 
-			// process each node of the most recently found path, computing the
-			// shortest path that deviates at that node and adding it to the
-			// candidate heap
-			for (int i = 0; i < latestPath.size() - 1; i++)
+			if (!searched)
 			{
-				CyNode nodeSpur = latestPath.get(i);
-				List<CyNode> pathRoot = latestPath.nodeList.subList(0, i + 1);
+				searchDeviations();
+				if (context.isStopped())
+					return null;
+
+				searched = true;
+			}
+
+			// terminates early if there are no more paths found from the
+			// source to the target. the searches cut short by the bound may
+			// still find paths if the run is extended
+			if (B.isEmpty())
+			{
+				exhausted = prunedSearches.isEmpty();
+				return null;
+			}
+
+			// If the ties stops then stop the run, the next shortest path
+			// stays a candidate in case the run is extended
+			if (k >= maxK && accepted > 2 && latestPath.weight != B.peek().weight)
+				return null;
+
+			// the next path is heavier than the paths the other runs of a
+			// partitioned run found, so it is not among the paths of the
+			// whole run, nor are the later paths of this run
+			if (B.peek().weight > sharedBound())
+				return null;
+
+			// accepts the next shortest path on the candidates heap, which
+			// is necessarily the next shortest path
+			IndexedPath newShortest = B.poll();
+
+			// adds this to the list of prefixes for efficient lookup later
+			prefixCache.insert(newShortest.nodes(), newShortest.edges());
+
+			return newShortest;
+		}
+
+
+		/**
+		 * Runs the spur searches of an iteration of Yen's algorithm, from
+		 * the latest path returned, and adds the paths they find to the
+		 * candidates
+		 */
+		private void searchDeviations()
+		{
+			// previously computed shortest path
+			int[] latestNodes = latestPath.nodes();
+			ArrayList<PrunedSearch> cutShort = new ArrayList<PrunedSearch>();
+
+			// the spur searches at the nodes before the deviation of the
+			// latest path were already run for the path it deviates from,
+			// with the same prefix and fewer hidden edges, and added their
+			// paths to the candidates then (Lawler's refinement of Yen's
+			// algorithm). only the nodes from the deviation on are searched
+			int deviation = latestPath.deviation;
+
+			// hides the edges that the spur search at each node of the most
+			// recently found path must not use. walks the trie alongside the
+			// path, prefixNode being the trie node of latestPath[:i+1]
+			int prefixNode = prefixCache.child(PrefixTrie.ROOT, latestNodes[0]);
+			for (int i = 0; i < latestNodes.length - 1; i++)
+			{
+				int nodeSpur = latestNodes[i];
 
 				// hide edges incoming to x until iteration k is over to avoid
 				// finding cycles. note that this effect is cumulative, meaning
 				// that while processing the current node in the path, all
 				// incoming edges to this node and all previous nodes have
 				// been hidden
-				List<CyEdge> inEdges =
-						network.getAdjacentEdgeList(nodeSpur, CyEdge.Type.INCOMING);
-				for (CyEdge inEdge : inEdges)
-				{
-					hiddenEdges.add(inEdge);
-				}
+				context.hideNode(nodeSpur, i);
 
 				// for each previously-found shortest path P_j with the same
 				// first i nodes as the first i nodes of prevPath, hide the
 				// edge from x to the i+1 node in P_j to ensure we don't
 				// re-find a previously found path. Lookup the prefixes in a
 				// cache to disallow them. Requires more memory to store the
-				// cache, but saves scanning the list of found paths
-				for (CyNode repNode : prefixCache
-						.get(latestPath.nodeList.subList(0, i + 1)))
+				// cache, but saves scanning the list of found paths. there is
+				// no search at the nodes before the deviation, and the later
+				// searches can't reach x anyway
+				if (i >= deviation)
 				{
-					CyEdge repEdge = getEdge(network, nodeSpur, repNode);
+					for (int c = prefixCache.firstChild(prefixNode); c != PrefixTrie.NONE; c = prefixCache.nextSibling(c))
+					{
+						context.hideEdge(prefixCache.edgeId(c), i);
+					}
+				}
+
+				prefixNode = prefixCache.child(prefixNode, latestNodes[i + 1]);
+			}
+
+			// a candidate heavier than the bound of the pool is never
+			// accepted, so each spur search stops once the paths it can
+			// find are heavier than the bound less the cost of the prefix
+			int[] latestEntries = latestPath.entries();
+			double bound = Math.min(B.bound(), sharedBound());
+			double[] spurBounds = new double[latestNodes.length - 1];
+			for (int i = deviation; i < spurBounds.length; i++)
+				spurBounds[i] = spurBound(bound, store.cost(latestEntries[i]));
+
+			// computes the shortest path that deviates at each node of the
+			// most recently found path, from its deviation on
+			int[][] spurPaths = spurSearches(context, latestNodes, deviation, target, minDists, treeEdges, spurBounds);
+
+			// adds the deviations to the candidate heap, in the order of the
+			// spur nodes so the result doesn't depend on how the searches ran
+			for (int i = deviation; i < spurPaths.length; i++)
+			{
+				int[] pathSpur = spurPaths[i];
+
+				// short circuit if the target node was unreachable, which is
+				// expected to happen as we remove edges
+				if (pathSpur != null)
+				{
+					// concatenates prevPath[:i+1] and the shortest path from
+					// nodeSpur to the target, and add this path to candidates.
+					// the candidate points to the entry of nodeSpur in the
+					// latest path, so only the spur path is stored, and its
+					// cost is the cost of the prefix plus the spur edges
+					int storeSize = store.size();
+					int last = store.append(latestEntries[i], pathSpur);
+
+					IndexedPath potentialK = new IndexedPath(store, last, i + 1 + pathSpur.length, i);
+					addCandidate(potentialK, storeSize, new PrunedSearch(latestPath, i));
+				}
+				else if (spurBounds[i] != Double.POSITIVE_INFINITY)
+					cutShort.add(new PrunedSearch(latestPath, i));
+			}
+
+			context.resetHiddenEdges();
+
+			// the searches of a stopped run may have stopped before their
+			// path, so the best candidate is not necessarily the next path.
+			// the whole iteration runs again if the run is resumed
+			if (!context.isStopped())
+				prunedSearches.addAll(cutShort);
+		}
+
+
+		/**
+		 * Adds a candidate to the pool, and evicts the candidates the run can
+		 * no longer accept. An evicted candidate is the path its spur search
+		 * would not have found under the tighter bound, so the search is kept
+		 * with those cut short by the bound, and finds it again if the run is
+		 * extended
+		 *
+		 * @param path
+		 *            the candidate, its entries the latest in the store
+		 * @param storeSize
+		 *            the size of the store before the entries of the
+		 *            candidate
+		 * @param search
+		 *            the spur search that found the candidate
+		 */
+		private void addCandidate(IndexedPath path, int storeSize, PrunedSearch search)
+		{
+			// the pool skips the path if it is already a candidate, then the
+			// entries just stored are not needed
+			if (!B.add(path))
+			{
+				store.truncate(storeSize);
+				return;
+			}
+
+			for (IndexedPath evicted = B.evict(); evicted != null; evicted = B.evict())
+			{
+				// the entries of the candidate just added are not needed
+				// either. the entries of an older candidate stay in the
+				// store, and its search deviates from the prefix it shares
+				// with the path it was built from
+				if (evicted == path)
+				{
+					store.truncate(storeSize);
+					prunedSearches.add(search);
+				}
+				else
+					prunedSearches.add(new PrunedSearch(evicted, evicted.deviation));
+			}
+		}
+
+
+		/**
+		 * Runs the spur searches cut short by the bound on the candidates
+		 * again, each with the nodes and edges its iteration hid and the
+		 * edges to the paths accepted since then. The paths they find are
+		 * the candidates that deviate from the same prefix as the paths the
+		 * searches would have found without the bound. The searches still
+		 * cut short are kept for a later extension
+		 */
+		private void searchPruned()
+		{
+			ArrayList<PrunedSearch> searches = prunedSearches;
+			prunedSearches = new ArrayList<PrunedSearch>();
+
+			for (int s = 0; s < searches.size(); s++)
+			{
+				PrunedSearch search = searches.get(s);
+				if (context.isStopped())
+				{
+					prunedSearches.add(search);
+					continue;
+				}
+
+				int[] nodes = search.path.nodes();
+				int i = search.spurIndex;
+
+				// hides the nodes of the prefix and the edges from the spur
+				// node to the accepted paths with the same prefix
+				int prefixNode = prefixCache.child(PrefixTrie.ROOT, nodes[0]);
+				for (int j = 0; j < i; j++)
+				{
+					context.hideNode(nodes[j], j);
+					prefixNode = prefixCache.child(prefixNode, nodes[j + 1]);
+				}
+				context.hideNode(nodes[i], i);
+				for (int c = prefixCache.firstChild(prefixNode); c != PrefixTrie.NONE; c = prefixCache.nextSibling(c))
+					context.hideEdge(prefixCache.edgeId(c), i);
+
+				int spurEntry = search.path.entries()[i];
+				double spurBound = spurBound(Math.min(B.bound(), sharedBound()), store.cost(spurEntry));
+				int[] pathSpur = spurSearch(context, i, nodes[i], target, minDists, treeEdges, spurBound);
+				context.resetHiddenEdges();
+
+				if (pathSpur != null)
+				{
+					int storeSize = store.size();
+					int last = store.append(spurEntry, pathSpur);
+					addCandidate(new IndexedPath(store, last, i + 1 + pathSpur.length, i), storeSize, search);
+				}
+				else if (spurBound != Double.POSITIVE_INFINITY || context.isStopped())
+					prunedSearches.add(search);
+			}
+		}
+	}
+
+
+	/**
+	 * Runs the spur searches of an iteration of Yen's algorithm, one for each
+	 * node of the most recently found path from its deviation on but the
+	 * target. The searches are independent given the hidden nodes and edges
+	 * of the iteration, so they run in parallel on the spur search pool of
+	 * the context if it has one
+	 *
+	 * @param context
+	 *            the context of the run
+	 * @param latestPath
+	 *            the ids of the nodes of the most recently found path
+	 * @param first
+	 *            the index of the first spur node to search from
+	 * @param target
+	 *            the id of the target node
+	 * @param minDists
+	 *            the minimum distance of each node from the target
+	 * @param treeEdges
+	 *            the edge from each node towards the target in the tree of
+	 *            the shortest paths to the target, -1 if none
+	 * @param spurBounds
+	 *            the bound on the cost of the path from each spur node
+	 * @return the edge ids of the path from each spur node to the target,
+	 *         indexed by spur index, null if there is none within the
+	 *         bound or the spur node is before the first
+	 */
+	private static int[][] spurSearches(
+			final KSPContext context,
+			final int[] latestPath,
+			final int first,
+			final int target,
+			final double[] minDists,
+			final int[] treeEdges,
+			final double[] spurBounds)
+	{
+		int[][] spurPaths = new int[latestPath.length - 1][];
+		ForkJoinPool pool = context.getSpurSearchPool();
+
+		if (pool == null || spurPaths.length - first < 2)
+		{
+			for (int i = first; i < spurPaths.length; i++)
+				spurPaths[i] = spurSearch(context, i, latestPath[i], target, minDists, treeEdges, spurBounds[i]);
+
+			return spurPaths;
+		}
+
+		ArrayList<Callable<int[]>> searches = new ArrayList<Callable<int[]>>(spurPaths.length - first);
+		for (int i = first; i < spurPaths.length; i++)
+		{
+			final int spurIndex = i;
+			searches.add(new Callable<int[]>() {
+				@Override
+				public int[] call()
+				{
+					return spurSearch(context, spurIndex, latestPath[spurIndex], target, minDists, treeEdges,
+							spurBounds[spurIndex]);
+				}
+			});
+		}
+
+		List<Future<int[]>> results = pool.invokeAll(searches);
+		try
+		{
+			for (int i = first; i < spurPaths.length; i++)
+				spurPaths[i] = results.get(i - first).get();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while running the spur searches", e);
+		}
+		catch (ExecutionException e)
+		{
+			throw new IllegalStateException("A spur search failed", e.getCause());
+		}
+
+		return spurPaths;
+	}
+
+
+	/**
+	 * Computes the shortest path from a spur node to the target that doesn't
+	 * use the edges hidden at a spur index. No such path is shorter than the
+	 * weight of its first edge plus the distance from the head of the edge
+	 * in the whole network. The edge from the latest path to the spur node
+	 * is always hidden, so the tree path of the spur node itself rarely
+	 * helps, but if the tree path from the head of the unhidden edge with
+	 * the smallest such bound uses no hidden edge or node, and no other edge
+	 * has that bound, the edge followed by that tree path is a shortest path
+	 * and is returned without searching. Otherwise the path is searched with A*, which with the node
+	 * classification algorithm stops at the first node whose tree path is
+	 * open. The search stops as soon as the path is known to be heavier than
+	 * the bound
+	 *
+	 * @param context
+	 *            the context of the run
+	 * @param spurIndex
+	 *            the spur index of the search in the current iteration
+	 * @param source
+	 *            the id of the spur node
+	 * @param target
+	 *            the id of the target node
+	 * @param minDists
+	 *            the minimum distance of each node from the target
+	 * @param treeEdges
+	 *            the edge from each node towards the target in the tree of
+	 *            the shortest paths to the target, -1 if none
+	 * @param bound
+	 *            the bound on the cost of the path
+	 * @return the ids of the edges of a path from source to target, null if
+	 *         there is none within the bound
+	 */
+	private static int[] spurSearch(
+			KSPContext context,
+			int spurIndex,
+			int source,
+			int target,
+			double[] minDists,
+			int[] treeEdges,
+			double bound)
+	{
+		KSPStatistics statistics = context.getStatistics();
+		statistics.countSpurSearch();
+
+		// the target can't be reached even with no hidden edges
+		if (isInf(heuristicF(minDists, source)))
+			return null;
+
+		// finds the unhidden edge with the smallest bound on the rest of
+		// the path
+		GraphSnapshot graph = context.getGraph();
+		int firstEdge = -1;
+		double firstBound = INFINITY;
+		boolean tied = false;
+		for (int slot = graph.outBegin(source); slot < graph.outEnd(source); slot++)
+		{
+			int nextNode = graph.outTarget(slot);
+			if (isInf(heuristicF(minDists, nextNode))
+					|| context.isHidden(graph.outEdge(slot), nextNode, spurIndex))
+				continue;
+
+			double edgeBound = graph.outWeight(slot) + heuristicF(minDists, nextNode);
+			if (firstEdge == -1 || edgeBound < firstBound)
+			{
+				firstEdge = graph.outEdge(slot);
+				firstBound = edgeBound;
+				tied = false;
+			}
+			else if (edgeBound == firstBound)
+				tied = true;
+		}
+
+		// every edge towards the target is hidden
+		if (firstEdge == -1)
+			return null;
+
+		// even the lightest path possible is too heavy
+		if (firstBound > bound)
+		{
+			statistics.countPrunedSearch();
+			return null;
+		}
+
+		// several edges may start a shortest path, the search picks one of
+		// them in its own order, as it does without the tree
+		int[] treePath = tied ? null : treePath(context, spurIndex, graph.edgeTarget(firstEdge), target, treeEdges);
+		if (treePath != null)
+		{
+			statistics.countTreePath();
+			int[] path = new int[treePath.length + 1];
+			path[0] = firstEdge;
+			System.arraycopy(treePath, 0, path, 1, treePath.length);
+			return path;
+		}
+
+		if (context.getAlgorithm() == KSPAlgorithm.NODE_CLASSIFICATION)
+		{
+			statistics.countClassifiedSearch();
+			return classifiedSearch(context, spurIndex, source, target, minDists, treeEdges, bound);
+		}
+
+		statistics.countAStarSearch();
+		return shortestPathAStar(context, spurIndex, source, target, minDists, bound);
+	}
+
+
+	/**
+	 * Computes the shortest path from a spur node to the target with the node
+	 * classification of Feng's algorithm. A node is green if its path to the
+	 * target in the tree of the shortest paths uses no hidden edge or node,
+	 * and yellow otherwise. The heuristic of a green node is its exact
+	 * distance to the target, so A* stops at the first green node it
+	 * processes, and the path is the one A* found to it followed by its tree
+	 * path. Most spur searches only explore the few yellow nodes around the
+	 * spur node, the nodes whose tree paths run through the hidden prefix
+	 *
+	 * @param context
+	 *            the context of the run
+	 * @param spurIndex
+	 *            the spur index of the search in the current iteration
+	 * @param source
+	 *            the id of the spur node
+	 * @param target
+	 *            the id of the target node
+	 * @param minDists
+	 *            the minimum distance of each node from the target
+	 * @param treeEdges
+	 *            the edge from each node towards the target in the tree of
+	 *            the shortest paths to the target, -1 if none
+	 * @param bound
+	 *            the bound on the cost of the path
+	 * @return the ids of the edges of a path from source to target, null if
+	 *         there is none within the bound
+	 */
+	private static int[] classifiedSearch(
+			KSPContext context,
+			int spurIndex,
+			int source,
+			int target,
+			double[] minDists,
+			int[] treeEdges,
+			double bound)
+	{
+		if (source == target)
+			return new int[0];
+
+		SearchSpace space = context.acquireSearchSpace();
+		try
+		{
+			return shortestPathAStar(context, space, spurIndex, source, target, minDists, treeEdges, bound);
+		}
+		finally
+		{
+			context.releaseSearchSpace(space);
+		}
+	}
+
+
+	/**
+	 * Classifies a node as green if its path to the target in the tree of the
+	 * shortest paths uses no hidden edge or node, yellow otherwise. The nodes
+	 * on the tree path share the class of the node past them, so the walk
+	 * stops at the first node already classified by the search and stamps
+	 * every node it walked
+	 *
+	 * @param context
+	 *            the context of the run
+	 * @param space
+	 *            the memory of the search
+	 * @param epoch
+	 *            the epoch of the search
+	 * @param spurIndex
+	 *            the spur index of the search in the current iteration
+	 * @param node
+	 *            the id of the node to classify
+	 * @param target
+	 *            the id of the target node, the root of the tree
+	 * @param treeEdges
+	 *            the edge from each node towards the target in the tree, -1
+	 *            if none
+	 * @return true if the node is green, false if it is yellow
+	 */
+	private static boolean isGreen(
+			KSPContext context,
+			SearchSpace space,
+			int epoch,
+			int spurIndex,
+			int node,
+			int target,
+			int[] treeEdges)
+	{
+		GraphSnapshot graph = context.getGraph();
+		int[] classStamps = space.classStamps;
+		boolean[] green = space.green;
+
+		// walks the tree path until its class is known
+		boolean isGreen;
+		int end = node;
+		while (true)
+		{
+			if (classStamps[end] == epoch)
+			{
+				isGreen = green[end];
+				break;
+			}
+			if (end == target)
+			{
+				isGreen = true;
+				break;
+			}
+
+			int edge = treeEdges[end];
+			if (edge == -1 || context.isHidden(edge, graph.edgeTarget(edge), spurIndex))
+			{
+				isGreen = false;
+				break;
+			}
+
+			end = graph.edgeTarget(edge);
+		}
+
+		// the walked nodes share the class, including the node the walk
+		// stopped at
+		for (int iter = node; iter != end; iter = graph.edgeTarget(treeEdges[iter]))
+		{
+			classStamps[iter] = epoch;
+			green[iter] = isGreen;
+		}
+		classStamps[end] = epoch;
+		green[end] = isGreen;
+
+		return isGreen;
+	}
+
+
+	/**
+	 * Returns the bound on the cost of the path from a spur node, such that
+	 * the candidate made of the prefix and the path isn't heavier than the
+	 * bound on the candidates. The bound is loosened by a relative epsilon so
+	 * that a candidate tying with the bound isn't lost to the rounding of
+	 * the sums
+	 *
+	 * @param bound
+	 *            the bound on the weight of the candidates
+	 * @param prefixCost
+	 *            the cost of the prefix up to the spur node
+	 * @return the bound on the cost of the path from the spur node
+	 */
+	private static double spurBound(double bound, double prefixCost)
+	{
+		return bound + 1E-9 * Math.max(1., Math.abs(bound)) - prefixCost;
+	}
+
+
+	/**
+	 * Reads the path from a node to the target off the tree of the shortest
+	 * paths to the target, checking each edge of the path against the hidden
+	 * nodes and edges
+	 *
+	 * @param context
+	 *            the context of the run
+	 * @param spurIndex
+	 *            the spur index of the search in the current iteration
+	 * @param source
+	 *            the id of the node
+	 * @param target
+	 *            the id of the target node, the root of the tree
+	 * @param treeEdges
+	 *            the edge from each node towards the target in the tree, -1
+	 *            if none
+	 * @return the ids of the edges of the tree path, null if there is none
+	 *         or it uses a hidden edge or node
+	 */
+	private static int[] treePath(
+			KSPContext context,
+			int spurIndex,
+			int source,
+			int target,
+			int[] treeEdges)
+	{
+		GraphSnapshot graph = context.getGraph();
+
+		// counts the edges of the path while checking them
+		int length = 0;
+		for (int node = source; node != target; node = graph.edgeTarget(treeEdges[node]))
+		{
+			int edge = treeEdges[node];
+			if (edge == -1 || context.isHidden(edge, graph.edgeTarget(edge), spurIndex))
+				return null;
+
+			length++;
+		}
+
+		// constructs the path
+		int[] edgeList = new int[length];
+		int node = source;
+		for (int i = 0; i < length; i++)
+		{
+			edgeList[i] = treeEdges[node];
+			node = graph.edgeTarget(edgeList[i]);
+		}
+
+		return edgeList;
+	}
+
+
+	/**
+	 * An implementation of the A* algorithm. Computes exact shortest paths in
+	 * the network, utilizing the fact that the heuristic function is monotonic.
+	 * Several searches can run at the same time on the same context
+	 *
+	 * @param context
+	 *            the context of the run, holds the snapshot of the supplied
+	 *            network and the hidden nodes and edges
+	 * @param spurIndex
+	 *            the spur index of the search in the current iteration, the
+	 *            search doesn't use the edges hidden at this spur index
+	 * @param source
+	 *            the id of the source node
+	 * @param target
+	 *            the id of the target node
+	 * @param minDists
+	 *            the minimum distance of each node from the target
+	 * @return the ids of the edges of a path from source to target, null if
+	 *         there is none
+	 */
+	public static int[] shortestPathAStar(
+			KSPContext context,
+			int spurIndex,
+			int source,
+			int target,
+			final double[] minDists)
+	{
+		return shortestPathAStar(context, spurIndex, source, target, minDists, Double.POSITIVE_INFINITY);
+	}
+
+
+	/**
+	 * An implementation of the A* algorithm that gives up once the shortest
+	 * path is known to be heavier than a bound. Several searches can run at
+	 * the same time on the same context
+	 *
+	 * @param context
+	 *            the context of the run, holds the snapshot of the supplied
+	 *            network and the hidden nodes and edges
+	 * @param spurIndex
+	 *            the spur index of the search in the current iteration, the
+	 *            search doesn't use the edges hidden at this spur index
+	 * @param source
+	 *            the id of the source node
+	 * @param target
+	 *            the id of the target node
+	 * @param minDists
+	 *            the minimum distance of each node from the target
+	 * @param bound
+	 *            the bound on the cost of the path
+	 * @return the ids of the edges of a path from source to target, null if
+	 *         there is none within the bound
+	 */
+	public static int[] shortestPathAStar(
+			KSPContext context,
+			int spurIndex,
+			int source,
+			int target,
+			final double[] minDists,
+			double bound)
+	{
+		// if source==target:
+		// return ({source:0}, {source:[source]})
+		if (source == target)
+		{
+			return new int[0];
+		}
+
+		// the memory of the search is reused from the previous searches of
+		// the run, each search running at the same time takes its own
+		SearchSpace space = context.acquireSearchSpace();
+		try
+		{
+			return shortestPathAStar(context, space, spurIndex, source, target, minDists, null, bound);
+		}
+		finally
+		{
+			context.releaseSearchSpace(space);
+		}
+	}
+
+
+	/**
+	 * Runs A* in a search space taken from the context. Given the tree of the
+	 * shortest paths to the target, the search stops at the first processed
+	 * node whose tree path is open, see classifiedSearch
+	 *
+	 * @param context
+	 *            the context of the run
+	 * @param space
+	 *            the memory of the search
+	 * @param spurIndex
+	 *            the spur index of the search in the current iteration
+	 * @param source
+	 *            the id of the source node
+	 * @param target
+	 *            the id of the target node
+	 * @param minDists
+	 *            the minimum distance of each node from the target
+	 * @param treeEdges
+	 *            the edge from each node towards the target in the tree of
+	 *            the shortest paths to the target, null to search up to the
+	 *            target
+	 * @param bound
+	 *            the bound on the cost of the path
+	 * @return the ids of the edges of a path from source to target, null if
+	 *         there is none within the bound
+	 */
+	private static int[] shortestPathAStar(
+			KSPContext context,
+			SearchSpace space,
+			int spurIndex,
+			int source,
+			int target,
+			double[] minDists,
+			int[] treeEdges,
+			double bound)
+	{
+		GraphSnapshot graph = context.getGraph();
+
+		// the costs are whole numbers of edges, the search runs on integers
+		if (graph.isHopCount())
+			return hopCountSearch(context, space, spurIndex, source, target, minDists, treeEdges, bound);
+
+		// a node has been seen (processed) in this search only if it is
+		// stamped with the epoch of this search
+		int epoch = space.nextEpoch();
+		// final distances, and whether or not each node has been processed
+		double[] distances = space.distances;
+		int[] processed = space.processedStamps;
+		// the best distance seen so far to each node, and the edge leading
+		// to each node in the path
+		double[] seen = space.seen;
+		int[] predEdges = space.predEdges;
+		int[] seenStamps = space.seenStamps;
+		seen[source] = 0.;
+		predEdges[source] = -1;
+		seenStamps[source] = epoch;
+
+		// heap of nodes on the border to process, keyed by heuristic distance
+		IndexedHeap fringe = space.fringe;
+		fringe.insert(source, heuristicF(minDists, source));
+
+		// real-valued edge weights can cause the search to fail due to
+		// accumulated error summing along the path. test with a relative
+		// epsilon to catch only the 'real' errors
+		final double REL_EPS = 1E-10;
+
+		// the number of nodes expanded, to check the time budget now and then
+		int expanded = 0;
+
+		// iteratively search the graph outward until we've processed all nodes
+		while (!fringe.isEmpty())
+		{
+			// the key of a node is a lower bound on the cost of the paths
+			// through it, so there is no path within the bound left
+			if (fringe.peekKey() > bound)
+			{
+				context.getStatistics().countPrunedSearch();
+				return null;
+			}
+
+			// a stopped run accepts no more paths, the search is dropped
+			if (context.isStopped() || (++expanded & BUDGET_CHECK_MASK) == 0 && context.isOutOfTime())
+				return null;
+
+			int currNode = fringe.poll();
+
+			// process this node, this is necessarily the best possible path
+			// to it. a node is in the heap at most once, so it is never
+			// polled again once processed
+			processed[currNode] = epoch;
+			distances[currNode] = seen[currNode];
+
+			// check for a solution
+			if (currNode == target)
+				break;
+
+			// the key of a green node is the cost of the path through its
+			// tree path, and no other path is lighter. no node of the tree
+			// path was processed before, it would have been green too
+			if (treeEdges != null && isGreen(context, space, epoch, spurIndex, currNode, target, treeEdges))
+			{
+				int[] head = constructEdgeList(graph, predEdges, source, currNode);
+				int[] tail = treePath(context, spurIndex, currNode, target, treeEdges);
+				int[] path = Arrays.copyOf(head, head.length + tail.length);
+				System.arraycopy(tail, 0, path, head.length, tail.length);
+				return path;
+			}
+
+			// examine all neighbors to this node and consider adding them to
+			// the fringe
+			for (int slot = graph.outBegin(currNode); slot < graph.outEnd(currNode); slot++)
+			{
+				// doesn't consider edges that are hidden. uses this structure
+				// of hiding edges because manipulating the graph completely
+				// dominates runtime in cytoscape
+				int nextNode = graph.outTarget(slot);
+				int nextEdge = graph.outEdge(slot);
+				if (context.isHidden(nextEdge, nextNode, spurIndex))
+				{
+					continue;
+				}
+
+				// the actual distance to the node from the source
+				double nextActDist =
+						distances[currNode] + graph.outWeight(slot);
+
+				// the heuristic function gives a lower bound on the path
+				// length to go the rest of the way to the finish from the start
+				double nextHeurDist =
+						nextActDist + heuristicF(minDists, nextNode);
+
+				// if the heuristic function returns infinity, then the target
+				// is necessarily unreachable, so don't expand the search along
+				// this edge
+				if (isInf(heuristicF(minDists, nextNode)))
+					continue;
+
+				// if we've already processed the neighbor, then this can't
+				// possibly be a better path, assuming the problem is
+				// well-formed
+				if (processed[nextNode] == epoch)
+				{
+					// verify that the graph and heuristic don't break the
+					// search property
+					if ((nextActDist * (1 + REL_EPS)) < distances[nextNode])
+					{
+						JOptionPane.showMessageDialog(
+								null,
+								"Contradictory search path. Bad heuristic? Negative weights?");
+						return null;
+					}
+				}
+				// if this node hasn't already been processed, we only add it to
+				// the heap if this path to it is an improvement over the
+				// previous path. the heuristic of a node is fixed, so a better
+				// path to a node already in the heap is a decrease of its key
+				else if (seenStamps[nextNode] != epoch || nextActDist < seen[nextNode])
+				{
+					seen[nextNode] = nextActDist;
+					seenStamps[nextNode] = epoch;
+					fringe.push(nextNode, nextHeurDist);
+					predEdges[nextNode] = nextEdge;
+				}
+			}
+		}
+
+		// builds the path and returns it
+		if (processed[target] != epoch)
+			return null;
+
+		return constructEdgeList(graph, predEdges, source, target);
+	}
+
+
+	/**
+	 * Runs A* on a snapshot whose edges weigh 0 or 1, see GraphSnapshot.isHopCount.
+	 * The costs and the keys of the nodes are numbers of edges, so the border
+	 * of the search is kept in a bucket queue rather than a heap, and no
+	 * rounding error can reach the comparisons of the costs. Otherwise the
+	 * search is the same as shortestPathAStar
+	 *
+	 * @param context
+	 *            the context of the run
+	 * @param space
+	 *            the memory of the search
+	 * @param spurIndex
+	 *            the spur index of the search in the current iteration
+	 * @param source
+	 *            the id of the source node
+	 * @param target
+	 *            the id of the target node
+	 * @param minDists
+	 *            the minimum distance of each node from the target, whole
+	 *            numbers of edges
+	 * @param treeEdges
+	 *            the edge from each node towards the target in the tree of
+	 *            the shortest paths to the target, null to search up to the
+	 *            target
+	 * @param bound
+	 *            the bound on the cost of the path
+	 * @return the ids of the edges of a path from source to target, null if
+	 *         there is none within the bound
+	 */
+	private static int[] hopCountSearch(
+			KSPContext context,
+			SearchSpace space,
+			int spurIndex,
+			int source,
+			int target,
+			double[] minDists,
+			int[] treeEdges,
+			double bound)
+	{
+		GraphSnapshot graph = context.getGraph();
+
+		int epoch = space.nextEpoch();
+		int[] hops = space.hops;
+		int[] processed = space.processedStamps;
+		int[] predEdges = space.predEdges;
+		int[] seenStamps = space.seenStamps;
+		hops[source] = 0;
+		predEdges[source] = -1;
+		seenStamps[source] = epoch;
+
+		// no path costs a fraction of an edge, so the bound is rounded down
+		int limit = bound >= Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) Math.floor(bound);
+
+		BucketQueue fringe = space.buckets;
+		fringe.push(source, (int) heuristicF(minDists, source));
+
+		// the number of nodes expanded, to check the time budget now and then
+		int expanded = 0;
+
+		while (!fringe.isEmpty())
+		{
+			// the key of a node is a lower bound on the cost of the paths
+			// through it, so there is no path within the bound left
+			if (fringe.peekKey() > limit)
+			{
+				context.getStatistics().countPrunedSearch();
+				return null;
+			}
+
+			// a stopped run accepts no more paths, the search is dropped
+			if (context.isStopped() || (++expanded & BUDGET_CHECK_MASK) == 0 && context.isOutOfTime())
+				return null;
+
+			int currNode = fringe.poll();
+			processed[currNode] = epoch;
+
+			if (currNode == target)
+				break;
+
+			// a green node ends the search, see classifiedSearch
+			if (treeEdges != null && isGreen(context, space, epoch, spurIndex, currNode, target, treeEdges))
+			{
+				int[] head = constructEdgeList(graph, predEdges, source, currNode);
+				int[] tail = treePath(context, spurIndex, currNode, target, treeEdges);
+				int[] path = Arrays.copyOf(head, head.length + tail.length);
+				System.arraycopy(tail, 0, path, head.length, tail.length);
+				return path;
+			}
+
+			for (int slot = graph.outBegin(currNode); slot < graph.outEnd(currNode); slot++)
+			{
+				int nextNode = graph.outTarget(slot);
+				if (processed[nextNode] == epoch || isInf(heuristicF(minDists, nextNode))
+						|| context.isHidden(graph.outEdge(slot), nextNode, spurIndex))
+					continue;
+
+				// the heuristic is consistent, so the key of the neighbor is
+				// never below the key of the node, and the buckets stay monotone
+				int nextHops = hops[currNode] + (int) graph.outWeight(slot);
+				if (seenStamps[nextNode] != epoch || nextHops < hops[nextNode])
+				{
+					hops[nextNode] = nextHops;
+					seenStamps[nextNode] = epoch;
+					fringe.push(nextNode, nextHops + (int) heuristicF(minDists, nextNode));
+					predEdges[nextNode] = graph.outEdge(slot);
+				}
+			}
+		}
+
+		if (processed[target] != epoch)
+			return null;
+
+		return constructEdgeList(graph, predEdges, source, target);
+	}
+
+
+	/**
+	 * Computes the shortest path from a source to a sink in the supplied
+	 * network with a bidirectional Dijkstra, searching forward from the
+	 * source and backward from the target at the same time. The searches
+	 * stop once the sum of the smallest distances left in both is no shorter
+	 * than the best path through a node they both reached, which settles far
+	 * fewer nodes than a forward search on low diameter networks
+	 *
+	 * @param graph
+	 *            the snapshot of the network
+	 * @param source
+	 *            the id of the source node of the graph
+	 * @param target
+	 *            the id of the target node of the graph
+	 * @return the ids of the edges of the path from source to target, null
+	 *         if there is none
+	 */
+	public static int[] bidirectionalDijkstra(GraphSnapshot graph, int source, int target)
+	{
+		if (source == target)
+		{
+			return new int[0];
+		}
+
+		return bidirectionalSearch(graph, null, new SearchSpace(graph.nodeCount()), new SearchSpace(graph.nodeCount()),
+				0, source, target, null, Double.POSITIVE_INFINITY);
+	}
+
+
+	/**
+	 * Computes the shortest path from a source to a target that doesn't use
+	 * the edges hidden at a spur index, searching forward from the source and
+	 * backward from the target at the same time. The forward search is an A*
+	 * search if the distances to the target are given, and a Dijkstra search
+	 * otherwise. Several searches can run at the same time on the same
+	 * context
+	 *
+	 * @param context
+	 *            the context of the run, holds the snapshot of the supplied
+	 *            network and the hidden nodes and edges
+	 * @param spurIndex
+	 *            the spur index of the search in the current iteration, the
+	 *            search doesn't use the edges hidden at this spur index
+	 * @param source
+	 *            the id of the source node
+	 * @param target
+	 *            the id of the target node
+	 * @param minDists
+	 *            the minimum distance of each node from the target, null to
+	 *            search without a heuristic
+	 * @param bound
+	 *            the bound on the cost of the path
+	 * @return the ids of the edges of a path from source to target, null if
+	 *         there is none within the bound
+	 */
+	public static int[] bidirectionalSearch(
+			KSPContext context,
+			int spurIndex,
+			int source,
+			int target,
+			double[] minDists,
+			double bound)
+	{
+		if (source == target)
+		{
+			return new int[0];
+		}
+
+		// each direction takes its own search space
+		SearchSpace forward = context.acquireSearchSpace();
+		SearchSpace backward = context.acquireSearchSpace();
+		try
+		{
+			return bidirectionalSearch(context.getGraph(), context, forward, backward, spurIndex, source, target, minDists,
+					bound);
+		}
+		finally
+		{
+			context.releaseSearchSpace(forward);
+			context.releaseSearchSpace(backward);
+		}
+	}
+
+
+	/**
+	 * Runs the bidirectional search in two search spaces
+	 *
+	 * @param graph
+	 *            the snapshot of the network
+	 * @param context
+	 *            the context of the run, null if no edge is hidden
+	 * @param forward
+	 *            the memory of the search from the source
+	 * @param backward
+	 *            the memory of the search from the target
+	 * @param spurIndex
+	 *            the spur index of the search in the current iteration
+	 * @param source
+	 *            the id of the source node
+	 * @param target
+	 *            the id of the target node
+	 * @param minDists
+	 *            the minimum distance of each node from the target, null to
+	 *            search without a heuristic
+	 * @param bound
+	 *            the bound on the cost of the path
+	 * @return the ids of the edges of a path from source to target, null if
+	 *         there is none within the bound
+	 */
+	private static int[] bidirectionalSearch(
+			GraphSnapshot graph,
+			KSPContext context,
+			SearchSpace forward,
+			SearchSpace backward,
+			int spurIndex,
+			int source,
+			int target,
+			double[] minDists,
+			double bound)
+	{
+		int forwardEpoch = forward.nextEpoch();
+		forward.seen[source] = 0.;
+		forward.predEdges[source] = -1;
+		forward.seenStamps[source] = forwardEpoch;
+		forward.fringe.insert(source, minDists != null ? heuristicF(minDists, source) : 0.);
+
+		// the backward search keeps the edge from each node towards the
+		// target in predEdges
+		int backwardEpoch = backward.nextEpoch();
+		backward.seen[target] = 0.;
+		backward.predEdges[target] = -1;
+		backward.seenStamps[target] = backwardEpoch;
+		backward.fringe.insert(target, 0.);
+
+		// the cost of the best path through an edge scanned by either search
+		// from a node the other search has reached, and that edge
+		double best = Double.POSITIVE_INFINITY;
+		int meetEdge = -1;
+
+		// the number of nodes expanded, to check the time budget now and then
+		int expanded = 0;
+
+		while (!forward.fringe.isEmpty() && !backward.fringe.isEmpty())
+		{
+			// without a heuristic, no path left is shorter than the sum of
+			// the smallest distances of both searches. the keys of the A*
+			// search already bound the whole path, and so do the backward
+			// distances on their own
+			double forwardKey = forward.fringe.peekKey();
+			double backwardKey = backward.fringe.peekKey();
+			double lowerBound = minDists != null ? Math.max(forwardKey, backwardKey) : forwardKey + backwardKey;
+			if (best <= lowerBound)
+				break;
+
+			if (lowerBound > bound)
+			{
+				if (context != null)
+					context.getStatistics().countPrunedSearch();
+				return null;
+			}
+
+			// a stopped run accepts no more paths, the search is dropped
+			if (context != null
+					&& (context.isStopped() || (++expanded & BUDGET_CHECK_MASK) == 0 && context.isOutOfTime()))
+				return null;
+
+			// expands the search with the smaller fringe
+			if (forward.fringe.size() <= backward.fringe.size())
+			{
+				int currNode = forward.fringe.poll();
+				forward.processedStamps[currNode] = forwardEpoch;
+				forward.distances[currNode] = forward.seen[currNode];
+
+				for (int slot = graph.outBegin(currNode); slot < graph.outEnd(currNode); slot++)
+				{
+					int nextNode = graph.outTarget(slot);
+					int nextEdge = graph.outEdge(slot);
+					if (context != null && context.isHidden(nextEdge, nextNode, spurIndex)
+							|| minDists != null && isInf(heuristicF(minDists, nextNode)))
+						continue;
+
+					double nextActDist = forward.distances[currNode] + graph.outWeight(slot);
+
+					// the edge joins the path to the backward search
+					if (backward.seenStamps[nextNode] == backwardEpoch && nextActDist + backward.seen[nextNode] < best)
+					{
+						best = nextActDist + backward.seen[nextNode];
+						meetEdge = nextEdge;
+					}
 
-					if (repEdge != null)
+					if (forward.processedStamps[nextNode] != forwardEpoch
+							&& (forward.seenStamps[nextNode] != forwardEpoch || nextActDist < forward.seen[nextNode]))
 					{
-						hiddenEdges.add(repEdge);
+						forward.seen[nextNode] = nextActDist;
+						forward.seenStamps[nextNode] = forwardEpoch;
+						forward.predEdges[nextNode] = nextEdge;
+						forward.fringe.push(nextNode,
+								minDists != null ? nextActDist + heuristicF(minDists, nextNode) : nextActDist);
 					}
 				}
+			}
+			else
+			{
+				int currNode = backward.fringe.poll();
+				backward.processedStamps[currNode] = backwardEpoch;
+				backward.distances[currNode] = backward.seen[currNode];
 
-				// find the shortest path using A*
-				PathWay pathSpur =
-						shortestPathAStar(network, cyNodeToId, nodeSpur, target, minDists);
-
-				// short circuit if the target node was unreachable, which is
-				// expected to happen as we remove edges
-				if (pathSpur != null)
+				// goes through the incoming edges, an edge is hidden if it or
+				// the node it leads to is
+				for (int slot = graph.inBegin(currNode); slot < graph.inEnd(currNode); slot++)
 				{
-					// concatenates prevPath[:i+1] and the shortest path from
-					// nodeSpur to the target, and add this path to candidates
-					ArrayList<CyNode> pathTotal = new ArrayList<CyNode>(
-							pathRoot.subList(0, pathRoot.size() - 1));
-					pathTotal.addAll(pathSpur.nodeList);
+					int prevNode = graph.inSource(slot);
+					int prevEdge = graph.inEdge(slot);
+					if (context != null && context.isHidden(prevEdge, currNode, spurIndex))
+						continue;
 
-					double distTotal = computePathDist(network, pathTotal);
-					PathWay potentialK = new PathWay(pathTotal, cyNodeToId, distTotal);
+					double prevActDist = backward.distances[currNode] + graph.inWeight(slot);
 
-					if (!B.contains(potentialK))
+					// the edge joins the path to the forward search
+					if (forward.seenStamps[prevNode] == forwardEpoch && forward.seen[prevNode] + prevActDist < best)
 					{
-						B.add(potentialK);
+						best = forward.seen[prevNode] + prevActDist;
+						meetEdge = prevEdge;
 					}
-				}
-			}
-
-			resetHiddenEdges();
-
-			if (B.size() > 0)
-			{
-				// sorts the candidate paths by their weight
-				Collections.sort(B, new Comparator<PathWay>() {
 
-					@Override
-					public int compare(PathWay path1, PathWay path2)
+					if (backward.processedStamps[prevNode] != backwardEpoch
+							&& (backward.seenStamps[prevNode] != backwardEpoch || prevActDist < backward.seen[prevNode]))
 					{
-						return Double.compare(path1.weight, path2.weight);
+						backward.seen[prevNode] = prevActDist;
+						backward.seenStamps[prevNode] = backwardEpoch;
+						backward.predEdges[prevNode] = prevEdge;
+						backward.fringe.push(prevNode, prevActDist);
 					}
+				}
+			}
+		}
 
-				});
+		if (meetEdge == -1 || best > bound)
+			return null;
 
-				// accepts the next shortest path on the candidates heap, which
-				// is necessarily the next shortest path
-				PathWay newShortest = B.remove(0);
+		// joins the forward path to the tail of the meeting edge, the edge
+		// and the backward path from its head
+		int[] head = constructEdgeList(graph, forward.predEdges, source, graph.edgeSource(meetEdge));
+		int length = head.length + 1;
+		for (int node = graph.edgeTarget(meetEdge); node != target; node = graph.edgeTarget(backward.predEdges[node]))
+			length++;
 
-				// adds this to the list of prefixes for efficient lookup later
-				for (int i = 1; i < newShortest.size(); i++)
-				{
-					CyNode currNode = newShortest.get(i);
-					ArrayList<CyNode> subPath = new ArrayList<CyNode>(
-							newShortest.nodeList.subList(0, i));
+		int[] path = Arrays.copyOf(head, length);
+		path[head.length] = meetEdge;
+		int i = head.length + 1;
+		for (int node = graph.edgeTarget(meetEdge); node != target; node = graph.edgeTarget(path[i++]))
+			path[i] = backward.predEdges[node];
 
-					if (!prefixCache.containsKey(subPath))
-						prefixCache.put(subPath, new ArrayList<CyNode>());
+		return removeCycles(graph, forward, forwardEpoch, source, path);
+	}
 
-					ArrayList<CyNode> cachedPath = prefixCache.get(subPath);
-					if (!cachedPath.contains(currNode))
-						cachedPath.add(currNode);
-				}
 
-				// If the ties stops then break the loop, don't add the newShortest
-				if (k >= maxK && A.size() > 2 && A.get(A.size() - 1).weight != newShortest.weight)
-					break;
+	/**
+	 * Removes the cycles from a path. The two halves of a bidirectional
+	 * search can only share a node through a cycle of edges of weight zero,
+	 * which the shortest path doesn't need. The search only takes a meeting
+	 * edge lighter than the meetings at the nodes both halves reached, so
+	 * this is a guard rather than a step it relies on
+	 *
+	 * @param graph
+	 *            the snapshot of the network
+	 * @param space
+	 *            the search space of the search that found the path, its
+	 *            pathLengths are stamped with the epoch of the search
+	 * @param epoch
+	 *            the epoch of the search
+	 * @param source
+	 *            the id of the first node of the path
+	 * @param path
+	 *            the ids of the edges of the path
+	 * @return the ids of the edges of the path without its cycles, path
+	 *         itself if it has none
+	 */
+	static int[] removeCycles(GraphSnapshot graph, SearchSpace space, int epoch, int source, int[] path)
+	{
+		// the number of edges kept when each node of the path was reached
+		space.pathLengths[source] = 0;
+		space.pathStamps[source] = epoch;
+
+		int[] edges = new int[path.length];
+		int length = 0;
+		for (int edge : path)
+		{
+			int node = graph.edgeTarget(edge);
+			if (space.pathStamps[node] == epoch)
+			{
+				// drops the cycle back to the node
+				int kept = space.pathLengths[node];
+				for (int i = kept; i < length; i++)
+					space.pathStamps[graph.edgeTarget(edges[i])] = 0;
 
-				// adds the next shortest path to the accepted list of paths
-				A.add(newShortest);
+				length = kept;
 			}
 			else
 			{
-				// terminates early if there are no more paths found from the
-				// source to the target
-				break;
+				edges[length++] = edge;
 			}
+
+			space.pathLengths[node] = length;
+			space.pathStamps[node] = epoch;
 		}
 
-		return A;
-			}
+		return length == path.length ? path : Arrays.copyOf(edges, length);
+	}
 
 
 	/**
-	 * Used to store data about a node while performing A*
+	 * Returns the distances to the target the spur searches are guided by,
+	 * and the tree of the shortest paths to the target, from the heuristic
+	 * cache of the context if it has an entry for the run. Otherwise, if the
+	 * context asks for landmarks, the searches are guided by the lower bounds
+	 * of the landmarks of the network, which are computed once for all the
+	 * targets. Otherwise the distances are computed and kept in the cache
+	 *
+	 * @param context
+	 *            the context of the run
+	 * @param source
+	 *            the id of the source node
+	 * @param target
+	 *            the id of the target node
+	 * @param treeEdges
+	 *            filled with the id of the edge from each node towards the
+	 *            target in the tree, -1 for every node if the distances are
+	 *            the bounds of the landmarks
+	 * @return the distance of each node to the target, or a lower bound on it
 	 */
-	private static class AStarData
-	{
-		public double heurDist;
-		public CyNode node;
-		public double actDist;
+	private static double[] heuristicDistances(
+			KSPContext context,
+			int source,
+			int target,
+			int[] treeEdges)
+			{
+		double[] shared = context.getHeuristicDistances();
+		if (shared != null)
+		{
+			System.arraycopy(context.getHeuristicTree(), 0, treeEdges, 0, treeEdges.length);
+			return shared;
+		}
+
+		GraphSnapshot graph = context.getGraph();
+		HeuristicCache cache = context.getHeuristicCache();
+		if (cache == null)
+			return reverseSingleSourceDijkstra(graph, target, treeEdges);
 
+		double[] minDists = cache.get(context.getHeuristicKey(), graph, source, target, treeEdges);
+		if (minDists != null)
+			return minDists;
 
-		public AStarData(double heurDist, CyNode node, double actDist)
+		int landmarkCount = context.getLandmarkCount();
+		if (landmarkCount > 0)
 		{
-			this.heurDist = heurDist;
-			this.node = node;
-			this.actDist = actDist;
+			Landmarks landmarks = cache.getLandmarks(context.getHeuristicKey(), landmarkCount);
+			if (landmarks != null)
+				minDists = landmarks.lowerBounds(graph, source, target);
+
+			if (minDists == null)
+			{
+				landmarks = Landmarks.select(graph, landmarkCount, source, target);
+				cache.putLandmarks(context.getHeuristicKey(), landmarkCount, landmarks);
+				minDists = landmarks.lowerBounds(graph, source, target);
+			}
+
+			// there is no tree, the searches run A* all the way to the target
+			Arrays.fill(treeEdges, -1);
+			return minDists;
 		}
-	}
+
+		minDists = reverseSingleSourceDijkstra(graph, target, treeEdges);
+		cache.put(context.getHeuristicKey(), graph, source, target, minDists, treeEdges);
+
+		return minDists;
+			}
 
 
 	/**
-	 * "Resets" hidden edges, by changing hiddenEdges state to what it was
-	 * initialized to
+	 * Computes the shortest distance from every node in the graph to a
+	 * target, following the edges backwards from the target
+	 *
+	 * @param graph
+	 *            the snapshot of the supplied network
+	 * @param source
+	 *            the id of the node to compute the distances to
+	 * @return the distance of each node from the source, INFINITY if the
+	 *         source is unreachable
 	 */
-	private static void resetHiddenEdges()
-	{
-		hiddenEdges.clear();
-		hiddenEdges.addAll(initialHiddenEdges);
-	}
+	public static double[] reverseSingleSourceDijkstra(
+			GraphSnapshot graph,
+			int source)
+			{
+		return reverseSingleSourceDijkstra(graph, source, new int[graph.nodeCount()]);
+			}
 
 
 	/**
-	 * An implementation of the A* algorithm. Computes exact shortest paths in
-	 * the network, utilizing the fact that the heuristic function is monotonic
+	 * Computes the shortest distance from every node in the graph to a
+	 * target, and the tree of the shortest paths to the target, following
+	 * the edges backwards from the target. Networks of PARALLEL_SSSP_EDGES
+	 * edges or more are searched with delta-stepping on the common pool,
+	 * whose buckets beat the heap of Dijkstra at that size even on a single
+	 * thread. Whichever search ran, the tree is the canonical tree of the
+	 * distances, so it only depends on the snapshot and the target
 	 *
-	 * @param network
-	 *            the supplied network
-	 * @param cyNodeToId
-     *            the map that maps CyNode object to its string name
+	 * @param graph
+	 *            the snapshot of the supplied network
 	 * @param source
-	 *            the source node
-	 * @param target
-	 *            the target node
-	 * @param minDists
-	 *            the map of nodes to their minimum distance from the target
-	 * @return a path from source to target and its weight
+	 *            the id of the node to compute the distances to
+	 * @param nextEdges
+	 *            filled with the id of the edge from each node towards the
+	 *            source in the tree, -1 for the source and the nodes that
+	 *            can't reach it
+	 * @return the distance of each node from the source, INFINITY if the
+	 *         source is unreachable
 	 */
-	public static PathWay shortestPathAStar(
-			CyNetwork network,
-			Map<CyNode, String> cyNodeToId,
-			CyNode source,
-			CyNode target,
-			final HashMap<CyNode, Double> minDists)
-	{
-		PathWay currPath = new PathWay(new ArrayList<CyNode>(), null, 0.);
+	public static double[] reverseSingleSourceDijkstra(
+			GraphSnapshot graph,
+			int source,
+			int[] nextEdges)
+			{
+		// with edges of 0 or 1 the buckets of a breadth-first search beat
+		// both the heap and delta-stepping
+		double[] distances;
+		if (graph.isHopCount())
+			distances = reverseHopCounts(graph, source, nextEdges);
+		else if (graph.edgeCount() >= PARALLEL_SSSP_EDGES)
+			return parallelReverseSingleSourceDijkstra(graph, source, nextEdges, ForkJoinPool.commonPool());
+		else
+			distances = serialReverseSingleSourceDijkstra(graph, source, nextEdges);
 
-		// if source==target:
-		// return ({source:0}, {source:[source]})
-		if (source.equals(target))
-		{
-			return currPath;
-		}
+		canonicalTree(graph, source, distances, nextEdges);
+		return distances;
+			}
 
-		// dictionary of final distances
-		HashMap<CyNode, Double> distances = new HashMap<CyNode, Double>();
-		// dictionary of paths
-		HashMap<CyNode, CyNode> preds = new HashMap<CyNode, CyNode>();
-		// map of seen nodes and their distancess
-		HashMap<CyNode, Double> seen = new HashMap<CyNode, Double>();
-		seen.put(source, 0.);
 
-		// heap of nodes on the border to process, keyed by heuristic distance
-		PriorityQueue<AStarData> fringe =
-				new PriorityQueue<AStarData>(10, new Comparator<AStarData>() {
-					@Override
-					public int compare(AStarData data1, AStarData data2)
-					{
-						return Double.compare(data1.heurDist, data2.heurDist);
-					}
+	/**
+	 * Computes the shortest distance from every node in the graph to a
+	 * target, and the tree of the shortest paths to the target, with a
+	 * parallel delta-stepping. The distances are the same as the serial
+	 * search gives, and so is the canonical tree built from them
+	 *
+	 * @param graph
+	 *            the snapshot of the supplied network
+	 * @param source
+	 *            the id of the node to compute the distances to
+	 * @param nextEdges
+	 *            filled with the id of the edge from each node towards the
+	 *            source in the tree, -1 for the source and the nodes that
+	 *            can't reach it
+	 * @param pool
+	 *            the pool to run the search on
+	 * @return the distance of each node from the source, INFINITY if the
+	 *         source is unreachable
+	 */
+	public static double[] parallelReverseSingleSourceDijkstra(
+			GraphSnapshot graph,
+			int source,
+			int[] nextEdges,
+			ForkJoinPool pool)
+			{
+		double[] distances = new DeltaStepping(graph, pool, INFINITY).reverseDistances(source, nextEdges);
 
-				});
+		// the tree couldn't be built from the rounded distances, the serial
+		// search builds it as it goes
+		if (distances == null)
+			distances = serialReverseSingleSourceDijkstra(graph, source, nextEdges);
 
-		fringe.add(new AStarData(heuristicF(minDists, source), source, 0));
+		canonicalTree(graph, source, distances, nextEdges);
+		return distances;
+			}
 
-		// real-valued edge weights can cause the search to fail due to
-		// accumulated error summing along the path. test with a relative
-		// epsilon to catch only the 'real' errors
-		final double REL_EPS = 1E-10;
 
-		// iteratively search the graph outward until we've processed all nodes
-		while (fringe.size() > 0)
+	/**
+	 * Rebuilds the tree of the shortest paths to a target from the distances
+	 * to the target, breaking the ties between shortest paths the same way
+	 * whichever search computed the distances. The edge of a node is the
+	 * edge to a node whose distance plus the weight of the edge is exactly
+	 * the distance of the node, among those the one whose tree path to the
+	 * target has the fewest edges, and among those the lowest edge id. The
+	 * nodes are taken in the order of their distances, and the nodes of
+	 * equal distance, which edges of weight 0 join, in the order of the
+	 * edges of their tree paths, so the tree has no cycle
+	 *
+	 * @param graph
+	 *            the snapshot of the supplied network
+	 * @param target
+	 *            the id of the target node
+	 * @param distances
+	 *            the distance of each node to the target, INFINITY if the
+	 *            node can't reach it
+	 * @param nextEdges
+	 *            filled with the id of the edge from each node towards the
+	 *            target in the tree, -1 for the target and the nodes that
+	 *            can't reach it
+	 */
+	static void canonicalTree(GraphSnapshot graph, int target, double[] distances, int[] nextEdges)
+	{
+		int n = graph.nodeCount();
+		int[] hops = new int[n];
+		int[] group = new int[n];
+		IndexedHeap order = new IndexedHeap(n);
+		IndexedHeap levels = new IndexedHeap(n);
+
+		Arrays.fill(hops, Integer.MAX_VALUE);
+		Arrays.fill(nextEdges, -1);
+		for (int node = 0; node < n; node++)
 		{
-			AStarData currData = fringe.poll();
-			CyNode currNode = currData.node;
-
-			// if we've already processed this node, don't re-process it. this
-			// happens beecause when we see a better path to an already seen
-			// node, it's cheaper to leave it in the heap and deal with it here
-			// than to remove it
-			if (distances.containsKey(currNode))
-				continue;
-
-			// process this node, this is necessarily the best possible path
-			// to it
-			distances.put(currNode, currData.actDist);
-
-			// check for a solution
-			if (currNode.equals(target))
-				break;
+			if (!isInf(distances[node]))
+				order.insert(node, distances[node]);
+		}
 
-			// examine all neighbors to this node and consider adding them to
-			// the fringe
-			List<CyEdge> neighbors =
-					network.getAdjacentEdgeList(currNode, CyEdge.Type.OUTGOING);
-			for (CyEdge nextEdge : neighbors)
+		while (!order.isEmpty())
+		{
+			// the nodes of the next distance
+			double distance = order.peekKey();
+			int size = 0;
+			while (!order.isEmpty() && order.peekKey() == distance)
+				group[size++] = order.poll();
+
+			// the edges to the nodes of smaller distances, whose tree paths
+			// are final
+			for (int i = 0; i < size; i++)
 			{
-				// doesn't consider edges that are hidden. uses this structure
-				// of hiding edges because manipulating the graph completely
-				// dominates runtime in cytoscape
-				if (hiddenEdges.contains(nextEdge))
+				int node = group[i];
+				if (node == target)
+					hops[node] = 0;
+
+				for (int slot = graph.outBegin(node); slot < graph.outEnd(node) && node != target; slot++)
 				{
-					continue;
+					int next = graph.outTarget(slot);
+					if (distances[next] < distance && hops[next] != Integer.MAX_VALUE
+							&& graph.outWeight(slot) + distances[next] == distance)
+						chooseTreeEdge(node, graph.outEdge(slot), hops[next] + 1, hops, nextEdges);
 				}
 
-				CyNode nextNode = nextEdge.getTarget();
-
-				// the actual distance to the node from the source
-				double nextActDist =
-						currData.actDist + getWeight(network, nextEdge);
-
-				// the heuristic function gives a lower bound on the path
-				// length to go the rest of the way to the finish from the start
-				double nextHeurDist =
-						nextActDist + heuristicF(minDists, nextNode);
-
-				// if the heuristic function returns infinity, then the target
-				// is necessarily unreachable, so don't expand the search along
-				// this edge
-				if (isInf(heuristicF(minDists, nextNode)))
-					continue;
+				if (hops[node] != Integer.MAX_VALUE)
+					levels.push(node, hops[node]);
+			}
 
-				// if we've already processed the neighbor, then this can't
-				// possibly be a better path, assuming the problem is
-				// well-formed
-				if (distances.containsKey(nextNode))
-				{
-					// verify that the graph and heuristic don't break the
-					// search property
-					if ((nextActDist * (1 + REL_EPS)) < distances.get(nextNode))
-					{
-						JOptionPane.showMessageDialog(
-								null,
-								"Contradictory search path. Bad heuristic? Negative weights?");
-						return null;
-					}
-				}
-				// if this node hasn't already been processed, we need to
-				// consider adding it to the heap. if it's not already in the
-				// heap, we should only add it if this path to it is an
-				// improvement over the previous path. for performance, we leave
-				// the old entry in the heap in that case and skip it when it
-				// pops out
-				else if (!seen.containsKey(nextNode)
-						|| nextActDist < seen.get(nextNode))
+			// the edges between the nodes of the distance, the tree paths
+			// of fewer edges first
+			while (!levels.isEmpty())
+			{
+				int next = levels.poll();
+				for (int slot = graph.inBegin(next); slot < graph.inEnd(next); slot++)
 				{
-					seen.put(nextNode, nextActDist);
-					fringe.add(
-							new AStarData(nextHeurDist, nextNode, nextActDist));
-					preds.put(nextNode, currNode);
+					int node = graph.inSource(slot);
+					if (node != target && distances[node] == distance && graph.inWeight(slot) + distance == distance
+							&& chooseTreeEdge(node, graph.inEdge(slot), hops[next] + 1, hops, nextEdges))
+						levels.push(node, hops[node]);
 				}
 			}
 		}
+	}
 
-		// builds the path and returns it
-		ArrayList<CyNode> nodeList = constructNodeList(preds, source, target);
-		if (nodeList == null)
-			return null;
 
-		return new PathWay(nodeList, cyNodeToId, distances.get(target));
+	/**
+	 * Takes an edge as the tree edge of a node if its tree path has fewer
+	 * edges than the one of the current edge, or as many and a lower id
+	 *
+	 * @param node
+	 *            the id of the node
+	 * @param edge
+	 *            the id of the edge
+	 * @param edgeHops
+	 *            the number of edges of the tree path through the edge
+	 * @param hops
+	 *            the number of edges of the tree path of each node
+	 * @param nextEdges
+	 *            the edge from each node towards the target in the tree
+	 * @return true if the tree path of the node has fewer edges now
+	 */
+	private static boolean chooseTreeEdge(int node, int edge, int edgeHops, int[] hops, int[] nextEdges)
+	{
+		if (edgeHops < hops[node])
+		{
+			hops[node] = edgeHops;
+			nextEdges[node] = edge;
+			return true;
+		}
+
+		if (edgeHops == hops[node] && edge < nextEdges[node])
+			nextEdges[node] = edge;
+
+		return false;
 	}
 
 
 	/**
-	 * Computes the shortest distance from a source to every node in the graph
+	 * Computes the shortest distance from every node in the graph to a
+	 * target, and the tree of the shortest paths to the target, with a
+	 * serial Dijkstra
 	 *
-	 * @param network
-	 *            the supplied network
+	 * @param graph
+	 *            the snapshot of the supplied network
 	 * @param source
-	 *            the source
-	 * @return a map of nodes and their distances from the source
-	 */
-	public static HashMap<CyNode, Double> reverseSingleSourceDijkstra(
-			CyNetwork network,
-			CyNode source)
-			{
-		final HashMap<CyNode, Double> distances = new HashMap<CyNode, Double>();
-		HashMap<CyNode, CyNode> previous = new HashMap<CyNode, CyNode>();
-		PriorityQueue<CyNode> pq =
-				new PriorityQueue<CyNode>(10, new Comparator<CyNode>() {
-					@Override
-					public int compare(CyNode o1, CyNode o2)
-					{
-						return Double.compare(distances.get(o1), distances.get(o2));
-					}
-				});
+	 *            the id of the node to compute the distances to
+	 * @param nextEdges
+	 *            filled with the id of the edge from each node towards the
+	 *            source in the tree, -1 for the source and the nodes that
+	 *            can't reach it
+	 * @return the distance of each node from the source, INFINITY if the
+	 *         source is unreachable
+	 */
+	private static double[] serialReverseSingleSourceDijkstra(
+			GraphSnapshot graph,
+			int source,
+			int[] nextEdges)
+			{
+		double[] distances = new double[graph.nodeCount()];
+		IndexedHeap pq = new IndexedHeap(graph.nodeCount());
 
 		// intializes distances
-		for (CyNode v : network.getNodeList())
-		{
-			distances.put(v, INFINITY);
-			previous.put(v, null);
-		}
-		distances.put(source, 0.);
-		pq.add(source);
+		Arrays.fill(distances, INFINITY);
+		Arrays.fill(nextEdges, -1);
+		distances[source] = 0.;
+		pq.insert(source, 0.);
 
 		while (!pq.isEmpty())
 		{
-			CyNode current = pq.poll();
+			int current = pq.poll();
 
 			// goes through incoming neighbors because we are finding the paths
-			// that lead to the target. however, we don't want to reverse the
-			// network and call a normal SSD because manipulating the network
-			// dominates runtime in Cytoscape
-			for (CyEdge neighborEdge : network
-					.getAdjacentEdgeList(current, CyEdge.Type.INCOMING))
+			// that lead to the target. the snapshot stores the incoming
+			// adjacency, so there is no need to reverse the network
+			for (int slot = graph.inBegin(current); slot < graph.inEnd(current); slot++)
 			{
-				CyNode neighbor = neighborEdge.getSource();
+				int neighbor = graph.inSource(slot);
 
 				double newCost =
-						distances.get(current) + getWeight(network, neighborEdge);
+						distances[current] + graph.inWeight(slot);
 
-				if (newCost < distances.get(neighbor))
+				if (newCost < distances[neighbor])
 				{
-					distances.put(neighbor, newCost);
-					previous.put(neighbor, current);
+					distances[neighbor] = newCost;
+					nextEdges[neighbor] = graph.inEdge(slot);
 
-					// re-add to priority queue
-					pq.remove(neighbor);
-					pq.add(neighbor);
+					// adds the neighbor to the queue or decreases its key
+					pq.push(neighbor, newCost);
 				}
 			}
 		}
@@ -593,61 +2443,105 @@ public class Algorithms
 
 
 	/**
-	 * Computes the shortest distance from a source to every node in the graph
+	 * Computes the number of edges from every node in the graph to a target,
+	 * and the tree of the shortest paths to the target, on a snapshot whose
+	 * edges weigh 0 or 1. The search is breadth first, expanding the nodes
+	 * one number of edges after the other, with the edges of weight 0 kept
+	 * in the level they start from
 	 *
-	 * @param network
-	 *            the supplied network
+	 * @param graph
+	 *            the snapshot of the supplied network
 	 * @param source
-	 *            the source
-	 * @return a map of nodes and their distances from the source
+	 *            the id of the node to compute the distances to
+	 * @param nextEdges
+	 *            filled with the id of the edge from each node towards the
+	 *            source in the tree, -1 for the source and the nodes that
+	 *            can't reach it
+	 * @return the number of edges from each node to the source, INFINITY if
+	 *         the source is unreachable
 	 */
-	public static HashMap<CyNode, Double> singleSourceDijkstra(
-			CyNetwork network,
-			CyNode source)
+	private static double[] reverseHopCounts(
+			GraphSnapshot graph,
+			int source,
+			int[] nextEdges)
 			{
-		HashMap<CyNode, Double> distances = new HashMap<CyNode, Double>();
-		HashMap<CyNode, CyNode> previous = new HashMap<CyNode, CyNode>();
-		ArrayList<CyNode> pq = new ArrayList<CyNode>();
+		int[] hops = new int[graph.nodeCount()];
+		BucketQueue levels = new BucketQueue(graph.nodeCount());
 
-		// intializes distances
-		for (CyNode v : network.getNodeList())
+		Arrays.fill(hops, Integer.MAX_VALUE);
+		Arrays.fill(nextEdges, -1);
+		hops[source] = 0;
+		levels.push(source, 0);
+
+		while (!levels.isEmpty())
 		{
-			distances.put(v, INFINITY);
-			previous.put(v, null);
+			int current = levels.poll();
+
+			for (int slot = graph.inBegin(current); slot < graph.inEnd(current); slot++)
+			{
+				int neighbor = graph.inSource(slot);
+				int newHops = hops[current] + (int) graph.inWeight(slot);
+
+				if (newHops < hops[neighbor])
+				{
+					hops[neighbor] = newHops;
+					nextEdges[neighbor] = graph.inEdge(slot);
+					levels.push(neighbor, newHops);
+				}
+			}
 		}
-		distances.put(source, 0.);
-		pq.add(source);
+
+		double[] distances = new double[hops.length];
+		for (int node = 0; node < hops.length; node++)
+			distances[node] = hops[node] == Integer.MAX_VALUE ? INFINITY : hops[node];
+
+		return distances;
+			}
+
+
+	/**
+	 * Computes the shortest distance from a source to every node in the graph
+	 *
+	 * @param graph
+	 *            the snapshot of the supplied network
+	 * @param source
+	 *            the id of the source
+	 * @return the distance of each node from the source, INFINITY if the node
+	 *         is unreachable
+	 */
+	public static double[] singleSourceDijkstra(
+			GraphSnapshot graph,
+			int source)
+			{
+		double[] distances = new double[graph.nodeCount()];
+		int[] previous = new int[graph.nodeCount()];
+		IndexedHeap pq = new IndexedHeap(graph.nodeCount());
+
+		// intializes distances
+		Arrays.fill(distances, INFINITY);
+		Arrays.fill(previous, -1);
+		distances[source] = 0.;
+		pq.insert(source, 0.);
 
 		while (!pq.isEmpty())
 		{
-			CyNode current = pq.remove(0);
+			int current = pq.poll();
 
 			// goes through the neighbors
-			for (CyEdge neighborEdge : network
-					.getAdjacentEdgeList(current, CyEdge.Type.OUTGOING))
+			for (int slot = graph.outBegin(current); slot < graph.outEnd(current); slot++)
 			{
-				CyNode neighbor = neighborEdge.getTarget();
+				int neighbor = graph.outTarget(slot);
 
 				double newCost =
-						distances.get(current) + getWeight(network, neighborEdge);
+						distances[current] + graph.outWeight(slot);
 
-				if (newCost < distances.get(neighbor))
+				if (newCost < distances[neighbor])
 				{
-					distances.put(neighbor, newCost);
-					previous.put(neighbor, current);
+					distances[neighbor] = newCost;
+					previous[neighbor] = current;
 
-					// add to priority queue
-					pq.remove(neighbor);
-					for (int i = 0; i < pq.size(); i++)
-					{
-						if (distances.get(neighbor) < distances.get(pq.get(i)))
-						{
-							pq.add(i, neighbor);
-							break;
-						}
-					}
-					if (!pq.contains(neighbor))
-						pq.add(neighbor);
+					// adds the neighbor to the queue or decreases its key
+					pq.push(neighbor, newCost);
 				}
 			}
 		}
@@ -660,204 +2554,108 @@ public class Algorithms
 	 * Computes the shortest path from a source to a sink in the supplied
 	 * network
 	 *
-	 * @param network
-	 *            the network
-	 * @param cyNodeToId
-     *            the map that maps CyNode object to its string name
+	 * @param graph
+	 *            the snapshot of the network
 	 * @param source
-	 *            the source node of the graph
+	 *            the id of the source node of the graph
 	 * @param target
-	 *            the target node of the graph
-	 * @return the path from source to target
+	 *            the id of the target node of the graph
+	 * @return the ids of the edges of the path from source to target, null
+	 *         if there is none
 	 */
-	public static PathWay dijkstra(CyNetwork network, Map<CyNode, String> cyNodeToId, CyNode source, CyNode target)
+	public static int[] dijkstra(GraphSnapshot graph, int source, int target)
 	{
-		final HashMap<CyNode, Double> distances = new HashMap<CyNode, Double>();
-		HashMap<CyNode, CyNode> previous = new HashMap<CyNode, CyNode>();
-		PriorityQueue<CyNode> pq =
-				new PriorityQueue<CyNode>(10, new Comparator<CyNode>() {
-					@Override
-					public int compare(CyNode o1, CyNode o2)
-					{
-						return Double.compare(distances.get(o1), distances.get(o2));
-					}
-				});
+		double[] distances = new double[graph.nodeCount()];
+		int[] previousEdges = new int[graph.nodeCount()];
+		IndexedHeap pq = new IndexedHeap(graph.nodeCount());
 
 		// intializes distances
-		for (CyNode v : network.getNodeList())
-		{
-			distances.put(v, INFINITY);
-			previous.put(v, null);
-		}
-		distances.put(source, 0.);
-		pq.add(source);
+		Arrays.fill(distances, INFINITY);
+		Arrays.fill(previousEdges, -1);
+		distances[source] = 0.;
+		pq.insert(source, 0.);
 
 		while (!pq.isEmpty())
 		{
-			CyNode current = pq.poll();
+			int current = pq.poll();
 
 			// short circuit
-			if (current.equals(target))
+			if (current == target)
 			{
 				// return path reconstructed
 				break;
 			}
 
 			// goes through the neighbors
-			for (CyEdge neighborEdge : network
-					.getAdjacentEdgeList(current, CyEdge.Type.OUTGOING))
+			for (int slot = graph.outBegin(current); slot < graph.outEnd(current); slot++)
 			{
-				CyNode neighbor = neighborEdge.getTarget();
+				int neighbor = graph.outTarget(slot);
 
 				double newCost =
-						distances.get(current) + getWeight(network, neighborEdge);
+						distances[current] + graph.outWeight(slot);
 
-				if (newCost < distances.get(neighbor))
+				if (newCost < distances[neighbor])
 				{
-					distances.put(neighbor, newCost);
-					previous.put(neighbor, current);
+					distances[neighbor] = newCost;
+					previousEdges[neighbor] = graph.outEdge(slot);
 
-					// add to priority queue
-					pq.remove(neighbor);
-					pq.add(neighbor);
+					// adds the neighbor to the queue or decreases its key
+					pq.push(neighbor, newCost);
 				}
 			}
 		}
 
-		if (isInf(distances.get(target)))
+		if (isInf(distances[target]))
 		{
 			// unreachable node
 			return null;
 		}
 
 		// return constructed path
-		ArrayList<CyNode> nodeList =
-				constructNodeList(previous, source, target);
-		if (nodeList == null)
-			return null;
-
-		return new PathWay(nodeList, cyNodeToId, distances.get(target));
-	}
-
-
-	/**
-	 * Initializes our local copy of the edge weights
-	 *
-	 * @param weights
-	 *            a map of the edge to its value
-	 */
-	public static void setEdgeWeights(Map<CyEdge, Double> weights)
-	{
-		_edgeWeights = weights;
-	}
-
-
-	/**
-	 * Returns the weight of an edge in the network
-	 *
-	 * @param network
-	 *            the supplied network
-	 * @param edge
-	 *            the edge to find the weight of
-	 * @return double the weight of the edge. returns a very noticeable and
-	 *         obscure number if the weight is not in the network
-	 */
-	public static double getWeight(CyNetwork network, CyEdge edge)
-	{
-		if (!_edgeWeights.containsKey(edge))
-			return -44444;
-
-		return _edgeWeights.get(edge);
-	}
-
-
-	/**
-	 * Sets the weight of an edge in the network. Doesn't actually set the edge
-	 * weight as an attribute, as that takes too much time. Instead, stores the
-	 * edge weight in our copy of the weights local to the algorithm.
-	 *
-	 * @param edge
-	 *            the edge to set the weight of
-	 * @param value
-	 *            the new weight of the edge
-	 */
-	public static void setWeight(CyEdge edge, double value)
-	{
-		_edgeWeights.put(edge, value);
+		return constructEdgeList(graph, previousEdges, source, target);
 	}
 
 
 	/**
-	 * Returns an edge that connects source to target if it exists, null
-	 * otherwise
+	 * Finds a path from a source to a sink using a supplied list of the edges
+	 * leading to each node
 	 *
-	 * @param network
-	 *            the network
+	 * @param graph
+	 *            the snapshot of the network
+	 * @param previousEdges
+	 *            the id of the edge leading to each node, -1 if none
 	 * @param source
-	 *            the source of the edge
+	 *            the id of the source node of the graph
 	 * @param target
-	 *            the target of the edge
-	 * @return the edge connecting source and target, null otherwise
+	 *            the id of the target node of the graph
+	 * @return the ids of the edges in the path, null if there is no path
 	 */
-	public static CyEdge getEdge(
-			CyNetwork network,
-			CyNode source,
-			CyNode target)
-	{
-		List<CyEdge> connections =
-				network.getConnectingEdgeList(source, target, CyEdge.Type.DIRECTED);
-
-		// getConnectingEdgeList() returns both the incoming and outgoing edges connected to the two nodes
-		// Using CyEdge.Type.OUTGOING gave strange results in testing, so I stuck with this loop
-		// Use this for loop to get the edge directed from source->target
-		// Currently PathLinker does not support multi-graphs, so just return the first edge found
-		for (CyEdge edge : connections)
-		{
-			if (edge.getSource().equals(source)
-					&& edge.getTarget().equals(target))
+	public static int[] constructEdgeList(
+			GraphSnapshot graph,
+			int[] previousEdges,
+			int source,
+			int target)
 			{
+		// counts the edges in the path
+		int length = 0;
+		for (int iter = target; iter != source; iter = graph.edgeSource(previousEdges[iter]))
+		{
+			if (previousEdges[iter] == -1)
+				return null;
 
-				return edge;
-			}
+			length++;
 		}
 
-		return null;
-	}
-
-
-	/**
-	 * Finds a path from a source to a sink using a supplied previous node list
-	 *
-	 * @param previous
-	 *            a map of node predecessors
-	 * @param source
-	 *            the source node of the graph
-	 * @param target
-	 *            the target node of the graph
-	 * @return list of nodes in the path
-	 */
-	public static ArrayList<CyNode> constructNodeList(
-			HashMap<CyNode, CyNode> previous,
-			CyNode source,
-			CyNode target)
-			{
-		ArrayList<CyNode> nodeList = new ArrayList<CyNode>();
-
 		// constructs the path
-		CyNode iter = target;
-		do
+		int[] edgeList = new int[length];
+		int iter = target;
+		for (int i = length - 1; i >= 0; i--)
 		{
-			nodeList.add(iter);
-
-			if (!previous.containsKey(iter))
-				return null;
+			edgeList[i] = previousEdges[iter];
+			iter = graph.edgeSource(edgeList[i]);
 		}
-		while (!(iter = previous.get(iter)).equals(source));
 
-		nodeList.add(source);
-		Collections.reverse(nodeList);
-
-		return nodeList;
+		return edgeList;
 			}
 
 
@@ -875,49 +2673,130 @@ public class Algorithms
 
 
 	/**
-	 * Initializes the set of hidden edges. Used to start out the algorithm
-	 * hiding all source in edges and target out edges.
+	 * Computes the distances to the target that guide the searches of a run,
+	 * from the heuristic cache of the context if it has one, so the runs of a
+	 * partitioned run can share them
+	 *
+	 * @param context
+	 *            the context of a run
+	 * @param source
+	 *            the id of the source node
+	 * @param target
+	 *            the id of the target node
+	 * @param treeEdges
+	 *            filled with the edge from each node towards the target in
+	 *            the tree of the shortest paths, -1 if there is none
+	 * @return the distance of each node to the target, a lower bound with
+	 *         the landmarks
+	 */
+	public static double[] computeHeuristicDistances(KSPContext context, int source, int target, int[] treeEdges)
+	{
+		return heuristicDistances(context, source, target, treeEdges);
+	}
+
+
+	/**
+	 * Returns the weight of the path from a node to the target along the
+	 * tree of the shortest paths, if the context hides none of its edges.
+	 * The path is then a path of the run from that node, whatever the
+	 * distances of the tree were computed with
 	 *
-	 * @param edges
-	 *            the initial hidden edges
+	 * @param context
+	 *            the context of a run
+	 * @param treeEdges
+	 *            the edge from each node towards the target in the tree, -1
+	 *            if there is none
+	 * @param node
+	 *            the id of the node the path starts from
+	 * @param target
+	 *            the id of the target node
+	 * @return the weight of the path, positive infinity if the tree has no
+	 *         path from the node or the context hides an edge of it
 	 */
-	public static void initializeHiddenEdges(Set<CyEdge> edges)
+	public static double treePathWeight(KSPContext context, int[] treeEdges, int node, int target)
 	{
-		initialHiddenEdges = new HashSet<CyEdge>();
-		initialHiddenEdges.addAll(edges);
+		GraphSnapshot graph = context.getGraph();
+		double weight = 0.;
+
+		// a tree has no cycles, the bound on the steps guards a broken one
+		for (int steps = 0; node != target; steps++)
+		{
+			int edge = treeEdges[node];
+			if (edge == -1 || steps == graph.nodeCount())
+				return Double.POSITIVE_INFINITY;
 
-		hiddenEdges = new HashSet<CyEdge>();
-		hiddenEdges.addAll(edges);
+			node = graph.edgeTarget(edge);
+			if (context.isHidden(edge, node, 0))
+				return Double.POSITIVE_INFINITY;
+
+			weight += graph.edgeWeight(edge);
+		}
+
+		return weight;
 	}
 
 
 	/**
-	 * Computes the weight of a given path
+	 * Merges the paths of runs of the KSP algorithm whose paths are
+	 * disjoint families of the paths of one run, as the paths through each
+	 * source when sources are not allowed inside paths. Each list is sorted
+	 * by weight and holds the lightest paths of its family, as many as the
+	 * run asks for and their ties. The lightest paths of the lists together
+	 * are then the paths of the whole run, taken as the run takes them: maxK
+	 * paths, or as long as they tie with the last path once there are 3
+	 * paths. Paths of equal weight come in the order of their lists
 	 *
-	 * @param network
-	 *            the supplied network
-	 * @param nodeList
-	 *            the list of nodes that make up the path, in order
+	 * @param lists
+	 *            the paths of each family, lightest first
+	 * @param maxK
+	 *            the number of paths of the run
+	 * @param includePathScoreTies
+	 *            the option to include all paths of equal length
+	 * @param maxWeight
+	 *            the weight of the heaviest path to take, as the lists of
+	 *            the runs that stopped early may miss heavier paths
+	 * @return the paths of the run, lightest first
 	 */
-	private static double computePathDist(
-			CyNetwork network,
-			ArrayList<CyNode> nodeList)
+	public static ArrayList<PathWay> mergePaths(final List<? extends List<PathWay>> lists, int maxK,
+			boolean includePathScoreTies, double maxWeight)
 	{
-		double sum = 0.;
+		// the heap of the lists by their next path, each entry holding the
+		// index of a list and of its next path
+		PriorityQueue<int[]> heads = new PriorityQueue<int[]>(Math.max(1, lists.size()), new Comparator<int[]>() {
+			@Override
+			public int compare(int[] h1, int[] h2)
+			{
+				int byWeight = Double.compare(lists.get(h1[0]).get(h1[1]).weight, lists.get(h2[0]).get(h2[1]).weight);
+				return byWeight != 0 ? byWeight : Integer.compare(h1[0], h2[0]);
+			}
+		});
+		for (int i = 0; i < lists.size(); i++)
+		{
+			if (!lists.get(i).isEmpty())
+				heads.add(new int[] { i, 0 });
+		}
 
-		for (int i = 0; i < nodeList.size() - 1; i++)
+		ArrayList<PathWay> merged = new ArrayList<PathWay>();
+		while (!heads.isEmpty())
 		{
-			CyNode eSource = nodeList.get(i);
-			CyNode eTarget = nodeList.get(i + 1);
+			int[] head = heads.poll();
+			PathWay next = lists.get(head[0]).get(head[1]);
+			if (next.weight > maxWeight)
+				break;
 
-			CyEdge edge = Algorithms.getEdge(network, eSource, eTarget);
+			int k = merged.size();
+			if (k >= maxK && (!includePathScoreTies || k > 2 && merged.get(k - 1).weight != next.weight))
+				break;
 
-			sum += getWeight(network, edge);
+			merged.add(next);
+			if (++head[1] < lists.get(head[0]).size())
+				heads.add(head);
 		}
 
-		return sum;
+		return merged;
 	}
 
+
 	/**
 	 * Sort the list of the paths using its custom compareTo method
 	 * @param result the sorted list of pathss
@@ -926,4 +2805,4 @@ public class Algorithms
 	{
 		Collections.sort(result);
 	}
-}
\ No newline at end of file
+}
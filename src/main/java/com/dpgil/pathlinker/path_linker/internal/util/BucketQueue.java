@@ -0,0 +1,209 @@
+package com.dpgil.pathlinker.path_linker.internal.util;
+
+import java.util.Arrays;
+
+/**
+ * Monotone bucket queue over the integer ids [0, capacity) keyed by
+ * integers, for searches whose keys are path lengths counted in edges. Each
+ * key has a bucket holding its ids in a doubly linked list, so adding an id,
+ * moving it to a smaller key and removing the first id are all constant
+ * time, where the IndexedHeap takes logarithmic time with double keys.
+ *
+ * The queue is monotone: a key added is never smaller than the key of the
+ * last id polled. Breadth-first searches and A* with a consistent heuristic
+ * only add such keys, so the buckets are scanned once, in increasing order.
+ * Ids of equal key come out last added first.
+ */
+public class BucketQueue
+{
+	/** the key of each id */
+	private final int[] keys;
+	/** the next id in the bucket of each id, -1 for the last one */
+	private final int[] next;
+	/** the previous id in the bucket of each id, -1 for the first one */
+	private final int[] prev;
+	/** whether each id is in the queue */
+	private final boolean[] queued;
+	/** the first id of the bucket of each key past the base, -1 if the bucket is empty */
+	private int[] heads;
+	/** the key of the first bucket, the key of the first id added */
+	private int base;
+	/** the bucket the next id is polled from, none before it holds an id */
+	private int current;
+	/** the bucket after the last one that held an id since the queue was cleared */
+	private int end;
+	/** the number of ids in the queue */
+	private int size;
+
+	/**
+	 * Constructor for the queue
+	 *
+	 * @param capacity
+	 *            the number of ids, the queue holds the ids [0, capacity)
+	 */
+	public BucketQueue(int capacity)
+	{
+		this.keys = new int[capacity];
+		this.next = new int[capacity];
+		this.prev = new int[capacity];
+		this.queued = new boolean[capacity];
+		this.heads = new int[16];
+		Arrays.fill(heads, -1);
+	}
+
+
+	/**
+	 * Returns the number of ids in the queue
+	 *
+	 * @return the size of the queue
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+
+	/**
+	 * Returns if the queue is empty
+	 *
+	 * @return true if the queue holds no ids, false otherwise
+	 */
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+
+	/**
+	 * Adds an id to the queue, or moves it to a smaller key if it is already
+	 * in the queue with a larger key
+	 *
+	 * @param id
+	 *            the id to add
+	 * @param key
+	 *            the key of the id, not smaller than the key of the last id
+	 *            polled
+	 * @return true if the queue changed, false if the id was already in the
+	 *         queue with a smaller or equal key
+	 */
+	public boolean push(int id, int key)
+	{
+		if (queued[id])
+		{
+			if (key >= keys[id])
+				return false;
+
+			unlink(id);
+		}
+		else
+		{
+			if (size == 0 && end == 0)
+				base = key;
+			queued[id] = true;
+			size++;
+		}
+
+		int bucket = key - base;
+		if (bucket < current)
+			throw new IllegalStateException("Key " + key + " is smaller than the last key polled");
+
+		if (bucket >= heads.length)
+		{
+			int length = heads.length;
+			heads = Arrays.copyOf(heads, Math.max(bucket + 1, 2 * length));
+			Arrays.fill(heads, length, heads.length, -1);
+		}
+		end = Math.max(end, bucket + 1);
+
+		// links the id first in its bucket
+		keys[id] = key;
+		prev[id] = -1;
+		next[id] = heads[bucket];
+		if (heads[bucket] != -1)
+			prev[heads[bucket]] = id;
+		heads[bucket] = id;
+
+		return true;
+	}
+
+
+	/**
+	 * Returns the smallest key in the queue
+	 *
+	 * @return the smallest key
+	 */
+	public int peekKey()
+	{
+		return base + firstBucket();
+	}
+
+
+	/**
+	 * Removes an id of the smallest key from the queue
+	 *
+	 * @return the id removed
+	 */
+	public int poll()
+	{
+		int id = heads[firstBucket()];
+		unlink(id);
+		queued[id] = false;
+		size--;
+
+		return id;
+	}
+
+
+	/**
+	 * Empties the queue, only going over the buckets used since the queue
+	 * was last cleared
+	 */
+	public void clear()
+	{
+		for (int bucket = current; bucket < end; bucket++)
+		{
+			for (int id = heads[bucket]; id != -1; id = next[id])
+				queued[id] = false;
+			heads[bucket] = -1;
+		}
+
+		current = 0;
+		end = 0;
+		size = 0;
+	}
+
+
+	/**
+	 * Moves on to the first bucket holding an id
+	 *
+	 * @return the first bucket holding an id
+	 */
+	private int firstBucket()
+	{
+		if (size == 0)
+			throw new IllegalStateException("The queue is empty");
+
+		while (heads[current] == -1)
+			current++;
+
+		return current;
+	}
+
+
+	/**
+	 * Takes an id out of the list of its bucket
+	 *
+	 * @param id
+	 *            the id, must be in the queue
+	 */
+	private void unlink(int id)
+	{
+		if (prev[id] != -1)
+			next[prev[id]] = next[id];
+		else
+			heads[keys[id] - base] = next[id];
+
+		if (next[id] != -1)
+			prev[next[id]] = prev[id];
+	}
+}
@@ -0,0 +1,258 @@
+package com.dpgil.pathlinker.path_linker.internal.util;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+
+import com.dpgil.pathlinker.path_linker.internal.util.Algorithms.IndexedPath;
+
+/**
+ * The candidate paths of Yen's algorithm, the set B of paths that deviate
+ * from the accepted paths. Candidates are kept in a sorted set ordered by
+ * weight, and candidates of equal weight come out in the order they were
+ * added, the same order the previously sorted candidate list gave. A hash
+ * index over the fingerprints of the paths rejects duplicate candidates in
+ * constant expected time.
+ *
+ * Candidates are accepted lightest first, and the candidates built from an
+ * accepted path are never lighter than it. So if the algorithm accepts at
+ * most n candidates, it never accepts a candidate heavier than the n-th
+ * lightest candidate ever added. The pool keeps that weight as a bound that
+ * only tightens as candidates are added, and the candidates heavier than
+ * the bound can be evicted from the heavy end of the set. The pool then
+ * holds the candidates for the remaining paths and those tied with the
+ * last of them, rather than every deviation the run found.
+ */
+public class CandidatePool
+{
+	/**
+	 * A candidate path and the sequence number of its insertion
+	 */
+	private static class Candidate
+	{
+		/** the candidate path */
+		final IndexedPath path;
+		/** the number of candidates added before this one */
+		final long seq;
+
+		/**
+		 * Constructor for the candidate
+		 *
+		 * @param path
+		 *            the candidate path
+		 * @param seq
+		 *            the number of candidates added before this one
+		 */
+		Candidate(IndexedPath path, long seq)
+		{
+			this.path = path;
+			this.seq = seq;
+		}
+	}
+
+	/** orders the candidates by weight, then by insertion */
+	private static final Comparator<Candidate> ORDER = new Comparator<Candidate>() {
+		@Override
+		public int compare(Candidate c1, Candidate c2)
+		{
+			int byWeight = Double.compare(c1.path.weight, c2.path.weight);
+			return byWeight != 0 ? byWeight : Long.compare(c1.seq, c2.seq);
+		}
+	};
+
+	/** the candidates, lightest first */
+	private final TreeSet<Candidate> candidates;
+	/** the paths in the pool, to reject duplicates */
+	private final HashSet<IndexedPath> index;
+	/** the number of candidates added so far */
+	private long nextSeq;
+	/** the number of candidates the algorithm accepts at most */
+	private int accepted;
+	/** the weights of the lightest candidates ever added, at most accepted of them, heaviest first */
+	private PriorityQueue<Double> lightest;
+	/** the weights of the candidates polled, in order */
+	private double[] polled;
+	/** the number of candidates polled */
+	private int polledCount;
+
+	/**
+	 * Constructor for an empty pool
+	 *
+	 * @param accepted
+	 *            the number of candidates the algorithm accepts at most
+	 */
+	public CandidatePool(int accepted)
+	{
+		this.candidates = new TreeSet<Candidate>(ORDER);
+		this.index = new HashSet<IndexedPath>();
+		this.nextSeq = 0;
+		this.accepted = accepted;
+		this.lightest = new PriorityQueue<Double>(11, Collections.<Double>reverseOrder());
+		this.polled = new double[16];
+		this.polledCount = 0;
+	}
+
+
+	/**
+	 * Adds a candidate path unless the same path is already in the pool
+	 *
+	 * @param path
+	 *            the candidate path
+	 * @return true if the path was added, false if it is a duplicate
+	 */
+	public boolean add(IndexedPath path)
+	{
+		if (!index.add(path))
+			return false;
+
+		candidates.add(new Candidate(path, nextSeq++));
+		keepLightest(path.weight);
+
+		return true;
+	}
+
+
+	/**
+	 * Removes the heaviest candidate if it is heavier than the bound, so the
+	 * algorithm would never accept it. Adding a candidate tightens the bound,
+	 * so the candidates to evict are removed one at a time after each add
+	 *
+	 * @return the candidate removed, null if every candidate may still be
+	 *         accepted
+	 */
+	public IndexedPath evict()
+	{
+		if (candidates.isEmpty() || !(candidates.last().path.weight > bound()))
+			return null;
+
+		Candidate candidate = candidates.pollLast();
+		index.remove(candidate.path);
+
+		return candidate.path;
+	}
+
+
+	/**
+	 * Keeps the weight of a candidate if it is among the accepted lightest
+	 * weights
+	 *
+	 * @param weight
+	 *            the weight of the candidate
+	 */
+	private void keepLightest(double weight)
+	{
+		if (lightest.size() < accepted)
+			lightest.add(weight);
+		else if (accepted > 0 && weight < lightest.peek())
+		{
+			lightest.poll();
+			lightest.add(weight);
+		}
+	}
+
+
+	/**
+	 * Changes the number of candidates the algorithm accepts at most, when
+	 * the run is extended. The candidates ever added are those polled and
+	 * those still in the pool, so the bound is computed again from them. The
+	 * candidates the smaller run never added make the bound looser, never
+	 * tighter than it should be
+	 *
+	 * @param accepted
+	 *            the number of candidates the algorithm accepts at most
+	 */
+	public void setAccepted(int accepted)
+	{
+		this.accepted = accepted;
+		this.lightest = new PriorityQueue<Double>(11, Collections.<Double>reverseOrder());
+		for (int i = 0; i < polledCount; i++)
+			keepLightest(polled[i]);
+		for (Candidate candidate : candidates)
+			keepLightest(candidate.path.weight);
+	}
+
+
+	/**
+	 * Returns the bound on the weight of the candidates the algorithm can
+	 * still accept, the weight of the n-th lightest candidate ever added if
+	 * the algorithm accepts at most n candidates
+	 *
+	 * @return the bound, positive infinity if fewer candidates were added
+	 */
+	public double bound()
+	{
+		if (accepted <= 0)
+			return Double.NEGATIVE_INFINITY;
+
+		return lightest.size() < accepted ? Double.POSITIVE_INFINITY : lightest.peek();
+	}
+
+
+	/**
+	 * Returns the lightest candidate without removing it
+	 *
+	 * @return the lightest candidate, null if the pool is empty
+	 */
+	public IndexedPath peek()
+	{
+		return candidates.isEmpty() ? null : candidates.first().path;
+	}
+
+
+	/**
+	 * Removes the lightest candidate from the pool
+	 *
+	 * @return the lightest candidate, null if the pool is empty
+	 */
+	public IndexedPath poll()
+	{
+		Candidate candidate = candidates.pollFirst();
+		if (candidate == null)
+			return null;
+
+		index.remove(candidate.path);
+		if (polledCount == polled.length)
+			polled = Arrays.copyOf(polled, polledCount * 2);
+		polled[polledCount++] = candidate.path.weight;
+
+		return candidate.path;
+	}
+
+
+	/**
+	 * Returns the number of candidates in the pool
+	 *
+	 * @return the size of the pool
+	 */
+	public int size()
+	{
+		return candidates.size();
+	}
+
+
+	/**
+	 * Returns the estimated memory the candidates take, not counting their
+	 * entries in the path store. A candidate takes its path, its node in the
+	 * sorted set and its entry in the index, and its weight once it is polled
+	 *
+	 * @return the memory in bytes
+	 */
+	public long bytes()
+	{
+		return 160L * candidates.size() + 8L * polled.length;
+	}
+
+
+	/**
+	 * Returns if the pool is empty
+	 *
+	 * @return true if there are no candidates, false otherwise
+	 */
+	public boolean isEmpty()
+	{
+		return candidates.isEmpty();
+	}
+}
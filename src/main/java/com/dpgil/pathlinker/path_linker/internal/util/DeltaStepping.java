@@ -0,0 +1,437 @@
+package com.dpgil.pathlinker.path_linker.internal.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Parallel delta-stepping for the distances of every node to a target,
+ * following the edges backwards from the target as the serial reverse
+ * Dijkstra does. The nodes are kept in buckets of width delta by distance.
+ * The nodes of the lowest bucket are relaxed in parallel, and relaxed again
+ * whenever their distance drops, until the bucket stays empty. The
+ * distances are lowered with compare-and-set, so the result is the same
+ * fixed point the serial search computes.
+ *
+ * The tree of the shortest paths is built once the distances are final, by
+ * picking for each node an edge whose weight plus the distance of its head
+ * is the distance of the node. Edges of weight zero can tie a node with its
+ * neighbors, so those nodes are attached after the others, each to a node
+ * already in the tree, which keeps the tree free of cycles.
+ */
+class DeltaStepping
+{
+	/** the number of frontier nodes below which a step runs on the calling thread by default */
+	private static final int SEQUENTIAL_FRONTIER = 1024;
+	/** the number of nodes of each parallel task by default */
+	private static final int CHUNK = 512;
+
+	/** the snapshot searched */
+	private final GraphSnapshot graph;
+	/** the pool the steps run on */
+	private final ForkJoinPool pool;
+	/** the distance to unreachable nodes */
+	private final double infinity;
+	/** the width of the buckets */
+	private final double delta;
+	/** the number of frontier nodes below which a step runs on the calling thread */
+	private final int sequentialFrontier;
+	/** the number of nodes of each parallel task */
+	private final int chunk;
+	/** the bits of the distance of each node to the target */
+	private final AtomicLongArray distances;
+	/** the last step each node was added to a frontier in */
+	private final int[] frontierStamps;
+	/** the number of steps run */
+	private int step;
+
+	/**
+	 * Constructor for the search
+	 *
+	 * @param graph
+	 *            the snapshot to search
+	 * @param pool
+	 *            the pool the steps run on
+	 * @param infinity
+	 *            the distance to unreachable nodes
+	 */
+	DeltaStepping(GraphSnapshot graph, ForkJoinPool pool, double infinity)
+	{
+		this(graph, pool, infinity, SEQUENTIAL_FRONTIER, CHUNK);
+	}
+
+
+	/**
+	 * Constructor for the search with the sizes of its parallel steps
+	 *
+	 * @param graph
+	 *            the snapshot to search
+	 * @param pool
+	 *            the pool the steps run on
+	 * @param infinity
+	 *            the distance to unreachable nodes
+	 * @param sequentialFrontier
+	 *            the number of frontier nodes below which a step runs on the
+	 *            calling thread, 1 to run every step in parallel tasks
+	 * @param chunk
+	 *            the number of nodes of each parallel task
+	 */
+	DeltaStepping(GraphSnapshot graph, ForkJoinPool pool, double infinity, int sequentialFrontier, int chunk)
+	{
+		this.graph = graph;
+		this.pool = pool;
+		this.infinity = infinity;
+		this.delta = averageWeight(graph);
+		this.sequentialFrontier = sequentialFrontier;
+		this.chunk = chunk;
+		this.distances = new AtomicLongArray(graph.nodeCount());
+		this.frontierStamps = new int[graph.nodeCount()];
+		this.step = 0;
+	}
+
+
+	/**
+	 * Returns the width of the buckets, the average edge weight of the
+	 * snapshot, so a bucket holds about one edge of depth of the search
+	 *
+	 * @param graph
+	 *            the snapshot
+	 * @return the width of the buckets, 1 if every edge weighs nothing
+	 */
+	private static double averageWeight(GraphSnapshot graph)
+	{
+		double sum = 0.;
+		for (int edge = 0; edge < graph.edgeCount(); edge++)
+			sum += graph.edgeWeight(edge);
+
+		return sum > 0. ? sum / graph.edgeCount() : 1.;
+	}
+
+
+	/**
+	 * Computes the shortest distance from every node to a target, and the
+	 * tree of the shortest paths to the target
+	 *
+	 * @param target
+	 *            the id of the node to compute the distances to
+	 * @param nextEdges
+	 *            filled with the id of the edge from each node towards the
+	 *            target in the tree, -1 for the target and the nodes that
+	 *            can't reach it
+	 * @return the distance of each node to the target, infinity if the
+	 *         target is unreachable. null if the rounding of the distances
+	 *         left a node without an edge to build the tree with
+	 */
+	double[] reverseDistances(int target, int[] nextEdges)
+	{
+		long unreachable = Double.doubleToRawLongBits(infinity);
+		for (int node = 0; node < graph.nodeCount(); node++)
+			distances.set(node, unreachable);
+		distances.set(target, Double.doubleToRawLongBits(0.));
+
+		// the non empty buckets of the nodes to relax, by index. a node may
+		// sit in several buckets, the stale entries are skipped
+		TreeMap<Integer, IntList> buckets = new TreeMap<Integer, IntList>();
+		bucket(buckets, 0).add(target);
+
+		while (!buckets.isEmpty())
+		{
+			Map.Entry<Integer, IntList> first = buckets.firstEntry();
+			int b = first.getKey();
+			IntList bucket = first.getValue();
+			while (bucket.size > 0)
+			{
+				int[] frontier = frontier(bucket, b);
+				bucket.size = 0;
+
+				// the nodes whose distance dropped go to the bucket of their
+				// new distance, which is never lower than this one
+				for (IntList lowered : relax(frontier))
+				{
+					for (int i = 0; i < lowered.size; i++)
+					{
+						int node = lowered.data[i];
+						bucket(buckets, bucketOf(distance(node))).add(node);
+					}
+				}
+			}
+
+			buckets.remove(b);
+		}
+
+		double[] result = new double[graph.nodeCount()];
+		for (int node = 0; node < result.length; node++)
+			result[node] = distance(node);
+
+		return buildTree(result, target, nextEdges) ? result : null;
+	}
+
+
+	/**
+	 * Takes the nodes of a bucket that are still at a distance within it,
+	 * each once
+	 *
+	 * @param bucket
+	 *            the bucket
+	 * @param b
+	 *            the index of the bucket
+	 * @return the ids of the nodes to relax
+	 */
+	private int[] frontier(IntList bucket, int b)
+	{
+		step++;
+		int[] frontier = new int[bucket.size];
+		int size = 0;
+		for (int i = 0; i < bucket.size; i++)
+		{
+			int node = bucket.data[i];
+			if (frontierStamps[node] != step && bucketOf(distance(node)) == b)
+			{
+				frontierStamps[node] = step;
+				frontier[size++] = node;
+			}
+		}
+
+		return Arrays.copyOf(frontier, size);
+	}
+
+
+	/**
+	 * Relaxes the incoming edges of the nodes of a frontier, in parallel
+	 * tasks if the frontier is large
+	 *
+	 * @param frontier
+	 *            the ids of the nodes to relax
+	 * @return the ids of the nodes whose distance dropped, one list per task
+	 */
+	private List<IntList> relax(final int[] frontier)
+	{
+		if (frontier.length < sequentialFrontier)
+			return Arrays.asList(relax(frontier, 0, frontier.length));
+
+		ArrayList<Callable<IntList>> tasks = new ArrayList<Callable<IntList>>();
+		for (int begin = 0; begin < frontier.length; begin += chunk)
+		{
+			final int from = begin;
+			final int to = Math.min(begin + chunk, frontier.length);
+			tasks.add(new Callable<IntList>() {
+				@Override
+				public IntList call()
+				{
+					return relax(frontier, from, to);
+				}
+			});
+		}
+
+		ArrayList<IntList> lowered = new ArrayList<IntList>(tasks.size());
+		try
+		{
+			for (Future<IntList> result : pool.invokeAll(tasks))
+				lowered.add(result.get());
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while computing the distances to the target", e);
+		}
+		catch (ExecutionException e)
+		{
+			throw new IllegalStateException("Computing the distances to the target failed", e.getCause());
+		}
+
+		return lowered;
+	}
+
+
+	/**
+	 * Relaxes the incoming edges of a range of the nodes of a frontier
+	 *
+	 * @param frontier
+	 *            the ids of the nodes to relax
+	 * @param from
+	 *            the first index of the range
+	 * @param to
+	 *            the index past the range
+	 * @return the ids of the nodes whose distance dropped
+	 */
+	private IntList relax(int[] frontier, int from, int to)
+	{
+		IntList lowered = new IntList();
+		for (int i = from; i < to; i++)
+		{
+			int current = frontier[i];
+			double distance = distance(current);
+
+			for (int slot = graph.inBegin(current); slot < graph.inEnd(current); slot++)
+			{
+				int neighbor = graph.inSource(slot);
+				double newCost = distance + graph.inWeight(slot);
+
+				// lowers the distance unless another task lowered it further
+				long bits = distances.get(neighbor);
+				while (newCost < Double.longBitsToDouble(bits))
+				{
+					if (distances.compareAndSet(neighbor, bits, Double.doubleToRawLongBits(newCost)))
+					{
+						lowered.add(neighbor);
+						break;
+					}
+					bits = distances.get(neighbor);
+				}
+			}
+		}
+
+		return lowered;
+	}
+
+
+	/**
+	 * Builds the tree of the shortest paths to the target from the final
+	 * distances
+	 *
+	 * @param result
+	 *            the distance of each node to the target
+	 * @param target
+	 *            the id of the target
+	 * @param nextEdges
+	 *            filled with the id of the edge from each node towards the
+	 *            target in the tree
+	 * @return true if every node that reaches the target is in the tree
+	 */
+	private boolean buildTree(double[] result, int target, int[] nextEdges)
+	{
+		// the nodes with an edge to a strictly closer node take the first
+		// such edge
+		IntList tied = new IntList();
+		for (int node = 0; node < result.length; node++)
+		{
+			nextEdges[node] = -1;
+			if (node == target || result[node] == infinity)
+				continue;
+
+			for (int slot = graph.outBegin(node); slot < graph.outEnd(node); slot++)
+			{
+				int next = graph.outTarget(slot);
+				if (result[next] < result[node] && result[next] + graph.outWeight(slot) == result[node])
+				{
+					nextEdges[node] = graph.outEdge(slot);
+					break;
+				}
+			}
+
+			if (nextEdges[node] == -1)
+				tied.add(node);
+		}
+
+		// the others are attached to a node already in the tree, until none
+		// is left
+		boolean attached = true;
+		while (tied.size > 0 && attached)
+		{
+			attached = false;
+			int size = 0;
+			for (int i = 0; i < tied.size; i++)
+			{
+				int node = tied.data[i];
+				for (int slot = graph.outBegin(node); slot < graph.outEnd(node); slot++)
+				{
+					int next = graph.outTarget(slot);
+					if ((next == target || nextEdges[next] != -1)
+							&& result[next] + graph.outWeight(slot) == result[node])
+					{
+						nextEdges[node] = graph.outEdge(slot);
+						attached = true;
+						break;
+					}
+				}
+
+				if (nextEdges[node] == -1)
+					tied.data[size++] = node;
+			}
+			tied.size = size;
+		}
+
+		return tied.size == 0;
+	}
+
+
+	/**
+	 * Returns the current distance of a node to the target
+	 *
+	 * @param node
+	 *            the id of the node
+	 * @return the distance
+	 */
+	private double distance(int node)
+	{
+		return Double.longBitsToDouble(distances.get(node));
+	}
+
+
+	/**
+	 * Returns the index of the bucket of a distance
+	 *
+	 * @param distance
+	 *            the distance
+	 * @return the index of the bucket
+	 */
+	private int bucketOf(double distance)
+	{
+		return (int) Math.min(distance / delta, Integer.MAX_VALUE - 1);
+	}
+
+
+	/**
+	 * Returns a bucket, adding it if it is empty
+	 *
+	 * @param buckets
+	 *            the non empty buckets by index
+	 * @param b
+	 *            the index of the bucket
+	 * @return the bucket
+	 */
+	private static IntList bucket(TreeMap<Integer, IntList> buckets, int b)
+	{
+		IntList bucket = buckets.get(b);
+		if (bucket == null)
+		{
+			bucket = new IntList();
+			buckets.put(b, bucket);
+		}
+
+		return bucket;
+	}
+
+
+	/**
+	 * A growable list of node ids
+	 */
+	private static class IntList
+	{
+		/** the ids, the first size are in the list */
+		int[] data = new int[16];
+		/** the number of ids in the list */
+		int size;
+
+		/**
+		 * Adds an id to the list
+		 *
+		 * @param id
+		 *            the id
+		 */
+		void add(int id)
+		{
+			if (size == data.length)
+				data = Arrays.copyOf(data, 2 * size);
+
+			data[size++] = id;
+		}
+	}
+}
@@ -0,0 +1,519 @@
+package com.dpgil.pathlinker.path_linker.internal.util;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNode;
+
+/**
+ * Immutable compressed sparse row (CSR) snapshot of the network PathLinker
+ * runs on. Nodes and edges are given dense integer ids, and the outgoing and
+ * incoming adjacency of every node is stored in flat offset/target/weight
+ * arrays. The KSP algorithms run entirely on the snapshot, because querying
+ * the adjacency of a CyNetwork and looking up the weights of its edges in a
+ * map dominates runtime on large networks. CyNodes and CyEdges are only used
+ * again to map the results back to the network.
+ *
+ * The edges of the snapshot are directed. An undirected edge of the network
+ * stands for the two directed edges between its nodes, and both map back to
+ * it.
+ */
+public class GraphSnapshot
+{
+	/** the nodes of the network, indexed by their dense id */
+	private final CyNode[] nodes;
+	/** the edges of the network, indexed by their dense id */
+	private final CyEdge[] edges;
+	/** maps each node of the network to its dense id */
+	private final HashMap<CyNode, Integer> nodeIndex;
+	/** maps each edge of the network to its dense id */
+	private final HashMap<CyEdge, Integer> edgeIndex;
+
+	/** the source node id of each edge */
+	private final int[] edgeSources;
+	/** the target node id of each edge */
+	private final int[] edgeTargets;
+	/** the weight of each edge */
+	private final double[] edgeWeights;
+	/** whether each edge is an arc of an undirected edge of the network */
+	private final boolean[] undirected;
+	/** whether every edge weighs 0 or 1, so the cost of a path is its number of weighted edges */
+	private final boolean hopCount;
+
+	/** outgoing adjacency of node u is stored in slots [outOffsets[u], outOffsets[u + 1]) */
+	private final int[] outOffsets;
+	/** the target node id of each outgoing slot */
+	private final int[] outTargets;
+	/** the edge id of each outgoing slot */
+	private final int[] outEdges;
+	/** the edge weight of each outgoing slot */
+	private final double[] outWeights;
+
+	/** incoming adjacency of node v is stored in slots [inOffsets[v], inOffsets[v + 1]) */
+	private final int[] inOffsets;
+	/** the source node id of each incoming slot */
+	private final int[] inSources;
+	/** the edge id of each incoming slot */
+	private final int[] inEdges;
+	/** the edge weight of each incoming slot */
+	private final double[] inWeights;
+
+	/**
+	 * Builds the snapshot of a network. A directed edge is one arc from its
+	 * source to its target. An undirected edge is two arcs, from its source to
+	 * its target and back, with consecutive ids as if the network held the two
+	 * directed edges in its place, so a network treated as undirected doesn't
+	 * have to be copied with every edge doubled. The arcs are the edges the
+	 * algorithms search, and are what the ids of the edges of the snapshot
+	 * refer to.
+	 *
+	 * @param network
+	 *            the network to take the snapshot of
+	 * @param weights
+	 *            the weight of each edge of the network
+	 */
+	public GraphSnapshot(CyNetwork network, Map<CyEdge, Double> weights)
+	{
+		List<CyNode> nodeList = network.getNodeList();
+		List<CyEdge> edgeList = network.getEdgeList();
+		int n = nodeList.size();
+
+		nodes = new CyNode[n];
+		nodeIndex = new HashMap<CyNode, Integer>(2 * n);
+		for (int i = 0; i < n; i++)
+		{
+			nodes[i] = nodeList.get(i);
+			nodeIndex.put(nodes[i], i);
+		}
+
+		// an undirected self-loop is a single arc, like the two directed
+		// copies of it would have been merged into one
+		int m = 0;
+		for (CyEdge edge : edgeList)
+			m += isSymmetric(edge) ? 2 : 1;
+
+		edges = new CyEdge[m];
+		edgeIndex = new HashMap<CyEdge, Integer>(2 * edgeList.size());
+		edgeSources = new int[m];
+		edgeTargets = new int[m];
+		edgeWeights = new double[m];
+		undirected = new boolean[m];
+		outOffsets = new int[n + 1];
+		inOffsets = new int[n + 1];
+
+		int e = 0;
+		boolean unitWeights = true;
+		for (CyEdge edge : edgeList)
+		{
+			Double weight = weights.get(edge);
+			// a very noticeable and obscure number if the weight is missing
+			double w = weight != null ? weight : -44444;
+			unitWeights &= w == 0. || w == 1.;
+			int source = nodeIndex.get(edge.getSource());
+			int target = nodeIndex.get(edge.getTarget());
+
+			edgeIndex.put(edge, e);
+			addArc(e++, edge, source, target, w);
+			if (isSymmetric(edge))
+				addArc(e++, edge, target, source, w);
+		}
+		hopCount = unitWeights;
+
+		// prefix sums of the degrees give the start of each node's slots
+		for (int i = 0; i < n; i++)
+		{
+			outOffsets[i + 1] += outOffsets[i];
+			inOffsets[i + 1] += inOffsets[i];
+		}
+
+		outTargets = new int[m];
+		outEdges = new int[m];
+		outWeights = new double[m];
+		inSources = new int[m];
+		inEdges = new int[m];
+		inWeights = new double[m];
+
+		// fills the slots, keeping the order of the edge list within a node
+		int[] outNext = new int[n];
+		int[] inNext = new int[n];
+		System.arraycopy(outOffsets, 0, outNext, 0, n);
+		System.arraycopy(inOffsets, 0, inNext, 0, n);
+		for (e = 0; e < m; e++)
+		{
+			int outSlot = outNext[edgeSources[e]]++;
+			outTargets[outSlot] = edgeTargets[e];
+			outEdges[outSlot] = e;
+			outWeights[outSlot] = edgeWeights[e];
+
+			int inSlot = inNext[edgeTargets[e]]++;
+			inSources[inSlot] = edgeSources[e];
+			inEdges[inSlot] = e;
+			inWeights[inSlot] = edgeWeights[e];
+		}
+	}
+
+
+	/**
+	 * Returns if an edge of the network is searched in both directions
+	 *
+	 * @param edge
+	 *            the edge
+	 * @return true if the edge is undirected and not a self-loop
+	 */
+	private static boolean isSymmetric(CyEdge edge)
+	{
+		return !edge.isDirected() && edge.getSource() != edge.getTarget();
+	}
+
+
+	/**
+	 * Sets an arc of an edge of the network and counts it in the degrees of
+	 * its nodes
+	 *
+	 * @param e
+	 *            the id of the arc
+	 * @param edge
+	 *            the edge of the network
+	 * @param source
+	 *            the id of the node the arc leaves
+	 * @param target
+	 *            the id of the node the arc enters
+	 * @param weight
+	 *            the weight of the edge
+	 */
+	private void addArc(int e, CyEdge edge, int source, int target, double weight)
+	{
+		edges[e] = edge;
+		edgeSources[e] = source;
+		edgeTargets[e] = target;
+		edgeWeights[e] = weight;
+		undirected[e] = !edge.isDirected();
+
+		outOffsets[source + 1]++;
+		inOffsets[target + 1]++;
+	}
+
+
+	/**
+	 * Returns if every edge weighs 0 or 1, as with the unweighted option
+	 * where the edges of the super nodes weigh 0 and the others 1. The cost
+	 * of a path is then a whole number of edges, and the searches can run on
+	 * integer costs
+	 *
+	 * @return true if every edge weighs 0 or 1, false otherwise
+	 */
+	public boolean isHopCount()
+	{
+		return hopCount;
+	}
+
+
+	/**
+	 * Returns the number of nodes in the snapshot
+	 *
+	 * @return the number of nodes
+	 */
+	public int nodeCount()
+	{
+		return nodes.length;
+	}
+
+
+	/**
+	 * Returns the number of edges in the snapshot
+	 *
+	 * @return the number of edges
+	 */
+	public int edgeCount()
+	{
+		return edges.length;
+	}
+
+
+	/**
+	 * Returns the node with the given id
+	 *
+	 * @param node
+	 *            the id of the node
+	 * @return the node
+	 */
+	public CyNode getNode(int node)
+	{
+		return nodes[node];
+	}
+
+
+	/**
+	 * Returns the nodes of the snapshot indexed by id. The array is shared,
+	 * so paths can map their node ids back to the network without keeping
+	 * the whole snapshot, and must not be modified
+	 *
+	 * @return the nodes of the snapshot
+	 */
+	CyNode[] nodes()
+	{
+		return nodes;
+	}
+
+
+	/**
+	 * Returns the edges of the snapshot indexed by id. The array is shared
+	 * like the array of nodes, and must not be modified
+	 *
+	 * @return the edges of the snapshot
+	 */
+	CyEdge[] edges()
+	{
+		return edges;
+	}
+
+
+	/**
+	 * Returns the id of a node
+	 *
+	 * @param node
+	 *            the node
+	 * @return the id of the node, -1 if the node is not in the snapshot
+	 */
+	public int getIndex(CyNode node)
+	{
+		Integer index = nodeIndex.get(node);
+		return index != null ? index : -1;
+	}
+
+
+	/**
+	 * Returns the edge with the given id
+	 *
+	 * @param edge
+	 *            the id of the edge
+	 * @return the edge
+	 */
+	public CyEdge getEdge(int edge)
+	{
+		return edges[edge];
+	}
+
+
+	/**
+	 * Returns the id of an edge. The id of an undirected edge is the id of
+	 * the edge from its source to its target, the edge back has the next id
+	 *
+	 * @param edge
+	 *            the edge
+	 * @return the id of the edge, -1 if the edge is not in the snapshot
+	 */
+	public int getEdgeIndex(CyEdge edge)
+	{
+		Integer index = edgeIndex.get(edge);
+		return index != null ? index : -1;
+	}
+
+
+	/**
+	 * Returns the source node id of an edge
+	 *
+	 * @param edge
+	 *            the id of the edge
+	 * @return the id of the source node
+	 */
+	public int edgeSource(int edge)
+	{
+		return edgeSources[edge];
+	}
+
+
+	/**
+	 * Returns the target node id of an edge
+	 *
+	 * @param edge
+	 *            the id of the edge
+	 * @return the id of the target node
+	 */
+	public int edgeTarget(int edge)
+	{
+		return edgeTargets[edge];
+	}
+
+
+	/**
+	 * Returns the weight of an edge
+	 *
+	 * @param edge
+	 *            the id of the edge
+	 * @return the weight of the edge
+	 */
+	public double edgeWeight(int edge)
+	{
+		return edgeWeights[edge];
+	}
+
+
+	/**
+	 * Returns if an edge stands for one direction of an undirected edge of
+	 * the network
+	 *
+	 * @param edge
+	 *            the id of the edge
+	 * @return true if the edge of the network is undirected, false otherwise
+	 */
+	public boolean isUndirected(int edge)
+	{
+		return undirected[edge];
+	}
+
+
+	/**
+	 * Returns the first outgoing slot of a node
+	 *
+	 * @param node
+	 *            the id of the node
+	 * @return the first outgoing slot
+	 */
+	public int outBegin(int node)
+	{
+		return outOffsets[node];
+	}
+
+
+	/**
+	 * Returns the slot after the last outgoing slot of a node
+	 *
+	 * @param node
+	 *            the id of the node
+	 * @return the end of the outgoing slots
+	 */
+	public int outEnd(int node)
+	{
+		return outOffsets[node + 1];
+	}
+
+
+	/**
+	 * Returns the target node id of an outgoing slot
+	 *
+	 * @param slot
+	 *            the outgoing slot
+	 * @return the id of the target node
+	 */
+	public int outTarget(int slot)
+	{
+		return outTargets[slot];
+	}
+
+
+	/**
+	 * Returns the edge id of an outgoing slot
+	 *
+	 * @param slot
+	 *            the outgoing slot
+	 * @return the id of the edge
+	 */
+	public int outEdge(int slot)
+	{
+		return outEdges[slot];
+	}
+
+
+	/**
+	 * Returns the edge weight of an outgoing slot
+	 *
+	 * @param slot
+	 *            the outgoing slot
+	 * @return the weight of the edge
+	 */
+	public double outWeight(int slot)
+	{
+		return outWeights[slot];
+	}
+
+
+	/**
+	 * Returns the first incoming slot of a node
+	 *
+	 * @param node
+	 *            the id of the node
+	 * @return the first incoming slot
+	 */
+	public int inBegin(int node)
+	{
+		return inOffsets[node];
+	}
+
+
+	/**
+	 * Returns the slot after the last incoming slot of a node
+	 *
+	 * @param node
+	 *            the id of the node
+	 * @return the end of the incoming slots
+	 */
+	public int inEnd(int node)
+	{
+		return inOffsets[node + 1];
+	}
+
+
+	/**
+	 * Returns the source node id of an incoming slot
+	 *
+	 * @param slot
+	 *            the incoming slot
+	 * @return the id of the source node
+	 */
+	public int inSource(int slot)
+	{
+		return inSources[slot];
+	}
+
+
+	/**
+	 * Returns the edge id of an incoming slot
+	 *
+	 * @param slot
+	 *            the incoming slot
+	 * @return the id of the edge
+	 */
+	public int inEdge(int slot)
+	{
+		return inEdges[slot];
+	}
+
+
+	/**
+	 * Returns the edge weight of an incoming slot
+	 *
+	 * @param slot
+	 *            the incoming slot
+	 * @return the weight of the edge
+	 */
+	public double inWeight(int slot)
+	{
+		return inWeights[slot];
+	}
+
+
+	/**
+	 * Returns the id of an edge directed from source to target. PathLinker
+	 * does not support multi-graphs, so the first such edge is returned
+	 *
+	 * @param source
+	 *            the id of the source node
+	 * @param target
+	 *            the id of the target node
+	 * @return the id of the edge, -1 if there is no such edge
+	 */
+	public int findEdge(int source, int target)
+	{
+		for (int slot = outOffsets[source]; slot < outOffsets[source + 1]; slot++)
+		{
+			if (outTargets[slot] == target)
+				return outEdges[slot];
+		}
+
+		return -1;
+	}
+}
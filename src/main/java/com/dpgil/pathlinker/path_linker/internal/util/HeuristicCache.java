@@ -0,0 +1,589 @@
+package com.dpgil.pathlinker.path_linker.internal.util;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.model.CyTable;
+import org.cytoscape.model.subnetwork.CySubNetwork;
+
+/**
+ * Keeps the distances to the target and the tree of the shortest paths of
+ * previous runs of the KSP algorithm, so runs on the same network with the
+ * same weights and targets don't compute them again. Only the sources or k
+ * may differ between such runs. The distances of the reverse search don't
+ * depend on the sources, because the super source has no incoming edges and
+ * the hidden edges are only hidden from the spur searches.
+ *
+ * Every run builds a new copy of the network with new edges and a new super
+ * source and super target, so an entry keeps the nodes of the original
+ * network that reach the target, and for each the next node of its tree
+ * path. The entry is mapped back onto the snapshot of a later run through
+ * the nodes. The entries are evicted least recently used first once they
+ * take more than the capacity of the cache, and dropped when the network or
+ * its weight column changes.
+ *
+ * The distances read from the cache are the ones the run would compute. The
+ * tree is rebuilt from them on the snapshot of the run with the tie-break of
+ * the reverse search, so it is the tree the run would compute too, whatever
+ * order the edges of the earlier run's copy had.
+ *
+ * The cache also keeps the landmarks of a network and its weights, which
+ * don't depend on the targets, for the runs that guide their searches with
+ * the landmarks rather than the exact distances.
+ */
+public class HeuristicCache
+{
+	/** the memory the entries may take by default, in bytes */
+	public static final long DEFAULT_CAPACITY = 64L << 20;
+
+	/** the estimated memory of an entry beyond its arrays, in bytes */
+	private static final long ENTRY_OVERHEAD = 256;
+	/** the estimated memory of each node of an entry, its reference, distance and next node */
+	private static final long NODE_BYTES = 8 + 8 + 4;
+	/** the next node of the nodes whose tree path continues to the target */
+	private static final int TO_TARGET = -1;
+
+	/**
+	 * Identifies the runs whose reverse search gives the same distances: the
+	 * network, the configuration of its weights and the targets
+	 */
+	public static final class Key
+	{
+		/** the original network the run is on */
+		final CyNetwork network;
+		/** the column of the edge weights, null if the run is unweighted */
+		final String column;
+		/** the type of the edge weights */
+		final EdgeWeightType edgeWeightType;
+		/** the penalty of each edge, null if the run is unweighted */
+		final Double edgePenalty;
+		/** whether the network is treated as undirected */
+		final boolean undirected;
+		/** the targets the super target is attached to, null for the landmarks */
+		final Set<CyNode> targets;
+		/** the hash of the key */
+		private final int hash;
+
+		/**
+		 * Constructor for the key of a run
+		 *
+		 * @param network
+		 *            the original network the run is on
+		 * @param column
+		 *            the column of the edge weights
+		 * @param edgeWeightType
+		 *            the type of the edge weights
+		 * @param edgePenalty
+		 *            the penalty of each edge
+		 * @param undirected
+		 *            whether the network is treated as undirected
+		 * @param targets
+		 *            the targets the super target is attached to
+		 */
+		public Key(CyNetwork network, String column, EdgeWeightType edgeWeightType, Double edgePenalty,
+				boolean undirected, Iterable<CyNode> targets)
+		{
+			// the weights of an unweighted run don't depend on the column or
+			// the penalty
+			boolean weighted = edgeWeightType != EdgeWeightType.UNWEIGHTED;
+
+			this.network = network;
+			this.column = weighted ? column : null;
+			this.edgeWeightType = edgeWeightType;
+			this.edgePenalty = weighted ? edgePenalty : null;
+			this.undirected = undirected;
+			this.targets = new HashSet<CyNode>();
+			for (CyNode target : targets)
+				this.targets.add(target);
+
+			this.hash = Objects.hash(network.getSUID(), this.column, edgeWeightType, this.edgePenalty, undirected,
+					this.targets);
+		}
+
+
+		/**
+		 * Constructor for the key of the landmarks of a run
+		 *
+		 * @param run
+		 *            the key of the run
+		 */
+		private Key(Key run)
+		{
+			this.network = run.network;
+			this.column = run.column;
+			this.edgeWeightType = run.edgeWeightType;
+			this.edgePenalty = run.edgePenalty;
+			this.undirected = run.undirected;
+			this.targets = null;
+			this.hash = Objects.hash(network.getSUID(), column, edgeWeightType, edgePenalty, undirected);
+		}
+
+
+		@Override
+		public boolean equals(Object o)
+		{
+			if (this == o)
+				return true;
+			if (!(o instanceof Key))
+				return false;
+
+			Key other = (Key) o;
+			return network == other.network && undirected == other.undirected
+					&& edgeWeightType == other.edgeWeightType && Objects.equals(column, other.column)
+					&& Objects.equals(edgePenalty, other.edgePenalty) && Objects.equals(targets, other.targets);
+		}
+
+
+		@Override
+		public int hashCode()
+		{
+			return hash;
+		}
+	}
+
+	/**
+	 * An entry of the cache
+	 */
+	private abstract static class Entry
+	{
+		/**
+		 * Returns the estimated memory the entry takes
+		 *
+		 * @return the memory in bytes
+		 */
+		abstract long bytes();
+	}
+
+	/**
+	 * The distances and the tree of the shortest paths of a run
+	 */
+	private static class DistanceEntry extends Entry
+	{
+		/** the nodes that reach the target, except the target and the super source */
+		final CyNode[] nodes;
+		/** the distance of each node to the target */
+		final double[] distances;
+		/** the index in the entry of the next node of each node in the tree, TO_TARGET if it is the target */
+		final int[] next;
+
+		/**
+		 * Constructor for the entry
+		 *
+		 * @param nodes
+		 *            the nodes that reach the target
+		 * @param distances
+		 *            the distance of each node
+		 * @param next
+		 *            the index of the next node of each node in the tree
+		 */
+		DistanceEntry(CyNode[] nodes, double[] distances, int[] next)
+		{
+			this.nodes = nodes;
+			this.distances = distances;
+			this.next = next;
+		}
+
+
+		@Override
+		long bytes()
+		{
+			return ENTRY_OVERHEAD + NODE_BYTES * nodes.length;
+		}
+	}
+
+	/**
+	 * The landmarks of a network and its weights
+	 */
+	private static class LandmarkEntry extends Entry
+	{
+		/** the number of landmarks the run asked for, there may be fewer nodes */
+		final int count;
+		/** the landmarks and their tables */
+		final Landmarks landmarks;
+
+		/**
+		 * Constructor for the entry
+		 *
+		 * @param count
+		 *            the number of landmarks the run asked for
+		 * @param landmarks
+		 *            the landmarks and their tables
+		 */
+		LandmarkEntry(int count, Landmarks landmarks)
+		{
+			this.count = count;
+			this.landmarks = landmarks;
+		}
+
+
+		@Override
+		long bytes()
+		{
+			return ENTRY_OVERHEAD + landmarks.bytes();
+		}
+	}
+
+	/** the entries, least recently used first */
+	private final LinkedHashMap<Key, Entry> entries;
+	/** the memory the entries may take, in bytes */
+	private final long capacity;
+	/** the memory the entries take, in bytes */
+	private long size;
+	/** the number of lookups answered from the cache */
+	private long hits;
+	/** the number of lookups that found no entry */
+	private long misses;
+
+	/**
+	 * Constructor for an empty cache of the default capacity
+	 */
+	public HeuristicCache()
+	{
+		this(DEFAULT_CAPACITY);
+	}
+
+
+	/**
+	 * Constructor for an empty cache
+	 *
+	 * @param capacity
+	 *            the memory the entries may take, in bytes
+	 */
+	public HeuristicCache(long capacity)
+	{
+		this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+		this.capacity = capacity;
+	}
+
+
+	/**
+	 * Fills the distances to the target and the tree of the shortest paths of
+	 * a run from the entry of an earlier run with the same key
+	 *
+	 * @param key
+	 *            the key of the run
+	 * @param graph
+	 *            the snapshot of the run
+	 * @param source
+	 *            the id of the super source of the run
+	 * @param target
+	 *            the id of the super target of the run
+	 * @param nextEdges
+	 *            filled with the id of the edge from each node towards the
+	 *            target in the tree, -1 for the target and the nodes that
+	 *            can't reach it
+	 * @return the distance of each node to the target, null if there is no
+	 *         entry for the key or it doesn't fit the snapshot
+	 */
+	public double[] get(Key key, GraphSnapshot graph, int source, int target, int[] nextEdges)
+	{
+		DistanceEntry entry;
+		synchronized (this)
+		{
+			entry = (DistanceEntry) entries.get(key);
+			if (entry == null)
+			{
+				misses++;
+				return null;
+			}
+		}
+
+		// the ids of the nodes of the entry in this snapshot
+		int[] ids = new int[entry.nodes.length];
+		for (int i = 0; i < ids.length; i++)
+		{
+			ids[i] = graph.getIndex(entry.nodes[i]);
+			if (ids[i] == -1)
+				return miss();
+		}
+
+		// the nodes that are not in the entry can't reach the target
+		double[] distances = new double[graph.nodeCount()];
+		Arrays.fill(distances, Algorithms.INFINITY);
+		Arrays.fill(nextEdges, -1);
+		distances[target] = 0.;
+
+		for (int i = 0; i < ids.length; i++)
+		{
+			int next = entry.next[i] == TO_TARGET ? target : ids[entry.next[i]];
+			int edge = graph.findEdge(ids[i], next);
+			if (edge == -1)
+				return miss();
+
+			distances[ids[i]] = entry.distances[i];
+			nextEdges[ids[i]] = edge;
+		}
+
+		// the super source is attached to other sources in every run, its
+		// distance is the lightest of its edges
+		if (distances[source] == Algorithms.INFINITY)
+		{
+			for (int slot = graph.outBegin(source); slot < graph.outEnd(source); slot++)
+			{
+				double distance = graph.outWeight(slot) + distances[graph.outTarget(slot)];
+				if (distance < distances[source])
+				{
+					distances[source] = distance;
+					nextEdges[source] = graph.outEdge(slot);
+				}
+			}
+		}
+
+		// the edges of the entry are shortest paths, the tree takes the same
+		// of several as the reverse search on this snapshot
+		Algorithms.canonicalTree(graph, target, distances, nextEdges);
+
+		synchronized (this)
+		{
+			hits++;
+		}
+
+		return distances;
+	}
+
+
+	/**
+	 * Counts a lookup whose entry doesn't fit the snapshot
+	 *
+	 * @return null
+	 */
+	private synchronized double[] miss()
+	{
+		misses++;
+		return null;
+	}
+
+
+	/**
+	 * Keeps the distances to the target and the tree of the shortest paths of
+	 * a run, evicting the least recently used entries beyond the capacity
+	 *
+	 * @param key
+	 *            the key of the run
+	 * @param graph
+	 *            the snapshot of the run
+	 * @param source
+	 *            the id of the super source of the run
+	 * @param target
+	 *            the id of the super target of the run
+	 * @param distances
+	 *            the distance of each node to the target
+	 * @param nextEdges
+	 *            the id of the edge from each node towards the target in the
+	 *            tree
+	 */
+	public void put(Key key, GraphSnapshot graph, int source, int target, double[] distances, int[] nextEdges)
+	{
+		// the index in the entry of each node of the snapshot it keeps. the
+		// super source is kept only if it has incoming edges, as the other
+		// nodes may then reach the target through it
+		boolean keepSource = graph.inBegin(source) != graph.inEnd(source);
+		int[] positions = new int[graph.nodeCount()];
+		int count = 0;
+		for (int node = 0; node < positions.length; node++)
+		{
+			boolean kept = node != target && nextEdges[node] != -1 && (node != source || keepSource);
+			positions[node] = kept ? count++ : -1;
+		}
+
+		CyNode[] nodes = new CyNode[count];
+		double[] entryDistances = new double[count];
+		int[] next = new int[count];
+		for (int node = 0; node < positions.length; node++)
+		{
+			int i = positions[node];
+			if (i == -1)
+				continue;
+
+			int nextNode = graph.edgeTarget(nextEdges[node]);
+			nodes[i] = graph.getNode(node);
+			entryDistances[i] = distances[node];
+			next[i] = nextNode == target ? TO_TARGET : positions[nextNode];
+		}
+
+		store(key, new DistanceEntry(nodes, entryDistances, next));
+	}
+
+
+	/**
+	 * Returns the landmarks of the network and the weights of a run
+	 *
+	 * @param key
+	 *            the key of the run, whose targets are ignored
+	 * @param count
+	 *            the number of landmarks of the run
+	 * @return the landmarks, null if there is no entry for them or it has
+	 *         another number of landmarks
+	 */
+	public synchronized Landmarks getLandmarks(Key key, int count)
+	{
+		LandmarkEntry entry = (LandmarkEntry) entries.get(new Key(key));
+		return entry != null && entry.count == count ? entry.landmarks : null;
+	}
+
+
+	/**
+	 * Keeps the landmarks of the network and the weights of a run, evicting
+	 * the least recently used entries beyond the capacity
+	 *
+	 * @param key
+	 *            the key of the run, whose targets are ignored
+	 * @param count
+	 *            the number of landmarks the run asked for
+	 * @param landmarks
+	 *            the landmarks and their tables
+	 */
+	public void putLandmarks(Key key, int count, Landmarks landmarks)
+	{
+		store(new Key(key), new LandmarkEntry(count, landmarks));
+	}
+
+
+	/**
+	 * Adds an entry, evicting the least recently used entries beyond the
+	 * capacity
+	 *
+	 * @param key
+	 *            the key of the entry
+	 * @param entry
+	 *            the entry
+	 */
+	private void store(Key key, Entry entry)
+	{
+		if (entry.bytes() > capacity)
+			return;
+
+		synchronized (this)
+		{
+			Entry previous = entries.put(key, entry);
+			if (previous != null)
+				size -= previous.bytes();
+			size += entry.bytes();
+
+			Iterator<Entry> eldest = entries.values().iterator();
+			while (size > capacity)
+			{
+				size -= eldest.next().bytes();
+				eldest.remove();
+			}
+		}
+	}
+
+
+	/**
+	 * Drops the entries of a network, after its nodes or edges changed
+	 *
+	 * @param network
+	 *            the network
+	 */
+	public synchronized void invalidate(CyNetwork network)
+	{
+		Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+		while (it.hasNext())
+		{
+			Map.Entry<Key, Entry> entry = it.next();
+			if (entry.getKey().network == network)
+			{
+				size -= entry.getValue().bytes();
+				it.remove();
+			}
+		}
+	}
+
+
+	/**
+	 * Drops the entries whose weights come from a column of an edge table,
+	 * after the values of the column changed
+	 *
+	 * @param table
+	 *            the table
+	 * @param column
+	 *            the name of the column
+	 */
+	public synchronized void invalidate(CyTable table, String column)
+	{
+		Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+		while (it.hasNext())
+		{
+			Map.Entry<Key, Entry> entry = it.next();
+			Key key = entry.getKey();
+			if (column.equals(key.column) && isEdgeTable(key.network, table))
+			{
+				size -= entry.getValue().bytes();
+				it.remove();
+			}
+		}
+	}
+
+
+	/**
+	 * Returns if a table holds the edge columns of a network
+	 *
+	 * @param network
+	 *            the network
+	 * @param table
+	 *            the table
+	 * @return true if the table is the default edge table of the network or
+	 *         the shared edge table of its root network
+	 */
+	public static boolean isEdgeTable(CyNetwork network, CyTable table)
+	{
+		if (table == network.getDefaultEdgeTable())
+			return true;
+
+		if (network instanceof CySubNetwork)
+			return table == ((CySubNetwork) network).getRootNetwork().getSharedEdgeTable();
+
+		return false;
+	}
+
+
+	/**
+	 * Drops all the entries
+	 */
+	public synchronized void clear()
+	{
+		entries.clear();
+		size = 0;
+	}
+
+
+	/**
+	 * Returns the memory the entries take
+	 *
+	 * @return the estimated memory in bytes
+	 */
+	public synchronized long size()
+	{
+		return size;
+	}
+
+
+	/**
+	 * Returns the number of lookups answered from the cache
+	 *
+	 * @return the number of hits
+	 */
+	public synchronized long getHits()
+	{
+		return hits;
+	}
+
+
+	/**
+	 * Returns the number of lookups that found no entry fitting the snapshot
+	 *
+	 * @return the number of misses
+	 */
+	public synchronized long getMisses()
+	{
+		return misses;
+	}
+}
@@ -0,0 +1,310 @@
+package com.dpgil.pathlinker.path_linker.internal.util;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Indexed d-ary min-heap over the integer ids [0, capacity) keyed by
+ * primitive doubles. Every id is in the heap at most once, and its position
+ * is tracked so the key of an id already in the heap can be decreased in
+ * place. This replaces the remove-and-add pattern on a
+ * java.util.PriorityQueue, whose remove is a linear scan.
+ */
+public class IndexedHeap
+{
+	/** the arity used when none is given, a good fit for sparse graphs */
+	public static final int DEFAULT_ARITY = 4;
+
+	/** the number of children of each heap slot */
+	private final int arity;
+	/** the ids in heap order */
+	private final int[] heap;
+	/** the key of each id */
+	private final double[] keys;
+	/** the heap slot of each id, -1 if the id is not in the heap */
+	private final int[] positions;
+	/** the number of ids in the heap */
+	private int size;
+
+	/**
+	 * Constructor for a heap of the default arity
+	 *
+	 * @param capacity
+	 *            the number of ids, the heap holds the ids [0, capacity)
+	 */
+	public IndexedHeap(int capacity)
+	{
+		this(capacity, DEFAULT_ARITY);
+	}
+
+
+	/**
+	 * Constructor for the heap
+	 *
+	 * @param capacity
+	 *            the number of ids, the heap holds the ids [0, capacity)
+	 * @param arity
+	 *            the number of children of each heap slot, at least 2
+	 */
+	public IndexedHeap(int capacity, int arity)
+	{
+		if (arity < 2)
+			throw new IllegalArgumentException("The arity of the heap must be at least 2");
+
+		this.arity = arity;
+		this.heap = new int[capacity];
+		this.keys = new double[capacity];
+		this.positions = new int[capacity];
+		Arrays.fill(positions, -1);
+	}
+
+
+	/**
+	 * Returns the number of ids in the heap
+	 *
+	 * @return the size of the heap
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+
+	/**
+	 * Returns if the heap is empty
+	 *
+	 * @return true if the heap holds no ids, false otherwise
+	 */
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+
+	/**
+	 * Returns if an id is in the heap
+	 *
+	 * @param id
+	 *            the id to check
+	 * @return true if the id is in the heap, false otherwise
+	 */
+	public boolean contains(int id)
+	{
+		return positions[id] != -1;
+	}
+
+
+	/**
+	 * Returns the key of an id in the heap
+	 *
+	 * @param id
+	 *            the id, must be in the heap
+	 * @return the key of the id
+	 */
+	public double getKey(int id)
+	{
+		return keys[id];
+	}
+
+
+	/**
+	 * Adds an id to the heap, or decreases its key if it is already in the
+	 * heap with a larger key
+	 *
+	 * @param id
+	 *            the id to add
+	 * @param key
+	 *            the key of the id
+	 * @return true if the heap changed, false if the id was already in the
+	 *         heap with a smaller or equal key
+	 */
+	public boolean push(int id, double key)
+	{
+		if (positions[id] == -1)
+		{
+			insert(id, key);
+			return true;
+		}
+
+		if (key < keys[id])
+		{
+			decreaseKey(id, key);
+			return true;
+		}
+
+		return false;
+	}
+
+
+	/**
+	 * Adds an id that is not in the heap yet
+	 *
+	 * @param id
+	 *            the id to add
+	 * @param key
+	 *            the key of the id
+	 */
+	public void insert(int id, double key)
+	{
+		if (positions[id] != -1)
+			throw new IllegalStateException("Id " + id + " is already in the heap");
+
+		keys[id] = key;
+		heap[size] = id;
+		positions[id] = size;
+		size++;
+		siftUp(size - 1);
+	}
+
+
+	/**
+	 * Decreases the key of an id in the heap
+	 *
+	 * @param id
+	 *            the id, must be in the heap
+	 * @param key
+	 *            the new key, not larger than the current key
+	 */
+	public void decreaseKey(int id, double key)
+	{
+		if (positions[id] == -1)
+			throw new IllegalStateException("Id " + id + " is not in the heap");
+
+		keys[id] = key;
+		siftUp(positions[id]);
+	}
+
+
+	/**
+	 * Returns the id with the smallest key without removing it
+	 *
+	 * @return the id with the smallest key
+	 */
+	public int peek()
+	{
+		if (size == 0)
+			throw new NoSuchElementException();
+
+		return heap[0];
+	}
+
+
+	/**
+	 * Returns the smallest key in the heap
+	 *
+	 * @return the smallest key
+	 */
+	public double peekKey()
+	{
+		return keys[peek()];
+	}
+
+
+	/**
+	 * Removes the id with the smallest key from the heap
+	 *
+	 * @return the id with the smallest key
+	 */
+	public int poll()
+	{
+		int min = peek();
+
+		size--;
+		positions[min] = -1;
+		if (size > 0)
+		{
+			heap[0] = heap[size];
+			positions[heap[0]] = 0;
+			siftDown(0);
+		}
+
+		return min;
+	}
+
+
+	/**
+	 * Removes all ids from the heap. Costs time proportional to the number
+	 * of ids in the heap rather than to the capacity, so the heap can be
+	 * reused across searches that only touch a small part of the graph
+	 */
+	public void clear()
+	{
+		for (int i = 0; i < size; i++)
+			positions[heap[i]] = -1;
+
+		size = 0;
+	}
+
+
+	/**
+	 * Moves the id at a heap slot up until its parent has a smaller key
+	 *
+	 * @param slot
+	 *            the heap slot
+	 */
+	private void siftUp(int slot)
+	{
+		int id = heap[slot];
+		double key = keys[id];
+
+		while (slot > 0)
+		{
+			int parentSlot = (slot - 1) / arity;
+			int parent = heap[parentSlot];
+			if (keys[parent] <= key)
+				break;
+
+			heap[slot] = parent;
+			positions[parent] = slot;
+			slot = parentSlot;
+		}
+
+		heap[slot] = id;
+		positions[id] = slot;
+	}
+
+
+	/**
+	 * Moves the id at a heap slot down until all its children have larger
+	 * keys
+	 *
+	 * @param slot
+	 *            the heap slot
+	 */
+	private void siftDown(int slot)
+	{
+		int id = heap[slot];
+		double key = keys[id];
+
+		while (true)
+		{
+			int firstChild = slot * arity + 1;
+			if (firstChild >= size)
+				break;
+
+			// finds the child with the smallest key
+			int lastChild = Math.min(firstChild + arity, size);
+			int minSlot = firstChild;
+			double minKey = keys[heap[firstChild]];
+			for (int child = firstChild + 1; child < lastChild; child++)
+			{
+				double childKey = keys[heap[child]];
+				if (childKey < minKey)
+				{
+					minSlot = child;
+					minKey = childKey;
+				}
+			}
+
+			if (key <= minKey)
+				break;
+
+			heap[slot] = heap[minSlot];
+			positions[heap[slot]] = slot;
+			slot = minSlot;
+		}
+
+		heap[slot] = id;
+		positions[id] = slot;
+	}
+}
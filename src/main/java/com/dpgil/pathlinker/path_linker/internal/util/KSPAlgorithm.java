@@ -0,0 +1,21 @@
+package com.dpgil.pathlinker.path_linker.internal.util;
+
+/**
+ * The algorithm the k shortest paths are computed with
+ * Used by PathLinkerModel class and PathLinkerModelParams class
+ */
+public enum KSPAlgorithm {
+
+	/**
+	 * Yen's algorithm, each spur search runs A* unless the tree of the
+	 * shortest paths to the target answers it in one hop
+	 */
+	YEN,
+
+	/**
+	 * Yen's algorithm with the node classification of Feng, each spur search
+	 * stops at the first node whose shortest path to the target is still
+	 * open, so most searches stay local to the spur node
+	 */
+	NODE_CLASSIFICATION
+}
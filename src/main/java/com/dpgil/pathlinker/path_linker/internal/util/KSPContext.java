@@ -0,0 +1,683 @@
+package com.dpgil.pathlinker.path_linker.internal.util;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyNode;
+
+/**
+ * The state of a single run of the KSP algorithm. Holds the edges and nodes
+ * hidden from the spur searches and the working memory of the searches, so
+ * the algorithms themselves are stateless and several runs can proceed in
+ * parallel, each with its own context. The GraphSnapshot a context runs on
+ * can be shared freely because it is immutable.
+ *
+ * Within an iteration of Yen's algorithm, the edges hidden from the spur
+ * search at spur index i of the latest path are the incoming edges of the
+ * first i + 1 nodes of the path, and the edges leaving the spur node towards
+ * the previously found paths with the same prefix. Both only grow with i, so
+ * the context stores for every node and edge the first spur index it is
+ * hidden from. All the spur searches of an iteration can then run against
+ * the same masks, one after the other or in parallel.
+ *
+ * Each mask entry packs the epoch of the iteration that set it with the
+ * spur index, so checking an edge is a single array read and resetting the
+ * masks at the end of an iteration only starts a new epoch. The edges hidden
+ * for the whole run are stamped with an epoch that never becomes stale.
+ */
+public class KSPContext
+{
+	/** the epoch of the entries that stay hidden for the whole run */
+	private static final int PERMANENT = Integer.MAX_VALUE;
+
+	/** the snapshot the run searches */
+	private final GraphSnapshot graph;
+
+	/** the epoch and first hidden spur index of each node, packed in a long */
+	private final long[] nodeMasks;
+	/** the epoch and first hidden spur index of each edge, packed in a long */
+	private final long[] edgeMasks;
+	/** the epoch of the current iteration, entries of older epochs are stale */
+	private int epoch;
+
+	/** the search spaces not in use by a search */
+	private final ConcurrentLinkedQueue<SearchSpace> searchSpaces;
+	/** the pool the spur searches of an iteration run on, null to run them sequentially */
+	private ForkJoinPool spurSearchPool;
+	/** the counters of the work done by the run */
+	private final KSPStatistics statistics;
+	/** the algorithm the spur searches run */
+	private KSPAlgorithm algorithm = KSPAlgorithm.YEN;
+	/** the cache of the distances to the target of earlier runs, null to compute them */
+	private HeuristicCache heuristicCache;
+	/** the key of the run in the heuristic cache */
+	private HeuristicCache.Key heuristicKey;
+	/** the number of landmarks guiding the searches, 0 to guide them with the exact distances */
+	private int landmarkCount;
+	/** the bound shared with the other runs of a partitioned run, null if the run is on its own */
+	private SharedBound sharedBound;
+	/** the distances to the target shared with the other runs of a partitioned run, null to compute them */
+	private double[] heuristicDistances;
+	/** the tree of the shortest paths to the target that goes with the shared distances */
+	private int[] heuristicTree;
+	/** whether the run was cancelled, set from another thread */
+	private volatile boolean cancelled;
+	/** whether a budget of the run stopped it */
+	private volatile boolean truncated;
+	/** whether the run was cancelled or stopped by a budget, the searches stop at their next node */
+	private volatile boolean stopped;
+	/** the time the run may take in milliseconds, 0 for no limit */
+	private long maxRuntimeMillis;
+	/** the memory the paths and candidates of the run may take in bytes, 0 for no limit */
+	private long maxCandidateMemory;
+	/** the value of System.nanoTime past which the run stops, set when the run starts */
+	private long deadline;
+	/** the listener of the progress of the run, null if nobody listens */
+	private KSPProgressListener progressListener;
+
+	/**
+	 * Constructor for the context
+	 *
+	 * @param graph
+	 *            the snapshot the run searches
+	 * @param hiddenEdges
+	 *            the edges hidden for the whole run, the incoming edges of the
+	 *            sources and the outgoing edges of the targets
+	 */
+	public KSPContext(GraphSnapshot graph, Set<CyEdge> hiddenEdges)
+	{
+		this.graph = graph;
+		this.nodeMasks = new long[graph.nodeCount()];
+		this.edgeMasks = new long[graph.edgeCount()];
+		this.epoch = 1;
+		this.searchSpaces = new ConcurrentLinkedQueue<SearchSpace>();
+		this.statistics = new KSPStatistics();
+
+		hideEdges(hiddenEdges);
+	}
+
+
+	/**
+	 * Hides edges for the whole run. Used to start out the algorithm hiding
+	 * all source in edges and target out edges, and to keep a run on the
+	 * paths through some of the sources only. Called before the run starts
+	 *
+	 * @param hiddenEdges
+	 *            the edges hidden for the whole run
+	 */
+	public void hideEdges(Collection<CyEdge> hiddenEdges)
+	{
+		for (CyEdge edge : hiddenEdges)
+		{
+			int index = graph.getEdgeIndex(edge);
+			if (index != -1)
+				edgeMasks[index] = mask(PERMANENT, 0);
+		}
+	}
+
+
+	/**
+	 * Hides the undirected edges of nodes in one direction for the whole run.
+	 * An undirected edge of the network is both an incoming and an outgoing
+	 * edge of its nodes, so it can't be hidden as a whole like the directed
+	 * ones, only the edge of the snapshot in the direction to hide. Called
+	 * before the run starts
+	 *
+	 * @param nodes
+	 *            the nodes whose undirected edges to hide
+	 * @param incoming
+	 *            true to hide the edges entering the nodes, false to hide
+	 *            the edges leaving them
+	 */
+	public void hideUndirectedEdges(Collection<CyNode> nodes, boolean incoming)
+	{
+		for (CyNode node : nodes)
+		{
+			int index = graph.getIndex(node);
+			if (index == -1)
+				continue;
+
+			int begin = incoming ? graph.inBegin(index) : graph.outBegin(index);
+			int end = incoming ? graph.inEnd(index) : graph.outEnd(index);
+			for (int slot = begin; slot < end; slot++)
+			{
+				int edge = incoming ? graph.inEdge(slot) : graph.outEdge(slot);
+				if (graph.isUndirected(edge))
+					edgeMasks[edge] = mask(PERMANENT, 0);
+			}
+		}
+	}
+
+
+	/**
+	 * Returns the snapshot the run searches
+	 *
+	 * @return the snapshot
+	 */
+	public GraphSnapshot getGraph()
+	{
+		return graph;
+	}
+
+
+	/**
+	 * Returns the counters of the work done by the run
+	 *
+	 * @return the statistics of the run
+	 */
+	public KSPStatistics getStatistics()
+	{
+		return statistics;
+	}
+
+
+	/**
+	 * Returns the pool the spur searches of an iteration run on
+	 *
+	 * @return the pool, null if the spur searches run sequentially
+	 */
+	public ForkJoinPool getSpurSearchPool()
+	{
+		return spurSearchPool;
+	}
+
+
+	/**
+	 * Sets the pool the spur searches of an iteration run on
+	 *
+	 * @param spurSearchPool
+	 *            the pool, null to run the spur searches sequentially
+	 */
+	public void setSpurSearchPool(ForkJoinPool spurSearchPool)
+	{
+		this.spurSearchPool = spurSearchPool;
+	}
+
+
+	/**
+	 * Returns the algorithm the spur searches run
+	 *
+	 * @return the algorithm of the run
+	 */
+	public KSPAlgorithm getAlgorithm()
+	{
+		return algorithm;
+	}
+
+
+	/**
+	 * Sets the algorithm the spur searches run
+	 *
+	 * @param algorithm
+	 *            the algorithm of the run
+	 */
+	public void setAlgorithm(KSPAlgorithm algorithm)
+	{
+		this.algorithm = algorithm;
+	}
+
+
+	/**
+	 * Returns the cache of the distances to the target of earlier runs
+	 *
+	 * @return the cache, null if the distances are computed for every run
+	 */
+	public HeuristicCache getHeuristicCache()
+	{
+		return heuristicCache;
+	}
+
+
+	/**
+	 * Returns the key of the run in the heuristic cache
+	 *
+	 * @return the key, null if there is no cache
+	 */
+	public HeuristicCache.Key getHeuristicKey()
+	{
+		return heuristicKey;
+	}
+
+
+	/**
+	 * Sets the cache of the distances to the target the run reads them from
+	 * and keeps them in
+	 *
+	 * @param heuristicCache
+	 *            the cache, null to compute the distances
+	 * @param heuristicKey
+	 *            the key of the run, the network, the configuration of its
+	 *            weights and the targets
+	 */
+	public void setHeuristicCache(HeuristicCache heuristicCache, HeuristicCache.Key heuristicKey)
+	{
+		this.heuristicCache = heuristicCache;
+		this.heuristicKey = heuristicKey;
+	}
+
+
+	/**
+	 * Returns the number of landmarks guiding the searches
+	 *
+	 * @return the number of landmarks, 0 if the searches are guided by the
+	 *         exact distances to the target
+	 */
+	public int getLandmarkCount()
+	{
+		return landmarkCount;
+	}
+
+
+	/**
+	 * Sets the number of landmarks guiding the searches. The landmarks are
+	 * kept in the heuristic cache, so they are only used with a cache
+	 *
+	 * @param landmarkCount
+	 *            the number of landmarks, 0 to guide the searches with the
+	 *            exact distances to the target
+	 */
+	public void setLandmarkCount(int landmarkCount)
+	{
+		this.landmarkCount = landmarkCount;
+	}
+
+
+	/**
+	 * Returns the bound shared with the other runs of a partitioned run
+	 *
+	 * @return the bound, null if the run is on its own
+	 */
+	public SharedBound getSharedBound()
+	{
+		return sharedBound;
+	}
+
+
+	/**
+	 * Sets the bound shared with the other runs of a partitioned run. The
+	 * run reports its paths to the bound, and stops before the paths
+	 * heavier than it
+	 *
+	 * @param sharedBound
+	 *            the bound, null if the run is on its own
+	 */
+	public void setSharedBound(SharedBound sharedBound)
+	{
+		this.sharedBound = sharedBound;
+	}
+
+
+	/**
+	 * Returns the distances to the target shared with the other runs of a
+	 * partitioned run
+	 *
+	 * @return the distance of each node, null if the run computes them
+	 */
+	public double[] getHeuristicDistances()
+	{
+		return heuristicDistances;
+	}
+
+
+	/**
+	 * Returns the tree of the shortest paths to the target that goes with
+	 * the shared distances
+	 *
+	 * @return the edge from each node towards the target, null if the run
+	 *         computes it
+	 */
+	public int[] getHeuristicTree()
+	{
+		return heuristicTree;
+	}
+
+
+	/**
+	 * Sets the distances to the target shared by the runs of a partitioned
+	 * run on the same snapshot and target, so the runs neither compute them
+	 * nor map them from the heuristic cache each. The runs only read them
+	 *
+	 * @param distances
+	 *            the distance of each node to the target
+	 * @param treeEdges
+	 *            the edge from each node towards the target in the tree of
+	 *            the shortest paths, -1 if there is none
+	 */
+	public void setHeuristicDistances(double[] distances, int[] treeEdges)
+	{
+		this.heuristicDistances = distances;
+		this.heuristicTree = treeEdges;
+	}
+
+
+	/**
+	 * Cancels the run. The searches running stop at their next node, and the
+	 * run accepts no more paths, so it returns the paths accepted so far.
+	 * Can be called from any thread
+	 */
+	public void cancel()
+	{
+		cancelled = true;
+		stopped = true;
+	}
+
+
+	/**
+	 * Returns if the run was cancelled
+	 *
+	 * @return true if the run was cancelled
+	 */
+	public boolean isCancelled()
+	{
+		return cancelled;
+	}
+
+
+	/**
+	 * Returns if a budget of the run stopped it. The paths accepted until
+	 * then are exact, but there may be fewer than asked for
+	 *
+	 * @return true if the run ran out of time or memory
+	 */
+	public boolean isTruncated()
+	{
+		return truncated;
+	}
+
+
+	/**
+	 * Sets the time the run may take. Once it is over the searches running
+	 * stop, and the run returns the paths accepted so far
+	 *
+	 * @param maxRuntimeMillis
+	 *            the time in milliseconds from the start of the run, 0 for
+	 *            no limit
+	 */
+	public void setMaxRuntimeMillis(long maxRuntimeMillis)
+	{
+		this.maxRuntimeMillis = maxRuntimeMillis;
+	}
+
+
+	/**
+	 * Sets the memory the paths and candidates of the run may take. Once
+	 * they take more the run accepts no more paths
+	 *
+	 * @param maxCandidateMemory
+	 *            the estimated memory in bytes, 0 for no limit
+	 */
+	public void setMaxCandidateMemory(long maxCandidateMemory)
+	{
+		this.maxCandidateMemory = maxCandidateMemory;
+	}
+
+
+	/**
+	 * Returns the memory the paths and candidates of the run may take
+	 *
+	 * @return the estimated memory in bytes, 0 for no limit
+	 */
+	public long getMaxCandidateMemory()
+	{
+		return maxCandidateMemory;
+	}
+
+
+	/**
+	 * Resumes a run that was cancelled or stopped by a budget, for the
+	 * paths after those it found. The budgets start over
+	 */
+	void resume()
+	{
+		cancelled = false;
+		truncated = false;
+		stopped = false;
+		startClock();
+	}
+
+
+	/**
+	 * Starts the clock of the time budget of the run
+	 */
+	void startClock()
+	{
+		deadline = System.nanoTime() + maxRuntimeMillis * 1000000L;
+	}
+
+
+	/**
+	 * Stops the run because it is over a budget
+	 */
+	void truncate()
+	{
+		truncated = true;
+		stopped = true;
+	}
+
+
+	/**
+	 * Returns if the run was cancelled or stopped by a budget
+	 *
+	 * @return true if the searches should stop
+	 */
+	boolean isStopped()
+	{
+		return stopped;
+	}
+
+
+	/**
+	 * Stops the run if its time is over
+	 *
+	 * @return true if the run is stopped
+	 */
+	boolean isOutOfTime()
+	{
+		if (maxRuntimeMillis > 0 && System.nanoTime() - deadline > 0)
+			truncate();
+
+		return stopped;
+	}
+
+
+	/**
+	 * Returns the listener of the progress of the run
+	 *
+	 * @return the listener, null if nobody listens
+	 */
+	public KSPProgressListener getProgressListener()
+	{
+		return progressListener;
+	}
+
+
+	/**
+	 * Sets the listener of the progress of the run
+	 *
+	 * @param progressListener
+	 *            the listener, null if nobody listens
+	 */
+	public void setProgressListener(KSPProgressListener progressListener)
+	{
+		this.progressListener = progressListener;
+	}
+
+
+	/**
+	 * Hides all incoming edges of a node from the spur searches at a spur
+	 * index and all later spur indices of the iteration
+	 *
+	 * @param node
+	 *            the id of the node
+	 * @param spurIndex
+	 *            the first spur index the node is blocked from
+	 */
+	void hideNode(int node, int spurIndex)
+	{
+		nodeMasks[node] = hide(nodeMasks[node], spurIndex);
+	}
+
+
+	/**
+	 * Hides an edge from the spur searches at a spur index and all later spur
+	 * indices of the iteration
+	 *
+	 * @param edge
+	 *            the id of the edge
+	 * @param spurIndex
+	 *            the first spur index the edge is hidden from
+	 */
+	void hideEdge(int edge, int spurIndex)
+	{
+		edgeMasks[edge] = hide(edgeMasks[edge], spurIndex);
+	}
+
+
+	/**
+	 * Returns if an edge is hidden from the spur search at a spur index
+	 *
+	 * @param edge
+	 *            the id of the edge
+	 * @param target
+	 *            the id of the target node of the edge
+	 * @param spurIndex
+	 *            the spur index of the search
+	 * @return true if the search must not use the edge, false otherwise
+	 */
+	boolean isHidden(int edge, int target, int spurIndex)
+	{
+		int current = epoch;
+		return isHidden(edgeMasks[edge], current, spurIndex)
+				|| isHidden(nodeMasks[target], current, spurIndex);
+	}
+
+
+	/**
+	 * "Resets" the hidden nodes and edges of the iteration, so that only the
+	 * edges hidden for the whole run stay hidden. Starts a new epoch, and only
+	 * clears the masks when the epochs run out
+	 */
+	void resetHiddenEdges()
+	{
+		if (epoch + 1 < PERMANENT)
+		{
+			epoch++;
+			return;
+		}
+
+		for (int i = 0; i < nodeMasks.length; i++)
+			nodeMasks[i] = 0;
+		for (int i = 0; i < edgeMasks.length; i++)
+		{
+			if (epochOf(edgeMasks[i]) != PERMANENT)
+				edgeMasks[i] = 0;
+		}
+		epoch = 1;
+	}
+
+
+	/**
+	 * Hides a mask entry from a spur index in the current epoch, keeping the
+	 * smallest spur index if the entry is already hidden in this epoch
+	 *
+	 * @param mask
+	 *            the mask entry
+	 * @param spurIndex
+	 *            the first spur index to hide from
+	 * @return the new mask entry
+	 */
+	private long hide(long mask, int spurIndex)
+	{
+		int maskEpoch = epochOf(mask);
+		if (maskEpoch == PERMANENT || (maskEpoch == epoch && spurIndexOf(mask) <= spurIndex))
+			return mask;
+
+		return mask(epoch, spurIndex);
+	}
+
+
+	/**
+	 * Returns if a mask entry hides from a spur index
+	 *
+	 * @param mask
+	 *            the mask entry
+	 * @param epoch
+	 *            the current epoch
+	 * @param spurIndex
+	 *            the spur index
+	 * @return true if the entry is current and hides from the spur index
+	 */
+	private static boolean isHidden(long mask, int epoch, int spurIndex)
+	{
+		return epochOf(mask) >= epoch && spurIndexOf(mask) <= spurIndex;
+	}
+
+
+	/**
+	 * Packs an epoch and a spur index into a mask entry
+	 *
+	 * @param epoch
+	 *            the epoch
+	 * @param spurIndex
+	 *            the spur index
+	 * @return the mask entry
+	 */
+	private static long mask(int epoch, int spurIndex)
+	{
+		return ((long) epoch << 32) | (spurIndex & 0xFFFFFFFFL);
+	}
+
+
+	/**
+	 * Returns the epoch of a mask entry
+	 *
+	 * @param mask
+	 *            the mask entry
+	 * @return the epoch
+	 */
+	private static int epochOf(long mask)
+	{
+		return (int) (mask >>> 32);
+	}
+
+
+	/**
+	 * Returns the spur index of a mask entry
+	 *
+	 * @param mask
+	 *            the mask entry
+	 * @return the spur index
+	 */
+	private static int spurIndexOf(long mask)
+	{
+		return (int) mask;
+	}
+
+
+	/**
+	 * Takes a search space for a search, allocating one if all of them are in
+	 * use by other searches
+	 *
+	 * @return the search space
+	 */
+	SearchSpace acquireSearchSpace()
+	{
+		SearchSpace space = searchSpaces.poll();
+		return space != null ? space : new SearchSpace(graph.nodeCount(), graph.isHopCount());
+	}
+
+
+	/**
+	 * Gives back a search space once the search is over
+	 *
+	 * @param space
+	 *            the search space
+	 */
+	void releaseSearchSpace(SearchSpace space)
+	{
+		searchSpaces.offer(space);
+	}
+}
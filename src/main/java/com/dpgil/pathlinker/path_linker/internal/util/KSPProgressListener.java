@@ -0,0 +1,21 @@
+package com.dpgil.pathlinker.path_linker.internal.util;
+
+/**
+ * Receives the progress of a run of the KSP algorithm. The listener is
+ * called on the thread running the algorithm, once for each path accepted,
+ * so it should return quickly.
+ */
+public interface KSPProgressListener
+{
+	/**
+	 * Called after the run accepted a path
+	 *
+	 * @param paths
+	 *            the number of paths accepted so far
+	 * @param candidates
+	 *            the number of candidate paths waiting to be accepted
+	 * @param elapsedMillis
+	 *            the time since the run started, in milliseconds
+	 */
+	void pathAccepted(int paths, int candidates, long elapsedMillis);
+}
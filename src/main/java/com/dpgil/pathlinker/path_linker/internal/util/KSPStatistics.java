@@ -0,0 +1,152 @@
+package com.dpgil.pathlinker.path_linker.internal.util;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the work done by a run of the KSP algorithm. The spur searches
+ * of an iteration can run in parallel, so the counters can be updated from
+ * several threads at once.
+ */
+public class KSPStatistics
+{
+	/** the number of spur searches */
+	private final LongAdder spurSearches = new LongAdder();
+	/** the number of spur searches answered from the shortest path tree */
+	private final LongAdder treePaths = new LongAdder();
+	/** the number of spur searches that ran A* */
+	private final LongAdder aStarSearches = new LongAdder();
+	/** the number of spur searches that ran A* up to a node classified green */
+	private final LongAdder classifiedSearches = new LongAdder();
+	/** the number of spur searches stopped by the bound on the candidates */
+	private final LongAdder prunedSearches = new LongAdder();
+
+	/**
+	 * Counts a spur search
+	 */
+	void countSpurSearch()
+	{
+		spurSearches.increment();
+	}
+
+
+	/**
+	 * Counts a spur search answered from the shortest path tree
+	 */
+	void countTreePath()
+	{
+		treePaths.increment();
+	}
+
+
+	/**
+	 * Counts a spur search that ran A*
+	 */
+	void countAStarSearch()
+	{
+		aStarSearches.increment();
+	}
+
+
+	/**
+	 * Counts a spur search that ran A* up to a node classified green
+	 */
+	void countClassifiedSearch()
+	{
+		classifiedSearches.increment();
+	}
+
+
+	/**
+	 * Counts a spur search stopped because no path it could find would be
+	 * accepted
+	 */
+	void countPrunedSearch()
+	{
+		prunedSearches.increment();
+	}
+
+
+	/**
+	 * Adds the counters of another run, for a run made of several runs
+	 *
+	 * @param other
+	 *            the statistics of the other run
+	 */
+	public void add(KSPStatistics other)
+	{
+		spurSearches.add(other.getSpurSearches());
+		treePaths.add(other.getTreePaths());
+		aStarSearches.add(other.getAStarSearches());
+		classifiedSearches.add(other.getClassifiedSearches());
+		prunedSearches.add(other.getPrunedSearches());
+	}
+
+
+	/**
+	 * Returns the number of spur searches
+	 *
+	 * @return the number of spur searches
+	 */
+	public long getSpurSearches()
+	{
+		return spurSearches.sum();
+	}
+
+
+	/**
+	 * Returns the number of spur searches answered from the shortest path
+	 * tree without running A*
+	 *
+	 * @return the number of spur searches answered from the tree
+	 */
+	public long getTreePaths()
+	{
+		return treePaths.sum();
+	}
+
+
+	/**
+	 * Returns the number of spur searches that ran A*
+	 *
+	 * @return the number of A* searches
+	 */
+	public long getAStarSearches()
+	{
+		return aStarSearches.sum();
+	}
+
+
+	/**
+	 * Returns the number of spur searches that ran A* with the node
+	 * classification, stopping at the first node whose tree path to the
+	 * target is open
+	 *
+	 * @return the number of node classification searches
+	 */
+	public long getClassifiedSearches()
+	{
+		return classifiedSearches.sum();
+	}
+
+
+	/**
+	 * Returns the number of spur searches stopped because the paths they
+	 * could find were heavier than the bound on the accepted paths, before
+	 * or during A*
+	 *
+	 * @return the number of pruned spur searches
+	 */
+	public long getPrunedSearches()
+	{
+		return prunedSearches.sum();
+	}
+
+
+	@Override
+	public String toString()
+	{
+		return "spur searches: " + getSpurSearches() + ", answered from the tree: " + getTreePaths()
+				+ ", A* searches: " + getAStarSearches() + ", classified searches: " + getClassifiedSearches()
+				+ ", pruned: " + getPrunedSearches();
+	}
+}
@@ -0,0 +1,349 @@
+package com.dpgil.pathlinker.path_linker.internal.util;
+
+import java.util.Arrays;
+
+import org.cytoscape.model.CyNode;
+
+/**
+ * The landmarks of the ALT heuristic (A*, landmarks and the triangle
+ * inequality). For a few landmark nodes, the distance from and to every node
+ * of the network is computed once. For a landmark l, a node v and a target t
+ * the triangle inequality gives d(v, t) &gt;= d(v, l) - d(t, l) and
+ * d(v, t) &gt;= d(l, t) - d(l, v), so the tables give a lower bound on the
+ * distance of every node to any set of targets without searching the
+ * network again. The bounds are consistent, so A* guided by them still
+ * finds the shortest paths.
+ *
+ * The tables are kept by node rather than by the ids of a snapshot, because
+ * every run of PathLinker builds a new copy of the network with new super
+ * nodes. The super nodes are left out, they are never inside a path.
+ */
+public class Landmarks
+{
+	/** the nodes of the tables, the landmarks distances are kept for */
+	private final CyNode[] nodes;
+	/** the landmarks, by their index in nodes */
+	private final int[] landmarks;
+	/** the distance from each node to each landmark, the landmarks of a node are contiguous */
+	private final double[] toLandmarks;
+	/** the distance from each landmark to each node, the landmarks of a node are contiguous */
+	private final double[] fromLandmarks;
+
+	/**
+	 * Constructor for the tables
+	 *
+	 * @param nodes
+	 *            the nodes of the tables
+	 * @param landmarks
+	 *            the landmarks, by their index in nodes
+	 * @param toLandmarks
+	 *            the distance from each node to each landmark
+	 * @param fromLandmarks
+	 *            the distance from each landmark to each node
+	 */
+	private Landmarks(CyNode[] nodes, int[] landmarks, double[] toLandmarks, double[] fromLandmarks)
+	{
+		this.nodes = nodes;
+		this.landmarks = landmarks;
+		this.toLandmarks = toLandmarks;
+		this.fromLandmarks = fromLandmarks;
+	}
+
+
+	/**
+	 * Selects the landmarks of a snapshot and computes their tables. The
+	 * first landmark is the node of highest degree, and each next one is the
+	 * node farthest from the landmarks already selected, going there and
+	 * back, so the landmarks spread over the network. Nodes no landmark
+	 * reaches are the farthest of all
+	 *
+	 * @param graph
+	 *            the snapshot of a run
+	 * @param count
+	 *            the number of landmarks
+	 * @param source
+	 *            the id of the super source of the run, left out
+	 * @param target
+	 *            the id of the super target of the run, left out
+	 * @return the landmarks and their tables
+	 */
+	public static Landmarks select(GraphSnapshot graph, int count, int source, int target)
+	{
+		// the index in the tables of each node of the snapshot. the super
+		// nodes and the nodes without edges of their own, as the super nodes
+		// of earlier runs, are left out
+		int[] positions = new int[graph.nodeCount()];
+		int size = 0;
+		for (int node = 0; node < positions.length; node++)
+			positions[node] = degree(graph, node, source, target) > 0 ? size++ : -1;
+
+		CyNode[] nodes = new CyNode[size];
+		int[] ids = new int[size];
+		int[] degrees = new int[size];
+		for (int node = 0; node < positions.length; node++)
+		{
+			int i = positions[node];
+			if (i == -1)
+				continue;
+
+			nodes[i] = graph.getNode(node);
+			ids[i] = node;
+			degrees[i] = degree(graph, node, source, target);
+		}
+
+		count = Math.min(count, size);
+		int[] landmarks = new int[count];
+		double[] toLandmarks = new double[size * count];
+		double[] fromLandmarks = new double[size * count];
+
+		// the distance from each node to the closest landmark and back
+		double[] closest = new double[size];
+		Arrays.fill(closest, Double.POSITIVE_INFINITY);
+
+		for (int l = 0; l < count; l++)
+		{
+			landmarks[l] = l == 0 ? highestDegree(degrees) : farthest(degrees, closest);
+
+			int landmark = ids[landmarks[l]];
+			double[] to = Algorithms.reverseSingleSourceDijkstra(graph, landmark);
+			double[] from = Algorithms.singleSourceDijkstra(graph, landmark);
+			for (int i = 0; i < size; i++)
+			{
+				toLandmarks[i * count + l] = to[ids[i]];
+				fromLandmarks[i * count + l] = from[ids[i]];
+
+				double roundTrip = to[ids[i]] == Algorithms.INFINITY || from[ids[i]] == Algorithms.INFINITY
+						? Double.POSITIVE_INFINITY : to[ids[i]] + from[ids[i]];
+				closest[i] = Math.min(closest[i], roundTrip);
+			}
+
+			// a landmark is never selected twice
+			closest[landmarks[l]] = -1.;
+		}
+
+		return new Landmarks(nodes, landmarks, toLandmarks, fromLandmarks);
+	}
+
+
+	/**
+	 * Returns the number of edges of a node, leaving out the edges of the
+	 * super nodes. The super nodes themselves have none
+	 *
+	 * @param graph
+	 *            the snapshot
+	 * @param node
+	 *            the id of the node
+	 * @param source
+	 *            the id of the super source
+	 * @param target
+	 *            the id of the super target
+	 * @return the number of incoming and outgoing edges
+	 */
+	private static int degree(GraphSnapshot graph, int node, int source, int target)
+	{
+		if (node == source || node == target)
+			return 0;
+
+		int degree = 0;
+		for (int slot = graph.outBegin(node); slot < graph.outEnd(node); slot++)
+		{
+			if (graph.outTarget(slot) != target)
+				degree++;
+		}
+		for (int slot = graph.inBegin(node); slot < graph.inEnd(node); slot++)
+		{
+			if (graph.inSource(slot) != source)
+				degree++;
+		}
+
+		return degree;
+	}
+
+
+	/**
+	 * Returns the node of highest degree
+	 *
+	 * @param degrees
+	 *            the degree of each node of the tables
+	 * @return the index of the node in the tables
+	 */
+	private static int highestDegree(int[] degrees)
+	{
+		int best = 0;
+		for (int i = 1; i < degrees.length; i++)
+		{
+			if (degrees[i] > degrees[best])
+				best = i;
+		}
+
+		return best;
+	}
+
+
+	/**
+	 * Returns the node farthest from the landmarks, the node of highest
+	 * degree among those no landmark reaches
+	 *
+	 * @param degrees
+	 *            the degree of each node of the tables
+	 * @param closest
+	 *            the distance from each node to the closest landmark and
+	 *            back, -1 for the landmarks
+	 * @return the index of the node in the tables
+	 */
+	private static int farthest(int[] degrees, double[] closest)
+	{
+		int best = -1;
+		for (int i = 0; i < closest.length; i++)
+		{
+			if (closest[i] < 0.)
+				continue;
+
+			if (best == -1 || closest[i] > closest[best]
+					|| closest[i] == closest[best] && degrees[i] > degrees[best])
+				best = i;
+		}
+
+		return best;
+	}
+
+
+	/**
+	 * Returns the number of landmarks
+	 *
+	 * @return the number of landmarks
+	 */
+	public int count()
+	{
+		return landmarks.length;
+	}
+
+
+	/**
+	 * Returns the estimated memory the tables take
+	 *
+	 * @return the memory in bytes
+	 */
+	long bytes()
+	{
+		return 8L * nodes.length + 4L * landmarks.length + 16L * toLandmarks.length;
+	}
+
+
+	/**
+	 * Computes a lower bound on the distance of every node of a run to the
+	 * super target. The super target is attached to the targets, so the
+	 * distance of a node is the lightest of its distances to a target plus
+	 * the weight of the edge from the target to the super target
+	 *
+	 * @param graph
+	 *            the snapshot of the run
+	 * @param source
+	 *            the id of the super source of the run
+	 * @param target
+	 *            the id of the super target of the run
+	 * @return the lower bound of each node, INFINITY if the node can't reach
+	 *         the target. null if the network changed since the tables were
+	 *         computed
+	 */
+	public double[] lowerBounds(GraphSnapshot graph, int source, int target)
+	{
+		int count = landmarks.length;
+		int[] ids = new int[nodes.length];
+		int[] positions = new int[graph.nodeCount()];
+		Arrays.fill(positions, -1);
+		for (int i = 0; i < ids.length; i++)
+		{
+			ids[i] = graph.getIndex(nodes[i]);
+			if (ids[i] == -1)
+				return null;
+
+			positions[ids[i]] = i;
+		}
+
+		// for each landmark, the largest distance from a target to the
+		// landmark and the smallest distance from the landmark to a target,
+		// less and plus the weight of the edge to the super target
+		double[] maxTo = new double[count];
+		double[] minFrom = new double[count];
+		Arrays.fill(maxTo, Double.NEGATIVE_INFINITY);
+		Arrays.fill(minFrom, Double.POSITIVE_INFINITY);
+		for (int slot = graph.inBegin(target); slot < graph.inEnd(target); slot++)
+		{
+			int i = positions[graph.inSource(slot)];
+			if (i == -1)
+				continue;
+
+			for (int l = 0; l < count; l++)
+			{
+				maxTo[l] = Math.max(maxTo[l], finite(toLandmarks[i * count + l]) - graph.inWeight(slot));
+				minFrom[l] = Math.min(minFrom[l], finite(fromLandmarks[i * count + l]) + graph.inWeight(slot));
+			}
+		}
+
+		// the nodes that are not in the tables have no edges of their own,
+		// so only the targets among them reach the super target, through
+		// their edge to it
+		double[] bounds = new double[graph.nodeCount()];
+		for (int node = 0; node < bounds.length; node++)
+		{
+			if (positions[node] != -1)
+				continue;
+
+			if (degree(graph, node, source, target) > 0)
+				return null;
+
+			bounds[node] = Algorithms.INFINITY;
+			for (int slot = graph.outBegin(node); slot < graph.outEnd(node); slot++)
+				bounds[node] = Math.min(bounds[node], graph.outWeight(slot));
+		}
+		bounds[target] = 0.;
+
+		for (int i = 0; i < ids.length; i++)
+		{
+			double bound = 0.;
+			for (int l = 0; l < count && bound != Double.POSITIVE_INFINITY; l++)
+			{
+				// a node that can't reach a landmark every target reaches
+				// can't reach the targets either
+				double to = finite(toLandmarks[i * count + l]);
+				if (maxTo[l] != Double.POSITIVE_INFINITY)
+					bound = Math.max(bound, to - maxTo[l]);
+
+				// a node a landmark reaches can't reach the targets if the
+				// landmark reaches none of them
+				double from = finite(fromLandmarks[i * count + l]);
+				if (from != Double.POSITIVE_INFINITY)
+					bound = Math.max(bound, minFrom[l] - from);
+			}
+
+			bounds[ids[i]] = bound == Double.POSITIVE_INFINITY ? Algorithms.INFINITY : bound;
+		}
+
+		// the super source is attached to other sources in every run, its
+		// bound is the lightest of its edges
+		bounds[source] = Algorithms.INFINITY;
+		for (int slot = graph.outBegin(source); slot < graph.outEnd(source); slot++)
+		{
+			int next = graph.outTarget(slot);
+			if (bounds[next] != Algorithms.INFINITY)
+				bounds[source] = Math.min(bounds[source], graph.outWeight(slot) + bounds[next]);
+		}
+
+		return bounds;
+	}
+
+
+	/**
+	 * Converts the distance of a table to a double, unreachable being
+	 * positive infinity
+	 *
+	 * @param distance
+	 *            the distance
+	 * @return the distance, positive infinity if unreachable
+	 */
+	private static double finite(double distance)
+	{
+		return distance == Algorithms.INFINITY ? Double.POSITIVE_INFINITY : distance;
+	}
+}
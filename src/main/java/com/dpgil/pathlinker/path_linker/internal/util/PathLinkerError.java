@@ -15,12 +15,16 @@ public class PathLinkerError extends CIError {
     public static final String INVALID_INPUT_ERROR = "INVALID_INPUT_ERROR";
     /** Error message for path not found */
     public static final String PATH_NOT_FOUND_ERROR = "PATH_NOT_FOUND_ERROR";
+    /** Error message for result not found */
+    public static final String RESULT_NOT_FOUND_ERROR = "RESULT_NOT_FOUND_ERROR";
     /** Error code for Network Not Found */
     public static final int CY_NETWORK_NOT_FOUND_CODE = 404;
     /** Error code for invalid user input */
     public static final int INVALID_INPUT_CODE = 400;
     /** Error code for path not found  */
     public static final int PATH_NOT_FOUND_CODE = 422;
+    /** Error code for result not found */
+    public static final int RESULT_NOT_FOUND_CODE = 404;
 
     /** Message specifically used for generating error message on UI */
     public transient String uiMessage;
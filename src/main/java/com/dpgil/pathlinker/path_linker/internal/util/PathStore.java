@@ -0,0 +1,356 @@
+package com.dpgil.pathlinker.path_linker.internal.util;
+
+import java.util.Arrays;
+
+/**
+ * Compact storage for the paths of a KSP run. A path is a chain of entries,
+ * each entry holding a node id and the entry of the previous node in the
+ * path, so a path is identified by the entry of its last node. Paths that
+ * deviate from an accepted path point into the entries of that path, so the
+ * prefix they share with it is stored once however many candidates share it.
+ *
+ * Every entry also keeps the edge that leads to its node and the cost and
+ * fingerprint of the prefix it ends, so the cost and fingerprint of a new
+ * path are computed from the edges it adds only, and the edges of a path
+ * never have to be looked up in the network again.
+ */
+public class PathStore
+{
+	/** the parent of the first entry of a path */
+	public static final int NONE = -1;
+
+	/** the seed of the fingerprints, the fingerprint of the empty prefix */
+	private static final long SEED = 0xcbf29ce484222325L;
+
+	/** the snapshot the paths run through */
+	private final GraphSnapshot graph;
+
+	/** the node id of each entry */
+	private int[] nodeIds;
+	/** the id of the edge leading to the node of each entry, NONE for the first node */
+	private int[] edgeIds;
+	/** the entry of the previous node in the path, NONE for the first node */
+	private int[] parents;
+	/** the cost of the prefix ending at each entry */
+	private double[] costs;
+	/** the fingerprint of the prefix ending at each entry */
+	private long[] fingerprints;
+	/** the number of entries */
+	private int size;
+
+	/**
+	 * Constructor for an empty store
+	 *
+	 * @param graph
+	 *            the snapshot the paths run through
+	 */
+	public PathStore(GraphSnapshot graph)
+	{
+		this.graph = graph;
+		nodeIds = new int[64];
+		edgeIds = new int[64];
+		parents = new int[64];
+		costs = new double[64];
+		fingerprints = new long[64];
+		size = 0;
+	}
+
+
+	/**
+	 * Starts a new path
+	 *
+	 * @param node
+	 *            the id of the first node of the path
+	 * @return the entry of the node
+	 */
+	public int start(int node)
+	{
+		return add(NONE, node, NONE, 0.);
+	}
+
+
+	/**
+	 * Appends an edge to a path, along with the node it leads to
+	 *
+	 * @param parent
+	 *            the entry of the last node of the path, the source of the
+	 *            edge
+	 * @param edge
+	 *            the id of the edge to append
+	 * @return the entry of the target node of the edge
+	 */
+	public int append(int parent, int edge)
+	{
+		return add(parent, graph.edgeTarget(edge), edge, costs[parent] + graph.edgeWeight(edge));
+	}
+
+
+	/**
+	 * Appends a sequence of edges to a path
+	 *
+	 * @param parent
+	 *            the entry of the last node of the path, the source of the
+	 *            first edge
+	 * @param edges
+	 *            the ids of the edges to append, in order
+	 * @return the entry of the last appended node, parent if nothing was
+	 *         appended
+	 */
+	public int append(int parent, int[] edges)
+	{
+		int last = parent;
+		for (int edge : edges)
+			last = append(last, edge);
+
+		return last;
+	}
+
+
+	/**
+	 * Adds an entry to the store
+	 *
+	 * @param parent
+	 *            the entry of the previous node, NONE for the first node
+	 * @param node
+	 *            the id of the node
+	 * @param edge
+	 *            the id of the edge leading to the node, NONE for the first
+	 *            node
+	 * @param cost
+	 *            the cost of the prefix ending at the node
+	 * @return the new entry
+	 */
+	private int add(int parent, int node, int edge, double cost)
+	{
+		if (size == nodeIds.length)
+		{
+			int capacity = 2 * size;
+			nodeIds = Arrays.copyOf(nodeIds, capacity);
+			edgeIds = Arrays.copyOf(edgeIds, capacity);
+			parents = Arrays.copyOf(parents, capacity);
+			costs = Arrays.copyOf(costs, capacity);
+			fingerprints = Arrays.copyOf(fingerprints, capacity);
+		}
+
+		nodeIds[size] = node;
+		edgeIds[size] = edge;
+		parents[size] = parent;
+		costs[size] = cost;
+		fingerprints[size] = mix(parent == NONE ? SEED : fingerprints[parent], node);
+
+		return size++;
+	}
+
+
+	/**
+	 * Removes the most recently appended entries. Only valid if no path kept
+	 * elsewhere uses them, for example to drop a duplicate candidate right
+	 * after building it
+	 *
+	 * @param newSize
+	 *            the number of entries to keep
+	 */
+	public void truncate(int newSize)
+	{
+		size = newSize;
+	}
+
+
+	/**
+	 * Returns the number of entries in the store
+	 *
+	 * @return the size of the store
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+
+	/**
+	 * Returns the estimated memory the entries take, counting the capacity of
+	 * the arrays rather than the entries in use
+	 *
+	 * @return the memory in bytes
+	 */
+	public long bytes()
+	{
+		return 28L * nodeIds.length;
+	}
+
+
+	/**
+	 * Returns the node id of an entry
+	 *
+	 * @param entry
+	 *            the entry
+	 * @return the node id
+	 */
+	public int nodeId(int entry)
+	{
+		return nodeIds[entry];
+	}
+
+
+	/**
+	 * Returns the id of the edge leading to the node of an entry
+	 *
+	 * @param entry
+	 *            the entry
+	 * @return the edge id, NONE for the first node of a path
+	 */
+	public int edgeId(int entry)
+	{
+		return edgeIds[entry];
+	}
+
+
+	/**
+	 * Returns the cost of the path ending at an entry, the sum of the weights
+	 * of its edges in order
+	 *
+	 * @param entry
+	 *            the entry of the last node of the path
+	 * @return the cost
+	 */
+	public double cost(int entry)
+	{
+		return costs[entry];
+	}
+
+
+	/**
+	 * Returns the entry of the previous node in the path
+	 *
+	 * @param entry
+	 *            the entry
+	 * @return the parent entry, NONE for the first node of a path
+	 */
+	public int parent(int entry)
+	{
+		return parents[entry];
+	}
+
+
+	/**
+	 * Returns the fingerprint of the path ending at an entry
+	 *
+	 * @param entry
+	 *            the entry of the last node of the path
+	 * @return the fingerprint
+	 */
+	public long fingerprint(int entry)
+	{
+		return fingerprints[entry];
+	}
+
+
+	/**
+	 * Returns the node ids of the path ending at an entry
+	 *
+	 * @param entry
+	 *            the entry of the last node of the path
+	 * @param length
+	 *            the number of nodes in the path
+	 * @return the node ids in order
+	 */
+	public int[] nodes(int entry, int length)
+	{
+		int[] nodes = new int[length];
+		for (int i = length - 1; i >= 0; i--)
+		{
+			nodes[i] = nodeIds[entry];
+			entry = parents[entry];
+		}
+
+		return nodes;
+	}
+
+
+	/**
+	 * Returns the edge ids of the path ending at an entry
+	 *
+	 * @param entry
+	 *            the entry of the last node of the path
+	 * @param length
+	 *            the number of nodes in the path
+	 * @return the edge ids in order, one less than the number of nodes
+	 */
+	public int[] edges(int entry, int length)
+	{
+		int[] edges = new int[length - 1];
+		for (int i = length - 2; i >= 0; i--)
+		{
+			edges[i] = edgeIds[entry];
+			entry = parents[entry];
+		}
+
+		return edges;
+	}
+
+
+	/**
+	 * Returns the entries of the path ending at an entry
+	 *
+	 * @param entry
+	 *            the entry of the last node of the path
+	 * @param length
+	 *            the number of nodes in the path
+	 * @return the entry of each node in order
+	 */
+	public int[] entries(int entry, int length)
+	{
+		int[] entries = new int[length];
+		for (int i = length - 1; i >= 0; i--)
+		{
+			entries[i] = entry;
+			entry = parents[entry];
+		}
+
+		return entries;
+	}
+
+
+	/**
+	 * Returns if the paths ending at two entries have the same nodes. Both
+	 * paths must have the same length. Stops as soon as the paths share an
+	 * entry, because they have the same prefix from there on
+	 *
+	 * @param entry1
+	 *            the entry of the last node of the first path
+	 * @param entry2
+	 *            the entry of the last node of the second path
+	 * @return true if the paths have the same nodes, false otherwise
+	 */
+	public boolean sameNodes(int entry1, int entry2)
+	{
+		while (entry1 != entry2)
+		{
+			if (entry1 == NONE || entry2 == NONE || nodeIds[entry1] != nodeIds[entry2])
+				return false;
+
+			entry1 = parents[entry1];
+			entry2 = parents[entry2];
+		}
+
+		return true;
+	}
+
+
+	/**
+	 * Mixes a node id into the fingerprint of a prefix, so that paths
+	 * differing in a single node or in the order of their nodes get unrelated
+	 * fingerprints
+	 *
+	 * @param fingerprint
+	 *            the fingerprint of the prefix
+	 * @param node
+	 *            the node id following the prefix
+	 * @return the fingerprint of the extended prefix
+	 */
+	private static long mix(long fingerprint, int node)
+	{
+		long hash = (fingerprint ^ node) * 0x100000001b3L;
+		return hash ^ (hash >>> 29);
+	}
+}
@@ -0,0 +1,191 @@
+package com.dpgil.pathlinker.path_linker.internal.util;
+
+import java.util.Arrays;
+
+/**
+ * A trie over the node ids of the paths accepted by Yen's algorithm. Each
+ * trie node stands for a prefix shared by one or more accepted paths, and its
+ * children are the nodes that follow that prefix in those paths. Every path
+ * is inserted once, and prefixes shared by several paths are stored once.
+ *
+ * The trie is stored in parallel int arrays, each trie node keeping the id of
+ * its graph node, the id of the edge leading to it from its parent, its first
+ * child and its next sibling.
+ */
+public class PrefixTrie
+{
+	/** the trie node of the empty prefix */
+	public static final int ROOT = 0;
+	/** returned when there is no such trie node */
+	public static final int NONE = -1;
+
+	/** the graph node id of each trie node */
+	private int[] nodeIds;
+	/** the id of the edge from the graph node of the parent of each trie node */
+	private int[] edgeIds;
+	/** the first child of each trie node */
+	private int[] firstChildren;
+	/** the next sibling of each trie node */
+	private int[] nextSiblings;
+	/** the number of trie nodes */
+	private int size;
+
+	/**
+	 * Constructor for a trie holding only the empty prefix
+	 */
+	public PrefixTrie()
+	{
+		nodeIds = new int[16];
+		edgeIds = new int[16];
+		firstChildren = new int[16];
+		nextSiblings = new int[16];
+
+		nodeIds[ROOT] = NONE;
+		edgeIds[ROOT] = NONE;
+		firstChildren[ROOT] = NONE;
+		nextSiblings[ROOT] = NONE;
+		size = 1;
+	}
+
+
+	/**
+	 * Inserts a path into the trie
+	 *
+	 * @param path
+	 *            the node ids of the path
+	 * @param edges
+	 *            the edge ids of the path, one less than the node ids
+	 * @return the trie node of the whole path
+	 */
+	public int insert(int[] path, int[] edges)
+	{
+		int trieNode = ROOT;
+		for (int i = 0; i < path.length; i++)
+		{
+			int next = child(trieNode, path[i]);
+			trieNode = next != NONE ? next : addChild(trieNode, path[i], i > 0 ? edges[i - 1] : NONE);
+		}
+
+		return trieNode;
+	}
+
+
+	/**
+	 * Returns the child of a trie node for a graph node, the trie node of the
+	 * prefix extended by the graph node
+	 *
+	 * @param trieNode
+	 *            the trie node of the prefix
+	 * @param node
+	 *            the graph node id following the prefix
+	 * @return the child, NONE if no inserted path extends the prefix by the
+	 *         node
+	 */
+	public int child(int trieNode, int node)
+	{
+		for (int c = firstChildren[trieNode]; c != NONE; c = nextSiblings[c])
+		{
+			if (nodeIds[c] == node)
+				return c;
+		}
+
+		return NONE;
+	}
+
+
+	/**
+	 * Returns the first child of a trie node
+	 *
+	 * @param trieNode
+	 *            the trie node
+	 * @return the first child, NONE if it has none
+	 */
+	public int firstChild(int trieNode)
+	{
+		return firstChildren[trieNode];
+	}
+
+
+	/**
+	 * Returns the next sibling of a trie node
+	 *
+	 * @param trieNode
+	 *            the trie node
+	 * @return the next sibling, NONE if it is the last child
+	 */
+	public int nextSibling(int trieNode)
+	{
+		return nextSiblings[trieNode];
+	}
+
+
+	/**
+	 * Returns the graph node id of a trie node, the last node of its prefix
+	 *
+	 * @param trieNode
+	 *            the trie node
+	 * @return the graph node id
+	 */
+	public int nodeId(int trieNode)
+	{
+		return nodeIds[trieNode];
+	}
+
+
+	/**
+	 * Returns the id of the edge leading to the graph node of a trie node
+	 * from the graph node of its parent
+	 *
+	 * @param trieNode
+	 *            the trie node
+	 * @return the edge id, NONE for the children of the root
+	 */
+	public int edgeId(int trieNode)
+	{
+		return edgeIds[trieNode];
+	}
+
+
+	/**
+	 * Returns the number of trie nodes, including the root
+	 *
+	 * @return the size of the trie
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+
+	/**
+	 * Adds a child to a trie node
+	 *
+	 * @param parent
+	 *            the trie node
+	 * @param node
+	 *            the graph node id of the child
+	 * @param edge
+	 *            the id of the edge leading to the child's graph node
+	 * @return the child
+	 */
+	private int addChild(int parent, int node, int edge)
+	{
+		if (size == nodeIds.length)
+		{
+			int capacity = 2 * size;
+			nodeIds = Arrays.copyOf(nodeIds, capacity);
+			edgeIds = Arrays.copyOf(edgeIds, capacity);
+			firstChildren = Arrays.copyOf(firstChildren, capacity);
+			nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+		}
+
+		int child = size++;
+		nodeIds[child] = node;
+		edgeIds[child] = edge;
+		firstChildren[child] = NONE;
+		nextSiblings[child] = firstChildren[parent];
+		firstChildren[parent] = child;
+
+		return child;
+	}
+}
@@ -0,0 +1,104 @@
+package com.dpgil.pathlinker.path_linker.internal.util;
+
+import java.util.Arrays;
+
+/**
+ * The working memory of a single shortest path search over a GraphSnapshot.
+ * A search space is reused by the searches of a KSP run instead of allocating
+ * arrays the size of the network for every search. Values written by previous
+ * searches are invalidated with epoch stamps, so starting a search doesn't
+ * clear the arrays. A search space is used by one search at a time.
+ */
+class SearchSpace
+{
+	/** the distance of each processed node from the source of the search */
+	final double[] distances;
+	/** the best distance seen so far to each node by the search */
+	final double[] seen;
+	/** the id of the edge leading to each node in the path found by the search */
+	final int[] predEdges;
+	/** the epoch in which seen and predEdges were last set for each node */
+	final int[] seenStamps;
+	/** the epoch in which each node was last processed */
+	final int[] processedStamps;
+	/** the epoch in which each node was last classified by a node classification search */
+	final int[] classStamps;
+	/** whether the tree path of each classified node to the target is open */
+	final boolean[] green;
+	/** the heap of nodes on the border of the search */
+	final IndexedHeap fringe;
+	/** the best number of edges seen so far to each node by a search counting edges, null otherwise */
+	final int[] hops;
+	/** the buckets of nodes on the border of a search counting edges, null otherwise */
+	final BucketQueue buckets;
+	/** the number of edges of a path kept when it reached each node, while removing its cycles */
+	final int[] pathLengths;
+	/** the epoch in which pathLengths was last set for each node still on the path */
+	final int[] pathStamps;
+	/** the epoch of the current search, stamps of older epochs are stale */
+	private int epoch;
+
+	/**
+	 * Constructor for the search space
+	 *
+	 * @param nodeCount
+	 *            the number of nodes of the snapshot searched
+	 */
+	SearchSpace(int nodeCount)
+	{
+		this(nodeCount, false);
+	}
+
+
+	/**
+	 * Constructor for the search space of the searches of a snapshot
+	 *
+	 * @param nodeCount
+	 *            the number of nodes of the snapshot searched
+	 * @param hopCount
+	 *            whether the searches may count the costs in edges, and keep
+	 *            their border in buckets rather than in the heap
+	 */
+	SearchSpace(int nodeCount, boolean hopCount)
+	{
+		this.distances = new double[nodeCount];
+		this.seen = new double[nodeCount];
+		this.predEdges = new int[nodeCount];
+		this.seenStamps = new int[nodeCount];
+		this.processedStamps = new int[nodeCount];
+		this.classStamps = new int[nodeCount];
+		this.green = new boolean[nodeCount];
+		this.fringe = new IndexedHeap(nodeCount);
+		this.hops = hopCount ? new int[nodeCount] : null;
+		this.buckets = hopCount ? new BucketQueue(nodeCount) : null;
+		this.pathLengths = new int[nodeCount];
+		this.pathStamps = new int[nodeCount];
+		this.epoch = 0;
+	}
+
+
+	/**
+	 * Starts a new search. Everything the previous searches stamped becomes
+	 * stale
+	 *
+	 * @return the epoch of the new search
+	 */
+	int nextEpoch()
+	{
+		fringe.clear();
+		if (buckets != null)
+			buckets.clear();
+
+		// clears the stamps once the epochs run out
+		if (++epoch == Integer.MAX_VALUE)
+		{
+			Arrays.fill(seenStamps, 0);
+			Arrays.fill(processedStamps, 0);
+			Arrays.fill(classStamps, 0);
+			Arrays.fill(pathStamps, 0);
+			epoch = 1;
+		}
+
+		return epoch;
+	}
+}
@@ -0,0 +1,97 @@
+package com.dpgil.pathlinker.path_linker.internal.util;
+
+import java.util.Collections;
+import java.util.PriorityQueue;
+
+/**
+ * The bound on the weight of the paths of a run split into several runs
+ * whose paths are disjoint families of its paths, as the runs of each source
+ * of a run partitioned by source. The runs report every path they accept,
+ * and the bound keeps the weights of the n lightest paths accepted by all
+ * the runs together. A path heavier than the n-th of them is never among the
+ * n lightest paths of the whole run, so each run stops before such a path
+ * and prunes its spur searches by the bound, rather than finding n paths of
+ * its own.
+ *
+ * The bound may start from the weight of the n-th lightest of n paths known
+ * before the runs start, as the lightest path through each source, so the
+ * runs prune their searches before they found n paths together.
+ *
+ * The runs report from their own threads. The bound only tightens, so a run
+ * reading a stale bound does more work but never loses a path.
+ */
+public class SharedBound
+{
+	/** the number of paths of the whole run */
+	private final int count;
+	/** the weights of the lightest paths accepted so far, at most count of them, heaviest first */
+	private final PriorityQueue<Double> lightest;
+	/** the weight of the count-th lightest path known before the runs started */
+	private final double initialBound;
+	/** the weight of the count-th lightest path accepted so far, or the initial bound if lighter */
+	private volatile double bound;
+
+	/**
+	 * Constructor for the bound
+	 *
+	 * @param count
+	 *            the number of paths of the whole run
+	 */
+	public SharedBound(int count)
+	{
+		this(count, Double.POSITIVE_INFINITY);
+	}
+
+
+	/**
+	 * Constructor for the bound starting from the paths known before the
+	 * runs start. The runs accept these paths again, so they are not kept
+	 * with the paths accepted, only their bound is
+	 *
+	 * @param count
+	 *            the number of paths of the whole run
+	 * @param initialBound
+	 *            the weight of the count-th lightest of count distinct paths
+	 *            of the whole run, positive infinity if fewer are known
+	 */
+	public SharedBound(int count, double initialBound)
+	{
+		this.count = count;
+		this.lightest = new PriorityQueue<Double>(11, Collections.<Double>reverseOrder());
+		this.initialBound = initialBound;
+		this.bound = initialBound;
+	}
+
+
+	/**
+	 * Keeps the weight of a path a run accepted if it is among the lightest
+	 *
+	 * @param weight
+	 *            the weight of the path
+	 */
+	public synchronized void accept(double weight)
+	{
+		if (lightest.size() < count)
+			lightest.add(weight);
+		else if (weight < lightest.peek())
+		{
+			lightest.poll();
+			lightest.add(weight);
+		}
+
+		if (lightest.size() == count)
+			bound = Math.min(initialBound, lightest.peek());
+	}
+
+
+	/**
+	 * Returns the bound on the weight of the paths of the whole run
+	 *
+	 * @return the weight of the n-th lightest path accepted so far or the
+	 *         initial bound, whichever is lighter
+	 */
+	public double get()
+	{
+		return bound;
+	}
+}
@@ -6,6 +6,7 @@ import com.dpgil.pathlinker.path_linker.internal.task.CreateKSPViewTask;
 import com.dpgil.pathlinker.path_linker.internal.task.CreateResultPanelTask;
 import com.dpgil.pathlinker.path_linker.internal.task.RunKSPTask;
 import com.dpgil.pathlinker.path_linker.internal.util.EdgeWeightType;
+import com.dpgil.pathlinker.path_linker.internal.util.HeuristicCache;
 import com.dpgil.pathlinker.path_linker.internal.util.PathLinkerError;
 import com.dpgil.pathlinker.path_linker.internal.util.Algorithms.PathWay;
 
@@ -50,10 +51,15 @@ import org.cytoscape.model.CyColumn;
 import org.cytoscape.model.CyNetwork;
 import org.cytoscape.model.CyNetworkManager;
 import org.cytoscape.model.CyNode;
+import org.cytoscape.model.CyTable;
 import org.cytoscape.model.CyTableUtil;
 import org.cytoscape.service.util.CyServiceRegistrar;
+import org.cytoscape.work.FinishStatus;
+import org.cytoscape.work.ObservableTask;
 import org.cytoscape.work.SynchronousTaskManager;
 import org.cytoscape.work.TaskIterator;
+import org.cytoscape.work.TaskObserver;
+import org.cytoscape.work.swing.DialogTaskManager;
 
 /** Panel for the PathLinker plugin */
 public class PathLinkerControlPanel extends JPanel implements CytoPanelComponent {
@@ -107,6 +113,9 @@ public class PathLinkerControlPanel extends JPanel implements CytoPanelComponent
 	private CyNetworkManager _networkManager;
 	private CyAppAdapter _adapter;
 
+	/** The cache of the heuristic distances shared by the runs */
+	private HeuristicCache _heuristicCache;
+
 	/** The model that runs ksp algorithm from the user input */
 	private PathLinkerModel _model;
 	/** model parameters to be pass for running ksp algorithm */
@@ -136,6 +145,8 @@ public class PathLinkerControlPanel extends JPanel implements CytoPanelComponent
     public Map<String, Long> _pathRankToSuidMap;
     /** Global sync index number to sync network, Path Index, and result names upon creation */
     public int nameIndex;
+    /** The map stores the model of each run to the result panel that can continue it */
+    public Map<PathLinkerModel, PathLinkerResultPanel> _modelToResultPanelMap;
 
 
 	/**
@@ -145,23 +156,26 @@ public class PathLinkerControlPanel extends JPanel implements CytoPanelComponent
 	 * @param applicationManager   application manager
 	 * @param networkManager       network manager
 	 * @param adapter              app adapter
+	 * @param heuristicCache       cache of the heuristic distances shared by the runs
 	 * @param version              PathLinker app version
 	 * @param buildDate            PathLinker app build dates
 	 */
 	public void initialize(CySwingApplication cySwingApp, CyServiceRegistrar serviceRegistrar,
 			CyApplicationManager applicationManager, CyNetworkManager networkManager, CyAppAdapter adapter,
-			String version, String buildDate) {
+			HeuristicCache heuristicCache, String version, String buildDate) {
 		_cySwingApp = cySwingApp;
 		_serviceRegistrar  = serviceRegistrar;
 		_applicationManager = applicationManager;
 		_networkManager = networkManager;
 		_adapter = adapter;
+		_heuristicCache = heuristicCache;
 		_version = version;
 		_buildDate = buildDate;
 
 		// initialize the maps for path rank columns
 		_suidToPathRankMap = new HashMap<Long, String>();
 		_pathRankToSuidMap = new HashMap<String, Long>();
+		_modelToResultPanelMap = new HashMap<PathLinkerModel, PathLinkerResultPanel>();
 
 		// initialize the name index field
 		nameIndex = 0;
@@ -475,25 +489,9 @@ public class PathLinkerControlPanel extends JPanel implements CytoPanelComponent
 	private void prepareAndRunKSP() {
 		showRunningMessage();
 
-		// callRunKSP();
-
-		// this looks extremely stupid, but is very important.
-		// due to the multi-threaded nature of the swing gui, if
-		// this were simply runKSP() and then hideRunningMessage(), java
-		// would assign a thread to the hideRunningMessage and we would
-		// never see the "PathLinker is running..." message. By adding
-		// the if else we force the program to wait on the result of
-		// runKSP and thus peforming these events in the order we want
-		SwingUtilities.invokeLater(new Runnable() {
-			public void run() {
-				if (callRunKSP()) {
-					hideRunningMessage();
-				} else {
-					hideRunningMessage();
-				}
-			}
-		});
-
+		// the algorithm runs in the task dialog, which hides the message once the run ends
+		if (!callRunKSP())
+			hideRunningMessage();
 	}
 
 	private void showRunningMessage() {
@@ -507,45 +505,145 @@ public class PathLinkerControlPanel extends JPanel implements CytoPanelComponent
 	/**
 	 * access user inputs to create the model for running ksp algorithm
 	 * check user inputs for errors prior running ksp algorithm
-	 * generate result panel and/or sub network graph for the user
+	 * runs the ksp algorithm in the task dialog, which shows its progress and can cancel it,
+	 * and generates result panel and/or sub network graph for the user once it ends
+	 * @return true if the algorithm started, otherwise false
 	 */
 	private boolean callRunKSP() {
 	    // reads the raw values from the panel and converts them into parameters for the model
         // terminates the process if user decides to fix the error manually
         if (!readValuesFromPanel("runPathLinker")) return false;
 
+		// performs KSP algorithm by creating the runKSPTask
+		final RunKSPTask runKSPTask = new RunKSPTask(_originalNetwork, _modelParams, _heuristicCache);
+		final CyNetwork network = _originalNetwork;
+		executeKSP(runKSPTask, new Runnable() {
+			public void run() {
+				hideRunningMessage();
+
+				// obtain results from the runKSPTask, null if the task failed before the model existed
+				_model = runKSPTask.getResults(PathLinkerModel.class);
+				if (_model == null)
+					return;
+
+				// check for not path found error
+				if (_model.getOutputK() == 0) {
+					JOptionPane.showMessageDialog(null,
+							_model.isCancelled() ? "PathLinker was cancelled before finding a path" : "No paths found",
+							"Error Message", JOptionPane.ERROR_MESSAGE);
+					return;
+				}
+
+				createResultViews(network, _model);
+			}
+		});
+
+		return true;
+	}
+
+	/**
+	 * continues an earlier run to k paths, computing only the new paths
+	 * generate result panel and sub network graph for the user once the run ends
+	 * the new result panel takes the model over from the result panel of the earlier run
+	 * @param model the model of the earlier run
+	 * @param k the number of paths to continue the run to
+	 */
+	public void continueKSP(final PathLinkerModel model, int k) {
+		executeKSP(new RunKSPTask(model, k), new Runnable() {
+			public void run() {
+				try {
+					createResultViews(model.getOriginalNetwork(), model);
+				} finally {
+					// the panel that still has the model can continue it again
+					PathLinkerResultPanel resultPanel = _modelToResultPanelMap.get(model);
+					if (resultPanel != null)
+						resultPanel.updateMorePathsButton();
+				}
+			}
+		});
+	}
+
+	/**
+	 * marks the runs on a network stale, after its nodes or edges changed or it is destroyed,
+	 * and disables the more paths button of their result panels
+	 * @param network the network
+	 */
+	public void invalidateRuns(final CyNetwork network) {
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				for (Map.Entry<PathLinkerModel, PathLinkerResultPanel> entry : _modelToResultPanelMap.entrySet()) {
+					if (entry.getKey().getOriginalNetwork() == network) {
+						entry.getKey().setStale();
+						entry.getValue().updateMorePathsButton();
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * marks the runs whose weights come from a column of an edge table stale, after the
+	 * values of the column changed or it is deleted, and disables the more paths button
+	 * of their result panels
+	 * @param table the table
+	 * @param column the name of the column
+	 */
+	public void invalidateRuns(final CyTable table, final String column) {
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				for (Map.Entry<PathLinkerModel, PathLinkerResultPanel> entry : _modelToResultPanelMap.entrySet()) {
+					if (entry.getKey().isWeightedBy(table, column)) {
+						entry.getKey().setStale();
+						entry.getValue().updateMorePathsButton();
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * runs a task of the ksp algorithm in the task dialog, which shows its progress and
+	 * can cancel it. A cancelled run keeps the paths found until then, so the results
+	 * are shown whether the task finished or was cancelled
+	 * @param runKSPTask the task running the ksp algorithm
+	 * @param showResults shows the results of the task on the event dispatch thread once it ends
+	 */
+	private void executeKSP(RunKSPTask runKSPTask, final Runnable showResults) {
+		DialogTaskManager taskManager = _adapter.getCyServiceRegistrar().getService(DialogTaskManager.class);
+		taskManager.execute(new TaskIterator(runKSPTask), new TaskObserver() {
+			@Override
+			public void taskFinished(ObservableTask task) {
+			}
+
+			@Override
+			public void allFinished(FinishStatus finishStatus) {
+				SwingUtilities.invokeLater(showResults);
+			}
+		});
+	}
+
+	/**
+	 * generate sub network graph and result panel for the result of a model
+	 * @param network the network the algorithm ran on
+	 * @param model the model of the run
+	 */
+	private void createResultViews(CyNetwork network, PathLinkerModel model) {
         // create synchronous task manager to run the task on creating KSP subgraph and etc.
         SynchronousTaskManager<?> synTaskMan = _adapter.getCyServiceRegistrar().getService(SynchronousTaskManager.class);
 
-		// performs KSP algorithm by creating the runKSPTask
-		RunKSPTask runKSPTask = new RunKSPTask(_originalNetwork, _modelParams);
-		synTaskMan.execute(new TaskIterator(runKSPTask));
-		// obtain results from the runKSPTask
-		_model = runKSPTask.getResults(PathLinkerModel.class);
-
-		// check for not path found error
-		if (_model.getOutputK() == 0) { 
-		    JOptionPane.showMessageDialog(null, 
-		            "No paths found", 
-		            "Error Message", JOptionPane.ERROR_MESSAGE);
-		    return false;
-		}
-
 		// obtain result computed from the model
-		ArrayList<PathWay> result = _model.getResult();
+		ArrayList<PathWay> result = model.getResult();
 
 		// construct createKSPViewTask to create KSP subgraph, subgraph view, path rank, and update related properties
-		CreateKSPViewTask createKSPViewTask = new CreateKSPViewTask(this, _originalNetwork, _model, _adapter, _applicationManager);
+		CreateKSPViewTask createKSPViewTask = new CreateKSPViewTask(this, network, model, _adapter, _applicationManager);
 		synTaskMan.execute(new TaskIterator(createKSPViewTask));
 		_kspSubgraph = createKSPViewTask.getResults(CyNetwork.class);
 
 		// writes the result of the algorithm to a table
 		CreateResultPanelTask createResultPanelTask = new CreateResultPanelTask(this,
 		        _kspSubgraph, String.valueOf(nameIndex),
-                _networkManager, result, _serviceRegistrar, _cySwingApp);
+                _networkManager, result, model, _serviceRegistrar, _cySwingApp);
 		synTaskMan.execute(new TaskIterator(createResultPanelTask));
-
-		return true;
 	}
 
 	/**
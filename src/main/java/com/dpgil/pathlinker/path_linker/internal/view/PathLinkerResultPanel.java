@@ -36,6 +36,7 @@ import org.cytoscape.model.CyNetworkManager;
 import org.cytoscape.model.CyNode;
 import org.cytoscape.model.CyTableUtil;
 
+import com.dpgil.pathlinker.path_linker.internal.model.PathLinkerModel;
 import com.dpgil.pathlinker.path_linker.internal.util.Algorithms.PathWay;
 
 /**
@@ -58,8 +59,11 @@ public class PathLinkerResultPanel extends JPanel implements CytoPanelComponent
     private final CyNetwork _currentNetwork;
     /** The tab title of the result panel */
     private String _title;
+    /** The model of the run, to continue it to more paths */
+    private PathLinkerModel _model;
 
     private JButton _exportBtn;
+    private JButton _morePathsBtn;
     private JButton _deleteBtn;
     private JTable _resultTable;
     private JScrollPane _resultScrollPane;
@@ -71,19 +75,22 @@ public class PathLinkerResultPanel extends JPanel implements CytoPanelComponent
      * @param networkManager the network manager of the app
      * @param currentNetwork the current network associated with the result panel
      * @param results the results from PathLinker
+     * @param model the model of the run, null if it can't be continued
      */
     public PathLinkerResultPanel(
             PathLinkerControlPanel controlPanel,
             String title,
             CyNetworkManager networkManager,
             CyNetwork currentNetwork,
-            List<PathWay> results)
+            List<PathWay> results,
+            PathLinkerModel model)
     {
         this._controlPanel = controlPanel;
         this._title = title;
         this._networkManager = networkManager;
         this._currentNetwork = currentNetwork;
         this._results = results;
+        this._model = model;
         initializePanel();
     }
 
@@ -104,6 +111,53 @@ public class PathLinkerResultPanel extends JPanel implements CytoPanelComponent
         }
     }
 
+    /** 
+     * Listener for the more paths button
+     * 
+     * Listener is fired when user clicks on the more paths button
+     */
+    class MorePathsButtonListener implements ActionListener {
+        // continues the run to the number of paths the user enters
+        @Override
+        public void actionPerformed(ActionEvent e) {
+            // the state of the run is of the network before it changed
+            if (_model.isStale()) {
+                JOptionPane.showMessageDialog(null, 
+                        "The network changed since the run, so the run can't be continued", 
+                        "Error Message", JOptionPane.ERROR_MESSAGE);
+                updateMorePathsButton();
+                return;
+            }
+
+            // a partitioned run keeps no state, so it computes all its paths again
+            String message = "Number of paths (k) to continue the run to:";
+            if (_model.isPartitioned())
+                message = "The run is partitioned by source, so all its paths are computed again.\n" + message;
+
+            String input = JOptionPane.showInputDialog(null, message, _model.getInputK() * 2);
+
+            if (input == null) return; // quit if select cancel
+
+            int k;
+            try {
+                k = Integer.parseInt(input.trim());
+            } catch (NumberFormatException exception) {
+                k = 0;
+            }
+
+            if (k <= _model.getInputK()) {
+                JOptionPane.showMessageDialog(null, 
+                        "k must be an integer greater than " + _model.getInputK(), 
+                        "Error Message", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+
+            // the panel of the continued run takes the model over
+            _morePathsBtn.setEnabled(false);
+            _controlPanel.continueKSP(_model, k);
+        }
+    }
+
     /** 
      * Listener for the delete button
      *
@@ -154,6 +208,11 @@ public class PathLinkerResultPanel extends JPanel implements CytoPanelComponent
             if (_networkManager.getNetwork(_currentNetwork.getSUID()) != null)
                 _networkManager.destroyNetwork(_currentNetwork);
 
+            // the run can't be continued once its result is deleted
+            if (_model != null)
+                _controlPanel._modelToResultPanelMap.remove(_model);
+            releaseModel();
+
             // clean up the suid-pathindex and pathindex-suid maps
             _controlPanel._pathRankToSuidMap.remove(
                     _controlPanel._suidToPathRankMap.remove(
@@ -223,6 +282,23 @@ public class PathLinkerResultPanel extends JPanel implements CytoPanelComponent
         }
     }
 
+    /**
+     * Gives up the model of the run, once the panel of a continued run took it
+     * over or the result is deleted, so the run is continued from one panel only
+     */
+    public void releaseModel() {
+        _model = null;
+        _morePathsBtn.setEnabled(false);
+    }
+
+    /**
+     * Enables the more paths button if the panel can continue the run,
+     * and its network hasn't changed since the run
+     */
+    public void updateMorePathsButton() {
+        _morePathsBtn.setEnabled(_model != null && !_model.isStale());
+    }
+
     /**
      * Sets up the GroupLayout for the result panel
      * Sets up all the components and add to the result panel
@@ -239,6 +315,11 @@ public class PathLinkerResultPanel extends JPanel implements CytoPanelComponent
         _exportBtn = new JButton("Export");
         _exportBtn.addActionListener(new ExportButtonListener());
 
+        // initialize more paths button, enabled if the run can be continued
+        _morePathsBtn = new JButton("More Paths");
+        _morePathsBtn.addActionListener(new MorePathsButtonListener());
+        _morePathsBtn.setEnabled(_model != null && !_model.isStale());
+
         // initialize delete button
         _deleteBtn = new JButton("Delete");
         _deleteBtn.addActionListener(new DeleteButtonListener());
@@ -249,6 +330,7 @@ public class PathLinkerResultPanel extends JPanel implements CytoPanelComponent
         mainLayout.setHorizontalGroup(mainLayout.createParallelGroup(Alignment.LEADING, true)
                 .addGroup(mainLayout.createSequentialGroup()
                         .addComponent(_exportBtn)
+                        .addComponent(_morePathsBtn)
                         .addComponent(_deleteBtn))
                 .addGroup(mainLayout.createParallelGroup(Alignment.LEADING, true)
                         .addComponent(_resultScrollPane))
@@ -256,6 +338,7 @@ public class PathLinkerResultPanel extends JPanel implements CytoPanelComponent
         mainLayout.setVerticalGroup(mainLayout.createSequentialGroup()
                 .addGroup(mainLayout.createParallelGroup(Alignment.LEADING, true)
                         .addComponent(_exportBtn)
+                        .addComponent(_morePathsBtn)
                         .addComponent(_deleteBtn))
                 .addGroup(mainLayout.createSequentialGroup()
                         .addComponent(_resultScrollPane))
@@ -397,7 +480,7 @@ public class PathLinkerResultPanel extends JPanel implements CytoPanelComponent
         // builds the path string without supersource/supertarget [1,len-1]
         StringBuilder currPath = new StringBuilder();
         for (int i = 1; i < p.size() - 1; i++)
-            currPath.append(p.nodeIdMap.get(p.get(i)) + "|");
+            currPath.append(p.getName(i) + "|");
 
         currPath.setLength(currPath.length() - 1);
 
@@ -0,0 +1,103 @@
+package com.dpgil.pathlinker.path_linker.internal;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Random;
+
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.model.NetworkTestSupport;
+import org.junit.Test;
+
+import com.dpgil.pathlinker.path_linker.internal.util.Algorithms;
+import com.dpgil.pathlinker.path_linker.internal.util.GraphSnapshot;
+import com.dpgil.pathlinker.path_linker.internal.util.KSPContext;
+
+/**
+ * JUnit test for the bidirectional searches. They find simple paths as
+ * short as those of Dijkstra, on random networks where many edges weigh
+ * nothing.
+ */
+public class BidirectionalSearchTest {
+
+	/**
+	 * Test: computes the shortest paths between random pairs of nodes of
+	 * random networks with the bidirectional Dijkstra and the bidirectional
+	 * search, with and without the distances to the target, and compares
+	 * their weights to those of Dijkstra. Half the edges weigh nothing, so
+	 * the two halves of a search often meet through a cycle of edges of
+	 * weight zero, which must be removed from the path
+	 */
+	@Test
+	public void testBidirectionalSearches() {
+	    Random random = new Random(17);
+
+	    for (int round = 0; round < 10; round++) {
+	        CyNetwork network = new NetworkTestSupport().getNetwork();
+	        CyNode[] nodes = new CyNode[60];
+	        for (int i = 0; i < nodes.length; i++)
+	            nodes[i] = network.addNode();
+
+	        HashMap<CyEdge, Double> weights = new HashMap<CyEdge, Double>();
+	        for (int i = 0; i < 200; i++) {
+	            CyNode source = nodes[random.nextInt(nodes.length)];
+	            CyNode target = nodes[random.nextInt(nodes.length)];
+	            weights.put(network.addEdge(source, target, true), random.nextBoolean() ? 0. : 1. + random.nextInt(3));
+	        }
+
+	        GraphSnapshot snapshot = new GraphSnapshot(network, weights);
+	        KSPContext context = new KSPContext(snapshot, new HashSet<CyEdge>());
+	        for (int pair = 0; pair < 20; pair++) {
+	            String name = "round " + round + " pair " + pair;
+	            int source = random.nextInt(nodes.length);
+	            int target = random.nextInt(nodes.length);
+	            double[] minDists = Algorithms.reverseSingleSourceDijkstra(snapshot, target);
+
+	            int[] expected = Algorithms.dijkstra(snapshot, source, target);
+	            int[][] results = {
+	                    Algorithms.bidirectionalDijkstra(snapshot, source, target),
+	                    Algorithms.bidirectionalSearch(context, 0, source, target, null, Double.POSITIVE_INFINITY),
+	                    Algorithms.bidirectionalSearch(context, 0, source, target, minDists, Double.POSITIVE_INFINITY) };
+
+	            for (int[] result : results) {
+	                if (expected == null) {
+	                    assertNull(name, result);
+	                    continue;
+	                }
+
+	                assertNotNull(name, result);
+	                assertEquals(name, pathWeight(snapshot, source, target, expected),
+	                        pathWeight(snapshot, source, target, result), 0.);
+	            }
+	        }
+	    }
+	}
+
+	/**
+	 * Checks that edges form a simple path from a source to a target of a snapshot
+	 * @param snapshot the snapshot
+	 * @param source the id of the source
+	 * @param target the id of the target
+	 * @param path the ids of the edges of the path
+	 * @return the weight of the path
+	 */
+	private double pathWeight(GraphSnapshot snapshot, int source, int target, int[] path) {
+	    HashSet<Integer> visited = new HashSet<Integer>();
+	    visited.add(source);
+
+	    int node = source;
+	    double weight = 0.;
+	    for (int edge : path) {
+	        assertEquals(node, snapshot.edgeSource(edge));
+	        node = snapshot.edgeTarget(edge);
+	        assertTrue("the path has a cycle", visited.add(node));
+	        weight += snapshot.edgeWeight(edge);
+	    }
+	    assertEquals(target, node);
+
+	    return weight;
+	}
+}
@@ -0,0 +1,131 @@
+package com.dpgil.pathlinker.path_linker.internal;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.model.NetworkTestSupport;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.dpgil.pathlinker.path_linker.internal.util.Algorithms.IndexedPath;
+import com.dpgil.pathlinker.path_linker.internal.util.CandidatePool;
+import com.dpgil.pathlinker.path_linker.internal.util.GraphSnapshot;
+import com.dpgil.pathlinker.path_linker.internal.util.PathStore;
+
+/**
+ * JUnit test for the bound of the candidate pool. The candidates are the
+ * one edge paths of a star network, each weighing the weight of its edge.
+ * The candidates tied with the bound are kept, extending a run after some
+ * candidates were polled loosens the bound, and a candidate heavier than
+ * the bound is evicted again when it is added again.
+ */
+public class CandidatePoolTest {
+
+	/** the weights of the edges of the star network, so of the candidates */
+	private static final double[] WEIGHTS = { 1., 2., 2., 2., 3., 4. };
+
+	/** the store of the candidate paths */
+	private PathStore store;
+	/** the candidate path of each edge of the star network */
+	private ArrayList<IndexedPath> paths;
+
+	/**
+	 * Creates the star network and the candidate paths
+	 */
+	@Before
+	public void setUp() {
+	    CyNetwork network = new NetworkTestSupport().getNetwork();
+	    CyNode center = network.addNode();
+
+	    ArrayList<CyEdge> edges = new ArrayList<CyEdge>();
+	    HashMap<CyEdge, Double> weights = new HashMap<CyEdge, Double>();
+	    for (double weight : WEIGHTS) {
+	        CyEdge edge = network.addEdge(center, network.addNode(), true);
+	        edges.add(edge);
+	        weights.put(edge, weight);
+	    }
+
+	    GraphSnapshot graph = new GraphSnapshot(network, weights);
+	    store = new PathStore(graph);
+	    paths = new ArrayList<IndexedPath>();
+	    for (CyEdge edge : edges) {
+	        int start = store.start(graph.getIndex(center));
+	        paths.add(new IndexedPath(store, store.append(start, graph.getEdgeIndex(edge)), 2, 0));
+	    }
+	}
+
+	/**
+	 * Test: with two candidates accepted at most, the bound is the weight of
+	 * the second lightest candidate. The candidates tied with it survive the
+	 * eviction, and only the heavier ones are evicted, heaviest first
+	 */
+	@Test
+	public void testTiesSurviveEviction() {
+	    CandidatePool pool = new CandidatePool(2);
+	    for (IndexedPath path : paths)
+	        assertTrue(pool.add(path));
+
+	    assertEquals(2., pool.bound(), 0.);
+	    assertSame(paths.get(5), pool.evict());
+	    assertSame(paths.get(4), pool.evict());
+	    assertNull(pool.evict());
+	    assertEquals(4, pool.size());
+
+	    // the tied candidates come out in the order they were added
+	    for (int i = 0; i < 4; i++)
+	        assertSame(paths.get(i), pool.poll());
+	    assertTrue(pool.isEmpty());
+	}
+
+	/**
+	 * Test: extending the run after a candidate was polled computes the bound
+	 * again from the candidates polled and those in the pool, so it loosens
+	 * to the weight of the n-th lightest of them and evicts nothing more
+	 */
+	@Test
+	public void testSetAcceptedAfterPoll() {
+	    CandidatePool pool = new CandidatePool(2);
+	    pool.add(paths.get(0));
+	    pool.add(paths.get(1));
+	    pool.add(paths.get(4));
+	    assertEquals(2., pool.bound(), 0.);
+
+	    assertSame(paths.get(0), pool.poll());
+	    pool.setAccepted(3);
+	    assertEquals(3., pool.bound(), 0.);
+	    assertNull(pool.evict());
+	    assertEquals(2, pool.size());
+
+	    // a heavier candidate added after it is evicted
+	    pool.add(paths.get(5));
+	    assertEquals(3., pool.bound(), 0.);
+	    assertSame(paths.get(5), pool.evict());
+	}
+
+	/**
+	 * Test: an evicted candidate is no longer a duplicate, so it is added
+	 * again, but the bound only tightens, so it is evicted again
+	 */
+	@Test
+	public void testEvictedStaysEvicted() {
+	    CandidatePool pool = new CandidatePool(2);
+	    pool.add(paths.get(0));
+	    pool.add(paths.get(1));
+	    pool.add(paths.get(4));
+	    assertSame(paths.get(4), pool.evict());
+	    assertFalse(pool.add(paths.get(1)));
+
+	    assertTrue(pool.add(paths.get(4)));
+	    assertEquals(2., pool.bound(), 0.);
+	    assertSame(paths.get(4), pool.evict());
+	    assertNull(pool.evict());
+	    assertSame(paths.get(0), pool.poll());
+	    assertSame(paths.get(1), pool.poll());
+	    assertTrue(pool.isEmpty());
+	}
+}
@@ -0,0 +1,124 @@
+package com.dpgil.pathlinker.path_linker.internal;
+
+import static com.dpgil.pathlinker.path_linker.internal.KSPTestNetwork.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNode;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.dpgil.pathlinker.path_linker.internal.model.PathLinkerModel;
+import com.dpgil.pathlinker.path_linker.internal.util.Algorithms;
+import com.dpgil.pathlinker.path_linker.internal.util.EdgeWeightType;
+import com.dpgil.pathlinker.path_linker.internal.util.GraphSnapshot;
+import com.dpgil.pathlinker.path_linker.internal.util.HeuristicCache;
+import com.dpgil.pathlinker.path_linker.internal.util.KSPContext;
+
+/**
+ * JUnit test for the heuristic cache. The tree of the shortest paths read
+ * from the cache is the one the search computes, whatever the search, and
+ * the distances cached by a query are those of the queries from other
+ * sources.
+ */
+public class HeuristicCacheTest {
+
+	/** the test network and its queries */
+	private KSPTestNetwork test;
+
+	/**
+	 * Creates a random network and the queries to run on it
+	 */
+	@Before
+	public void setUp() {
+	    test = new KSPTestNetwork();
+	}
+
+	/**
+	 * Test: computes the tree of the shortest paths to the target of every
+	 * query by counting edges on the network with every edge weighing 1, by
+	 * Dijkstra with every edge weighing 2, and from the heuristic cache. The
+	 * searches differ, but the trees break the ties between shortest paths
+	 * the same way, so they are the same
+	 */
+	@Test
+	public void testCanonicalTrees() {
+	    GraphSnapshot graph = test.graph;
+	    GraphSnapshot unweighted = new GraphSnapshot(test.network, test.uniformWeights(1.));
+	    GraphSnapshot weighted = new GraphSnapshot(test.network, test.uniformWeights(2.));
+	    HeuristicCache cache = new HeuristicCache();
+
+	    for (int i = 0; i < QUERIES; i++) {
+	        int source = graph.getIndex(test.sources[i]);
+	        int target = graph.getIndex(test.targets[i]);
+
+	        int[] expected = new int[graph.nodeCount()];
+	        Algorithms.reverseSingleSourceDijkstra(weighted, target, expected);
+	        int[] hopTree = new int[graph.nodeCount()];
+	        Algorithms.reverseSingleSourceDijkstra(unweighted, target, hopTree);
+	        assertArrayEquals("query " + i, expected, hopTree);
+
+	        // the first run fills the cache and the second reads the tree from it
+	        HeuristicCache.Key key = new HeuristicCache.Key(test.network, WEIGHT_COLUMN, EdgeWeightType.ADDITIVE, 0.,
+	                false, Collections.singletonList(test.targets[i]));
+	        int[] freshTree = new int[graph.nodeCount()];
+	        int[] cachedTree = new int[graph.nodeCount()];
+	        for (int[] treeEdges : new int[][] { freshTree, cachedTree }) {
+	            KSPContext context = test.context(i);
+	            context.setHeuristicCache(cache, key);
+	            Algorithms.computeHeuristicDistances(context, source, target, treeEdges);
+	        }
+	        assertArrayEquals("query " + i, freshTree, cachedTree);
+	    }
+	    assertEquals(QUERIES, cache.getHits());
+	}
+
+	/**
+	 * Test: runs a query from a node before the target, then queries from the
+	 * nodes before it to the same target, sharing a heuristic cache, with the
+	 * probabilities, and compares each to the run without the cache. The
+	 * edges entering the source of the first query are hidden, but they are
+	 * log transformed like the others, so the distances it caches are those
+	 * of the next queries, where the edges are taken, and the paths are the same
+	 */
+	@Test
+	public void testHiddenEdgeWeights() {
+	    CyNetwork network = test.network;
+	    CyNode target = test.targets[0];
+	    String column = "edge_probability";
+	    network.getDefaultEdgeTable().createColumn(column, Double.class, false);
+	    for (CyEdge edge : network.getEdgeList())
+	        network.getRow(edge).set(column, network.getRow(edge).get(WEIGHT_COLUMN, Double.class) / 5);
+
+	    // the likeliest edges entering the first source weigh the most untransformed
+	    CyNode first = network.getAdjacentEdgeList(target, CyEdge.Type.INCOMING).get(0).getSource();
+	    ArrayList<CyNode> querySources = new ArrayList<CyNode>();
+	    querySources.add(first);
+	    for (int i = 0; i < querySources.size() && querySources.size() < 20; i++)
+	        for (CyEdge edge : network.getAdjacentEdgeList(querySources.get(i), CyEdge.Type.INCOMING))
+	            if (edge.getSource() != target && !querySources.contains(edge.getSource()))
+	                querySources.add(edge.getSource());
+	    assertTrue(querySources.size() > 1);
+
+	    HeuristicCache cache = new HeuristicCache();
+	    for (CyNode source : querySources) {
+	        ArrayList<List<String>> results = new ArrayList<List<String>>();
+	        for (HeuristicCache heuristicCache : new HeuristicCache[] { null, cache }) {
+	            PathLinkerModel model = new PathLinkerModel(network, false, false, true,
+	                    Collections.singleton(test.cyNodeToId.get(source)), Collections.singleton(test.cyNodeToId.get(target)),
+	                    Collections.singletonList(source), Collections.singletonList(target), column, K,
+	                    EdgeWeightType.PROBABILITIES, 1., test.cyNodeToId);
+	            model.setHeuristicCache(heuristicCache);
+	            model.runKSP();
+	            results.add(describe(model.getResult()));
+	        }
+	        assertEquals(test.cyNodeToId.get(source), results.get(0), results.get(1));
+	    }
+	    assertEquals(querySources.size() - 1, cache.getHits());
+	}
+}
@@ -0,0 +1,183 @@
+package com.dpgil.pathlinker.path_linker.internal;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.model.NetworkTestSupport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.dpgil.pathlinker.path_linker.internal.util.Algorithms;
+import com.dpgil.pathlinker.path_linker.internal.util.Algorithms.PathWay;
+import com.dpgil.pathlinker.path_linker.internal.util.GraphSnapshot;
+import com.dpgil.pathlinker.path_linker.internal.util.KSPAlgorithm;
+import com.dpgil.pathlinker.path_linker.internal.util.KSPContext;
+
+/**
+ * JMH benchmarks for the KSP algorithm, comparing the algorithms of the spur
+ * searches for large k. Not part of the unit tests, run the main method from
+ * the test classpath to execute them.
+ *
+ * The network is either a random directed network with a fixed average out
+ * degree, or a square grid with edges both ways between neighbors, whose
+ * long shortest paths make many spur searches leave the tree of the
+ * shortest paths. The edge weights are uniform and generated from a fixed
+ * seed so runs are comparable, or all 1 so the searches count edges. The
+ * paths run between a super source and a super target attached to a few
+ * random nodes, as PathLinker runs them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class KSPBenchmark {
+
+	/** the number of nodes of the benchmark network */
+	@Param({"20000"})
+	private int nodeCount;
+
+	/** the shape of the benchmark network, random or grid */
+	@Param({"random", "grid"})
+	private String shape;
+
+	/** the average out degree of the random benchmark network */
+	@Param({"4"})
+	private int degree;
+
+	/** the number of sources and of targets */
+	@Param({"3"})
+	private int terminalCount;
+
+	/** the number of paths to compute */
+	@Param({"1000", "5000", "20000"})
+	private int k;
+
+	/** the algorithm of the spur searches */
+	@Param({"YEN", "NODE_CLASSIFICATION"})
+	private KSPAlgorithm algorithm;
+
+	/** whether the edges have uniform random weights or all weigh 1, as with the unweighted option */
+	@Param({"uniform", "unweighted"})
+	private String weighting;
+
+	/** snapshot of the benchmark network */
+	private GraphSnapshot graph;
+	/** id of the super source */
+	private int superSource;
+	/** id of the super target */
+	private int superTarget;
+
+	/**
+	 * Builds the benchmark network and its snapshot
+	 */
+	@Setup
+	public void setUp() {
+	    Random random = new Random(42);
+	    CyNetwork network = new NetworkTestSupport().getNetwork();
+
+	    CyNode[] nodes = new CyNode[nodeCount];
+	    for (int i = 0; i < nodeCount; i++)
+	        nodes[i] = network.addNode();
+
+	    HashMap<CyEdge, Double> weights = new HashMap<CyEdge, Double>();
+	    if (shape.equals("grid")) {
+	        int side = (int) Math.sqrt(nodeCount);
+	        for (int i = 0; i < nodeCount; i++) {
+	            if (i % side + 1 < side && i + 1 < nodeCount) {
+	                weights.put(network.addEdge(nodes[i], nodes[i + 1], true), weight(random));
+	                weights.put(network.addEdge(nodes[i + 1], nodes[i], true), weight(random));
+	            }
+	            if (i + side < nodeCount) {
+	                weights.put(network.addEdge(nodes[i], nodes[i + side], true), weight(random));
+	                weights.put(network.addEdge(nodes[i + side], nodes[i], true), weight(random));
+	            }
+	        }
+	    } else {
+	        for (int i = 0; i < nodeCount * degree; i++) {
+	            CyNode source = nodes[random.nextInt(nodeCount)];
+	            CyNode target = nodes[random.nextInt(nodeCount)];
+	            if (source == target)
+	                continue;
+
+	            weights.put(network.addEdge(source, target, true), weight(random));
+	        }
+	    }
+
+	    // the edges from the super source and to the super target weigh
+	    // nothing, as in PathLinkerModel
+	    CyNode source = network.addNode();
+	    CyNode target = network.addNode();
+	    for (int i = 0; i < terminalCount; i++) {
+	        weights.put(network.addEdge(source, nodes[random.nextInt(nodeCount)], true), 0.);
+	        weights.put(network.addEdge(nodes[random.nextInt(nodeCount)], target, true), 0.);
+	    }
+
+	    graph = new GraphSnapshot(network, weights);
+	    superSource = graph.getIndex(source);
+	    superTarget = graph.getIndex(target);
+	}
+
+	/**
+	 * Draws the weight of an edge of the benchmark network
+	 *
+	 * @param random
+	 *            the generator of the weights
+	 * @return the weight of the edge
+	 */
+	private double weight(Random random) {
+	    // drawn either way, so both weightings have the same edges
+	    double weight = 1 + random.nextDouble();
+	    return weighting.equals("unweighted") ? 1. : weight;
+	}
+
+	/**
+	 * Computes the k shortest paths from the super source to the super
+	 * target
+	 *
+	 * @return the paths, to keep the computation alive
+	 */
+	@Benchmark
+	public ArrayList<PathWay> ksp() {
+	    KSPContext context = new KSPContext(graph, new HashSet<CyEdge>());
+	    context.setAlgorithm(algorithm);
+
+	    return Algorithms.ksp(context, new HashMap<CyNode, String>(), superSource, superTarget, k, false);
+	}
+
+	/**
+	 * Runs the benchmarks
+	 *
+	 * @param args
+	 *            unused
+	 * @throws RunnerException
+	 *             if the benchmarks fail to run
+	 */
+	public static void main(String[] args) throws RunnerException {
+	    Options options = new OptionsBuilder()
+	            .include(KSPBenchmark.class.getSimpleName())
+	            .build();
+
+	    new Runner(options).run();
+	}
+}
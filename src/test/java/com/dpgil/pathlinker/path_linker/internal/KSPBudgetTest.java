@@ -0,0 +1,112 @@
+package com.dpgil.pathlinker.path_linker.internal;
+
+import static com.dpgil.pathlinker.path_linker.internal.KSPTestNetwork.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.dpgil.pathlinker.path_linker.internal.util.Algorithms.PathWay;
+import com.dpgil.pathlinker.path_linker.internal.util.KSPContext;
+import com.dpgil.pathlinker.path_linker.internal.util.KSPProgressListener;
+
+/**
+ * JUnit test for stopping the KSP algorithm before it found all the paths.
+ * A run cancelled from its progress listener gives the first paths of the
+ * full run, and so does a run stopped by its time or memory budget.
+ */
+public class KSPBudgetTest {
+
+	/** the test network and its queries */
+	private KSPTestNetwork test;
+
+	/**
+	 * Creates a random network and the queries to run on it
+	 */
+	@Before
+	public void setUp() {
+	    test = new KSPTestNetwork();
+	}
+
+	/**
+	 * Test: runs every query with a progress listener that cancels the run
+	 * once it accepted a fifth of the paths, like the task dialog does. The
+	 * listener must be called for each path accepted, and the cancelled run
+	 * must return the first paths of the full run
+	 */
+	@Test
+	public void testCancelFromProgressListener() {
+	    for (int i = 0; i < QUERIES; i++) {
+	        List<String> expected = test.runQuery(i, null);
+	        if (expected.size() <= K / 5)
+	            continue;
+
+	        final KSPContext context = test.context(i);
+	        final ArrayList<Integer> reported = new ArrayList<Integer>();
+	        context.setProgressListener(new KSPProgressListener() {
+	            @Override
+	            public void pathAccepted(int paths, int candidates, long elapsedMillis) {
+	                reported.add(paths);
+	                if (paths == K / 5)
+	                    context.cancel();
+	            }
+	        });
+
+	        ArrayList<PathWay> paths = test.ksp(context, i, K);
+
+	        assertTrue("query " + i, context.isCancelled());
+	        assertEquals("query " + i, expected.subList(0, K / 5), describe(paths));
+	        for (int j = 0; j < reported.size(); j++)
+	            assertEquals("query " + i, j + 1, (int) reported.get(j));
+	        assertEquals("query " + i, K / 5, reported.size());
+	    }
+	}
+
+	/**
+	 * Test: runs every query with the memory of a single path, and with a
+	 * time budget that a listener slowing each path down runs out of. Both
+	 * runs must be truncated and return the first paths of the full run,
+	 * the memory budget only the first one
+	 */
+	@Test
+	public void testBudgets() {
+	    for (int i = 0; i < QUERIES; i++) {
+	        List<String> expected = test.runQuery(i, null);
+	        if (expected.size() <= 5)
+	            continue;
+
+	        for (boolean memory : new boolean[] { true, false }) {
+	            String name = "query " + i + (memory ? " memory" : " time");
+	            KSPContext context = test.context(i);
+	            if (memory) {
+	                context.setMaxCandidateMemory(1);
+	            } else {
+	                context.setMaxRuntimeMillis(50);
+	                context.setProgressListener(new KSPProgressListener() {
+	                    @Override
+	                    public void pathAccepted(int paths, int candidates, long elapsedMillis) {
+	                        try {
+	                            Thread.sleep(20);
+	                        } catch (InterruptedException e) {
+	                            Thread.currentThread().interrupt();
+	                        }
+	                    }
+	                });
+	            }
+
+	            List<String> result = describe(test.ksp(context, i, K));
+
+	            assertTrue(name, context.isTruncated());
+	            assertFalse(name, context.isCancelled());
+	            assertFalse(name, result.isEmpty());
+	            assertTrue(name, result.size() < expected.size());
+	            if (memory)
+	                assertEquals(name, 1, result.size());
+	            assertEquals(name, expected.subList(0, result.size()), result);
+	        }
+	    }
+	}
+}
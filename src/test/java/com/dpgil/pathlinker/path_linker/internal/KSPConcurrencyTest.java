@@ -0,0 +1,138 @@
+package com.dpgil.pathlinker.path_linker.internal;
+
+import static com.dpgil.pathlinker.path_linker.internal.KSPTestNetwork.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.dpgil.pathlinker.path_linker.internal.util.Algorithms;
+import com.dpgil.pathlinker.path_linker.internal.util.GraphSnapshot;
+
+/**
+ * JUnit stress test for running the KSP algorithm from several threads at
+ * once. Every thread runs on the same snapshot with its own context, and the
+ * results must be the same as running the queries one after the other. The
+ * same holds when the spur searches of a single run are spread over a pool,
+ * and for the distances to the target computed in parallel.
+ */
+public class KSPConcurrencyTest {
+
+	/** the number of times each query is run concurrently */
+	private static final int REPEATS = 8;
+
+	/** the test network and its queries */
+	private KSPTestNetwork test;
+
+	/**
+	 * Creates a random network and the queries to run on it
+	 */
+	@Before
+	public void setUp() {
+	    test = new KSPTestNetwork();
+	}
+
+	/**
+	 * Test: runs every query several times from a pool of threads that all
+	 * start at once, and compares each result to the sequential result
+	 * @throws Exception
+	 */
+	@Test
+	public void testConcurrentRuns() throws Exception {
+	    ArrayList<List<String>> expected = new ArrayList<List<String>>();
+	    for (int i = 0; i < QUERIES; i++)
+	        expected.add(test.runQuery(i, null));
+
+	    ExecutorService executor = Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors()));
+	    final CountDownLatch start = new CountDownLatch(1);
+	    ArrayList<Future<List<String>>> futures = new ArrayList<Future<List<String>>>();
+
+	    try {
+	        for (int r = 0; r < REPEATS; r++) {
+	            for (int i = 0; i < QUERIES; i++) {
+	                final int query = i;
+	                futures.add(executor.submit(new Callable<List<String>>() {
+	                    @Override
+	                    public List<String> call() throws Exception {
+	                        start.await();
+	                        return test.runQuery(query, null);
+	                    }
+	                }));
+	            }
+	        }
+
+	        start.countDown();
+
+	        for (int i = 0; i < futures.size(); i++)
+	            assertEquals("query " + (i % QUERIES), expected.get(i % QUERIES), futures.get(i).get(60, TimeUnit.SECONDS));
+	    } finally {
+	        executor.shutdownNow();
+	    }
+	}
+
+	/**
+	 * Test: runs every query with the spur searches of each iteration in
+	 * parallel, and compares each result to the sequential result
+	 */
+	@Test
+	public void testParallelSpurSearches() {
+	    ForkJoinPool pool = new ForkJoinPool(4);
+
+	    try {
+	        for (int i = 0; i < QUERIES; i++)
+	            assertEquals("query " + i, test.runQuery(i, null), test.runQuery(i, pool));
+	    } finally {
+	        pool.shutdownNow();
+	    }
+	}
+
+	/**
+	 * Test: computes the distances to the target of every query with the
+	 * parallel delta-stepping, and compares them to the serial Dijkstra. The
+	 * trees break the ties between shortest paths the same way, so they are
+	 * the same, and each tree path must have the distance of its node. The
+	 * frontiers of the test network are small, so the steps run on the
+	 * calling thread, DeltaSteppingTest runs them in parallel tasks
+	 */
+	@Test
+	public void testParallelReverseDistances() {
+	    GraphSnapshot graph = test.graph;
+	    ForkJoinPool pool = new ForkJoinPool(4);
+
+	    try {
+	        for (int i = 0; i < QUERIES; i++) {
+	            int target = graph.getIndex(test.targets[i]);
+	            int[] expectedTree = new int[graph.nodeCount()];
+	            double[] expected = Algorithms.reverseSingleSourceDijkstra(graph, target, expectedTree);
+
+	            int[] treeEdges = new int[graph.nodeCount()];
+	            double[] distances = Algorithms.parallelReverseSingleSourceDijkstra(graph, target, treeEdges, pool);
+	            assertArrayEquals("query " + i, expected, distances, 0.);
+	            assertArrayEquals("query " + i, expectedTree, treeEdges);
+
+	            for (int node = 0; node < graph.nodeCount(); node++) {
+	                if (treeEdges[node] == -1)
+	                    continue;
+
+	                double cost = 0.;
+	                for (int next = node; next != target; next = graph.edgeTarget(treeEdges[next]))
+	                    cost += graph.edgeWeight(treeEdges[next]);
+
+	                assertEquals("query " + i + " node " + node, distances[node], cost, 1E-9);
+	            }
+	        }
+	    } finally {
+	        pool.shutdownNow();
+	    }
+	}
+}
@@ -0,0 +1,82 @@
+package com.dpgil.pathlinker.path_linker.internal;
+
+import static com.dpgil.pathlinker.path_linker.internal.KSPTestNetwork.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.dpgil.pathlinker.path_linker.internal.util.Algorithms;
+import com.dpgil.pathlinker.path_linker.internal.util.Algorithms.PathWay;
+import com.dpgil.pathlinker.path_linker.internal.util.GraphSnapshot;
+
+/**
+ * JUnit test for reading the paths of the KSP algorithm from its iterator.
+ * A run read from its iterator and stopped early gives the first paths of
+ * the full run, and a run extended to more paths gives the paths of the run
+ * to as many paths from the start.
+ */
+public class KSPIteratorTest {
+
+	/** the test network and its queries */
+	private KSPTestNetwork test;
+
+	/**
+	 * Creates a random network and the queries to run on it
+	 */
+	@Before
+	public void setUp() {
+	    test = new KSPTestNetwork();
+	}
+
+	/**
+	 * Test: reads the first paths of every query from the iterator of the
+	 * algorithm and stops, and compares them to the start of the full result
+	 */
+	@Test
+	public void testIteratorStopsEarly() {
+	    GraphSnapshot graph = test.graph;
+
+	    for (int i = 0; i < QUERIES; i++) {
+	        List<String> expected = test.runQuery(i, null);
+
+	        Algorithms.KSPIterator paths = Algorithms.kspIterator(test.context(i), test.cyNodeToId,
+	                graph.getIndex(test.sources[i]), graph.getIndex(test.targets[i]), K, false);
+
+	        ArrayList<String> first = new ArrayList<String>();
+	        while (first.size() < K / 5 && paths.hasNext())
+	            first.add(describe(paths.next()));
+
+	        assertEquals("query " + i, expected.subList(0, first.size()), first);
+	        assertEquals("query " + i, Math.min(K / 5, expected.size()), paths.accepted());
+	    }
+	}
+
+	/**
+	 * Test: runs every query to fewer paths, extends it to K paths, and
+	 * compares the weights of the paths to those of the full result. Paths of
+	 * equal weight may come in another order
+	 */
+	@Test
+	public void testIteratorExtends() {
+	    GraphSnapshot graph = test.graph;
+
+	    for (int i = 0; i < QUERIES; i++) {
+	        ArrayList<PathWay> expected = test.ksp(test.context(i), i, K);
+
+	        Algorithms.KSPIterator paths = Algorithms.kspIterator(test.context(i), test.cyNodeToId,
+	                graph.getIndex(test.sources[i]), graph.getIndex(test.targets[i]), K / 5, false);
+
+	        ArrayList<PathWay> result = paths.remaining();
+	        paths.extend(K);
+	        result.addAll(paths.remaining());
+
+	        assertEquals("query " + i, expected.size(), result.size());
+	        for (int j = 0; j < expected.size(); j++)
+	            assertEquals("query " + i + " path " + j, expected.get(j).weight, result.get(j).weight, 1e-9);
+	    }
+	}
+}
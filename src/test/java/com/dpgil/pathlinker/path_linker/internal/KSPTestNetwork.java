@@ -0,0 +1,234 @@
+package com.dpgil.pathlinker.path_linker.internal;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.model.NetworkTestSupport;
+
+import com.dpgil.pathlinker.path_linker.internal.util.Algorithms;
+import com.dpgil.pathlinker.path_linker.internal.util.Algorithms.PathWay;
+import com.dpgil.pathlinker.path_linker.internal.util.GraphSnapshot;
+import com.dpgil.pathlinker.path_linker.internal.util.KSPAlgorithm;
+import com.dpgil.pathlinker.path_linker.internal.util.KSPContext;
+
+/**
+ * The random network the KSP tests run their queries on, and the helpers to
+ * run and compare them. The network has few distinct weights, so there are
+ * many paths of equal length, and each query hides the incoming edges of its
+ * source and the outgoing edges of its target, like PathLinker does.
+ */
+class KSPTestNetwork {
+
+	/** the number of nodes of the test network */
+	static final int NODES = 300;
+	/** the number of edges of the test network */
+	static final int EDGES = 1500;
+	/** the number of different source/target queries */
+	static final int QUERIES = 16;
+	/** the number of paths computed by each query */
+	static final int K = 50;
+	/** the column of the edge table holding the weights of the edges */
+	static final String WEIGHT_COLUMN = "edge_weight";
+
+	/** the test network */
+	final CyNetwork network;
+	/** the snapshot of the test network */
+	final GraphSnapshot graph;
+	/** map mapping the nodes of the test network to their names */
+	final HashMap<CyNode, String> cyNodeToId;
+	/** the source node of each query */
+	final CyNode[] sources;
+	/** the target node of each query */
+	final CyNode[] targets;
+	/** the edges hidden in each query */
+	final List<Set<CyEdge>> hiddenEdges;
+
+	/**
+	 * Creates a random network and the queries to run on it
+	 */
+	KSPTestNetwork() {
+	    Random random = new Random(7);
+	    network = new NetworkTestSupport().getNetwork();
+
+	    cyNodeToId = new HashMap<CyNode, String>();
+	    CyNode[] nodes = new CyNode[NODES];
+	    for (int i = 0; i < NODES; i++) {
+	        nodes[i] = network.addNode();
+	        network.getRow(nodes[i]).set(CyNetwork.NAME, "N" + i);
+	        cyNodeToId.put(nodes[i], "N" + i);
+	    }
+
+	    // few distinct weights, so there are many paths of equal length
+	    HashMap<CyEdge, Double> weights = new HashMap<CyEdge, Double>();
+	    HashSet<String> pairs = new HashSet<String>();
+	    while (weights.size() < EDGES) {
+	        int source = random.nextInt(NODES);
+	        int target = random.nextInt(NODES);
+	        if (source == target || !pairs.add(source + "-" + target))
+	            continue;
+
+	        weights.put(network.addEdge(nodes[source], nodes[target], true), (double) (1 + random.nextInt(4)));
+	    }
+
+	    // the models read the weights from the edge table
+	    network.getDefaultEdgeTable().createColumn(WEIGHT_COLUMN, Double.class, false);
+	    for (CyEdge edge : weights.keySet())
+	        network.getRow(edge).set(WEIGHT_COLUMN, weights.get(edge));
+
+	    graph = new GraphSnapshot(network, weights);
+
+	    // each query hides the incoming edges of its source and the outgoing
+	    // edges of its target, like PathLinker does
+	    sources = new CyNode[QUERIES];
+	    targets = new CyNode[QUERIES];
+	    hiddenEdges = new ArrayList<Set<CyEdge>>();
+	    for (int i = 0; i < QUERIES; i++) {
+	        sources[i] = nodes[random.nextInt(NODES)];
+	        targets[i] = nodes[random.nextInt(NODES)];
+
+	        Set<CyEdge> hidden = new HashSet<CyEdge>();
+	        hidden.addAll(network.getAdjacentEdgeList(sources[i], CyEdge.Type.INCOMING));
+	        hidden.addAll(network.getAdjacentEdgeList(targets[i], CyEdge.Type.OUTGOING));
+	        hiddenEdges.add(hidden);
+	    }
+	}
+
+	/**
+	 * Weighs every edge of the test network the same
+	 * @param weight the weight of the edges
+	 * @return the weight of each edge
+	 */
+	HashMap<CyEdge, Double> uniformWeights(double weight) {
+	    HashMap<CyEdge, Double> weights = new HashMap<CyEdge, Double>();
+	    for (CyEdge edge : network.getEdgeList())
+	        weights.put(edge, weight);
+
+	    return weights;
+	}
+
+	/**
+	 * Creates the context of a query on the snapshot of the test network
+	 * @param query the index of the query
+	 * @return the context, hiding the edges of the query
+	 */
+	KSPContext context(int query) {
+	    return new KSPContext(graph, hiddenEdges.get(query));
+	}
+
+	/**
+	 * Runs a query on a context of the snapshot of the test network
+	 * @param context the context of the query
+	 * @param query the index of the query
+	 * @param k the number of paths
+	 * @return the paths found
+	 */
+	ArrayList<PathWay> ksp(KSPContext context, int query, int k) {
+	    return Algorithms.ksp(context, cyNodeToId, graph.getIndex(sources[query]),
+	            graph.getIndex(targets[query]), k, false);
+	}
+
+	/**
+	 * Runs a query on a snapshot of the test network
+	 * @param snapshot the snapshot to search
+	 * @param query the index of the query
+	 * @param algorithm the algorithm of the spur searches
+	 * @return the paths found
+	 */
+	ArrayList<PathWay> runQuery(GraphSnapshot snapshot, int query, KSPAlgorithm algorithm) {
+	    KSPContext context = new KSPContext(snapshot, hiddenEdges.get(query));
+	    context.setAlgorithm(algorithm);
+
+	    return Algorithms.ksp(context, cyNodeToId, snapshot.getIndex(sources[query]),
+	            snapshot.getIndex(targets[query]), K, false);
+	}
+
+	/**
+	 * Runs a query with Yen's algorithm
+	 * @param query the index of the query
+	 * @param spurSearchPool the pool to run the spur searches on, null to run them sequentially
+	 * @return the paths found, as their weight followed by the names of the nodes
+	 */
+	List<String> runQuery(int query, ForkJoinPool spurSearchPool) {
+	    return runQuery(query, spurSearchPool, KSPAlgorithm.YEN);
+	}
+
+	/**
+	 * Runs a query with its own context on the shared snapshot
+	 * @param query the index of the query
+	 * @param spurSearchPool the pool to run the spur searches on, null to run them sequentially
+	 * @param algorithm the algorithm of the spur searches
+	 * @return the paths found, as their weight followed by the names of the nodes
+	 */
+	List<String> runQuery(int query, ForkJoinPool spurSearchPool, KSPAlgorithm algorithm) {
+	    KSPContext context = context(query);
+	    context.setSpurSearchPool(spurSearchPool);
+	    context.setAlgorithm(algorithm);
+
+	    return describe(ksp(context, query, K));
+	}
+
+	/**
+	 * Checks that two results have the same paths but for which paths of the weight
+	 * of their last path they have
+	 * @param message the message of a failure
+	 * @param expected the paths of the first result, as their weight followed by the names of the nodes
+	 * @param result the paths of the second result, as their weight followed by the names of the nodes
+	 */
+	static void assertSamePaths(String message, List<String> expected, List<String> result) {
+	    assertEquals(message, weights(expected), weights(result));
+
+	    List<String> weights = weights(result);
+	    int lighter = weights.indexOf(weights.get(weights.size() - 1));
+	    assertEquals(message, expected.subList(0, lighter), result.subList(0, lighter));
+	}
+
+	/**
+	 * Describes the paths of a result
+	 * @param paths the paths
+	 * @return the weight of each path followed by the names of its nodes
+	 */
+	static List<String> describe(List<PathWay> paths) {
+	    ArrayList<String> result = new ArrayList<String>();
+	    for (PathWay path : paths)
+	        result.add(describe(path));
+
+	    return result;
+	}
+
+	/**
+	 * Describes a path of a query result
+	 * @param path the path
+	 * @return the weight of the path followed by the names of the nodes
+	 */
+	static String describe(PathWay path) {
+	    StringBuilder sb = new StringBuilder();
+	    sb.append(path.weight);
+	    for (int i = 0; i < path.size(); i++)
+	        sb.append(' ').append(path.getName(i));
+
+	    return sb.toString();
+	}
+
+	/**
+	 * Keeps only the weights of the paths of a query result
+	 * @param paths the paths, as their weight followed by the names of the nodes
+	 * @return the weights of the paths in order
+	 */
+	static List<String> weights(List<String> paths) {
+	    ArrayList<String> weights = new ArrayList<String>();
+	    for (String path : paths)
+	        weights.add(path.substring(0, path.indexOf(' ')));
+
+	    return weights;
+	}
+}
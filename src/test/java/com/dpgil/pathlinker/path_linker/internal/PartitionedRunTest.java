@@ -0,0 +1,117 @@
+package com.dpgil.pathlinker.path_linker.internal;
+
+import static com.dpgil.pathlinker.path_linker.internal.KSPTestNetwork.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.cytoscape.model.CyNode;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.dpgil.pathlinker.path_linker.internal.model.PathLinkerModel;
+import com.dpgil.pathlinker.path_linker.internal.util.EdgeWeightType;
+
+/**
+ * JUnit test for the runs partitioned by source. A run partitioned by
+ * source gives the paths of the run on its own, whatever the number of
+ * groups of sources, and a partition stopped by the memory budget stops the
+ * merged paths.
+ */
+public class PartitionedRunTest {
+
+	/** the test network and its queries */
+	private KSPTestNetwork test;
+
+	/**
+	 * Creates a random network to run the queries on
+	 */
+	@Before
+	public void setUp() {
+	    test = new KSPTestNetwork();
+	}
+
+	/**
+	 * Test: runs queries with several sources and targets, one node being
+	 * both, partitioned by source in groups and with a group per source, and
+	 * compares them path by path to the run on its own. With the ties the
+	 * paths are the same. Without them the run may take other paths of the
+	 * weight of its last path, so those only have the same weights. A
+	 * partition stopped by the memory budget stops the merged paths at its
+	 * last path, and the paths before are those of the run on its own
+	 */
+	@Test
+	public void testPartitionedRuns() {
+	    Random random = new Random(11);
+	    List<CyNode> nodes = test.network.getNodeList();
+
+	    for (int query = 0; query < 4; query++) {
+	        ArrayList<CyNode> queryNodes = new ArrayList<CyNode>();
+	        while (queryNodes.size() < 24) {
+	            CyNode node = nodes.get(random.nextInt(NODES));
+	            if (!queryNodes.contains(node))
+	                queryNodes.add(node);
+	        }
+	        List<CyNode> querySources = queryNodes.subList(0, 12);
+	        List<CyNode> queryTargets = new ArrayList<CyNode>(queryNodes.subList(12, 24));
+	        queryTargets.add(querySources.get(0));
+
+	        for (boolean ties : new boolean[] { false, true }) {
+	            String name = "query " + query + (ties ? " with ties" : "");
+	            List<String> expected = describe(runModel(querySources, queryTargets, ties, false, 0, 0).getResult());
+	            assertEquals(name, K, ties ? Math.min(K, expected.size()) : expected.size());
+
+	            for (int groups : new int[] { 2, 5, querySources.size() }) {
+	                List<String> result = describe(runModel(querySources, queryTargets, ties, true, groups, 0).getResult());
+	                if (ties)
+	                    assertEquals(name + " groups " + groups, expected, result);
+	                else
+	                    assertSamePaths(name + " groups " + groups, expected, result);
+	            }
+
+	            // the memory of a path and a few candidates stops the partitions
+	            PathLinkerModel stopped = runModel(querySources, queryTargets, ties, true, querySources.size(), 2000);
+	            assertTrue(name, stopped.isTruncated());
+
+	            List<String> result = describe(stopped.getResult());
+	            assertFalse(name, result.isEmpty());
+	            assertTrue(name, result.size() < expected.size());
+	            assertEquals(name, weights(expected).subList(0, result.size()), weights(result));
+	            assertSamePaths(name, expected.subList(0, result.size()), result);
+	        }
+	    }
+	}
+
+	/**
+	 * Runs the model on the test network with sources and targets not allowed inside paths
+	 * @param querySources the sources
+	 * @param queryTargets the targets
+	 * @param ties the option to include all paths of equal length
+	 * @param partitionBySource whether or not to partition the run by source
+	 * @param sourceGroups the number of groups of the sources of a partitioned run
+	 * @param maxCandidateMemory the memory budget of the run in bytes, 0 for no limit
+	 * @return the model after the run
+	 */
+	private PathLinkerModel runModel(List<CyNode> querySources, List<CyNode> queryTargets, boolean ties,
+	        boolean partitionBySource, int sourceGroups, long maxCandidateMemory) {
+	    HashSet<String> sourceNames = new HashSet<String>();
+	    for (CyNode node : querySources)
+	        sourceNames.add(test.cyNodeToId.get(node));
+	    HashSet<String> targetNames = new HashSet<String>();
+	    for (CyNode node : queryTargets)
+	        targetNames.add(test.cyNodeToId.get(node));
+
+	    PathLinkerModel model = new PathLinkerModel(test.network, false, false, ties, sourceNames, targetNames,
+	            new ArrayList<CyNode>(querySources), new ArrayList<CyNode>(queryTargets), WEIGHT_COLUMN, K,
+	            EdgeWeightType.ADDITIVE, 0., test.cyNodeToId);
+	    model.setPartitionBySource(partitionBySource);
+	    model.setSourceGroups(sourceGroups);
+	    model.setMaxCandidateMemory(maxCandidateMemory);
+	    model.runKSP();
+
+	    return model;
+	}
+}
@@ -24,6 +24,8 @@ import org.junit.Test;
 import com.dpgil.pathlinker.path_linker.internal.model.PathLinkerModel;
 import com.dpgil.pathlinker.path_linker.internal.model.PathLinkerModelParams;
 import com.dpgil.pathlinker.path_linker.internal.util.EdgeWeightType;
+import com.dpgil.pathlinker.path_linker.internal.util.HeuristicCache;
+import com.dpgil.pathlinker.path_linker.internal.util.KSPAlgorithm;
 import com.dpgil.pathlinker.path_linker.internal.util.Algorithms.PathWay;
 
 /** JUnit Test class for the PathLinker */
@@ -69,6 +71,16 @@ public class PathLinkerModelTest {
 	/** list that stores the mixed network output computed from the runKSP method */
 	private static ArrayList<String> resultMixed;
 
+	/** the variants of the algorithm compared to the output files of the direct graph */
+	private enum Variant {
+		/** the spur searches stop at the first node whose shortest path to the targets is open */
+		NODE_CLASSIFICATION,
+		/** the heuristic distances are read from the cache */
+		HEURISTIC_CACHE,
+		/** the searches are guided by the landmarks */
+		LANDMARKS
+	}
+
 
 	/**
 	 * Creates an empty network with edge_weight as an attribute for edge table
@@ -395,6 +407,59 @@ public class PathLinkerModelTest {
 		assertThat(resultDir, not(resultUndir));
 	}
 
+	/**
+	 * Test: to test that the variants of the algorithm produce the same result as Yen's algorithm on direct graphs:
+	 * the node classification, the runs reading the heuristic distances from the cache, and the runs guided by
+	 * the landmarks. the k values include all the paths tied with the kth path, so the paths are the same
+	 * the network file is not in src/test/resources, like those of the other tests of the human interactome,
+	 * so the test needs it added to run. SpurSearchTest compares the node classification and the landmarks to
+	 * Yen's algorithm on a random network that needs no file
+	 * network file (input file): graph-dir_human-interactome.txt
+	 * path file (output file):   graph-dir-output-unweighted_human-interactome.txt
+	 * 							  graph-dir-output-additive_human-interactome.txt
+	 * 							  graph-dir-output-probabilities_human-interactome.txt
+	 * network file source: http://bioinformatics.cs.vt.edu/~murali/supplements/2016-sys-bio-applications-pathlinker/
+	 * @throws IOException
+	 * @throws URISyntaxException
+	 */
+	@Test
+	public void testVariants() throws IOException, URISyntaxException {
+		String[] outputs = {"unweighted", "additive", "probabilities"};
+		int[] ks = {23, 31, 13};
+		EdgeWeightType[] edgeWeightTypes = {EdgeWeightType.UNWEIGHTED, EdgeWeightType.ADDITIVE, EdgeWeightType.PROBABILITIES};
+
+		for (Variant variant : Variant.values()) {
+			HeuristicCache heuristicCache = new HeuristicCache();
+
+			for (int i = 0; i < outputs.length; i++) {
+				ans = readExpected(outputs[i]);
+
+				//same k values as testDir, which enumerate all paths of the length of the kth path.
+				//with the cache, the first run fills it or selects the landmarks, the second reads from it
+				for (int run = 0; run < (variant == Variant.NODE_CLASSIFICATION ? 1 : 2); run++) {
+					modelSetUp(originalNetworkDir, ks[i], edgeWeightTypes[i], false);
+					if (variant == Variant.NODE_CLASSIFICATION)
+						testModel.setKSPAlgorithm(KSPAlgorithm.NODE_CLASSIFICATION);
+					else
+						testModel.setHeuristicCache(heuristicCache);
+					if (variant == Variant.LANDMARKS)
+						testModel.setLandmarkCount(8);
+					testModel.runKSP();
+
+					resultDir = new ArrayList<String>(); //construct list of paths as string to compare with ans list
+					for (String line : pathListToStringList(testModel.getResult()))
+						resultDir.add(keepColumns(line));
+					Collections.sort(resultDir);
+
+					assertEquals(variant + " " + outputs[i] + " run " + run, ans, resultDir); //test the result
+				}
+
+				if (variant == Variant.HEURISTIC_CACHE)
+					assertEquals(outputs[i], i + 1, heuristicCache.getHits());
+			}
+		}
+	}
+
 	/**
 	 * Test: to test that the option allow source and target in paths produce the correct result
 	 * network file (input file): graph-dir_human-interactome.txt
@@ -668,6 +733,40 @@ public class PathLinkerModelTest {
 	            modelParams.getCyNodeToId());
 	}
 
+	/**
+	 * Reads the paths of an output file of the direct graph
+	 * @param output the edge weight type of the output file: unweighted, additive or probabilities
+	 * @return the sorted list of the paths, each its rank, length and nodes separated by spaces
+	 * @throws IOException
+	 * @throws URISyntaxException
+	 */
+	private ArrayList<String> readExpected(String output) throws IOException, URISyntaxException {
+		//access output file
+		url = this.getClass().getResource("/output/graph-dir-output-" + output + "_human-interactome.txt");
+		file = new File(url.toURI());
+
+		//construct the string list based on output file
+		@SuppressWarnings("resource")
+		BufferedReader readerOutput = new BufferedReader(new FileReader(file));
+
+		ArrayList<String> expected = new ArrayList<String>();
+		for (String line = readerOutput.readLine(); line != null; line = readerOutput.readLine())
+			expected.add(keepColumns(line));
+
+		Collections.sort(expected);
+		return expected;
+	}
+
+	/**
+	 * Keeps the rank, the length and the nodes of a path
+	 * @param line the path, its columns separated by whitespace
+	 * @return the columns kept separated by spaces
+	 */
+	private String keepColumns(String line) {
+		String[] arr = line.split("\\s+");
+		return arr[0] + " " + arr[1] + " " + arr[2];
+	}
+
 	/**
 	 * Converts a path to a string concatenating the node names A path in the
 	 * network involving A -> B -> C would return A|B|C
@@ -678,7 +777,7 @@ public class PathLinkerModelTest {
 		//builds the path string without supersource/supertarget [1,len-1]
 		StringBuilder currPath = new StringBuilder();
 		for (int i = 1; i < p.size() - 1; i++)
-			currPath.append(p.nodeIdMap.get(p.nodeList.get(i)) + "|");
+			currPath.append(p.getName(i) + "|");
 
 		currPath.setLength(currPath.length() - 1);
 
@@ -0,0 +1,212 @@
+package com.dpgil.pathlinker.path_linker.internal;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.model.NetworkTestSupport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.dpgil.pathlinker.path_linker.internal.util.Algorithms;
+import com.dpgil.pathlinker.path_linker.internal.util.GraphSnapshot;
+
+/**
+ * JMH benchmarks for the shortest path routines PathLinker runs on every
+ * request. Not part of the unit tests, run the main method from the test
+ * classpath to execute them.
+ *
+ * The networks are random directed networks with a fixed average out degree
+ * and uniform edge weights, generated from a fixed seed so runs are
+ * comparable.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ShortestPathBenchmark {
+
+	/** the number of nodes of the benchmark network */
+	@Param({"10000", "100000"})
+	private int nodeCount;
+
+	/** the average out degree of the benchmark network */
+	@Param({"8"})
+	private int degree;
+
+	/** snapshot of the benchmark network */
+	private GraphSnapshot graph;
+	/** id of the node the reverse searches start from */
+	private int target;
+	/** the number of source/target pairs of the single pair searches */
+	private static final int PAIRS = 16;
+	/** ids of the sources of the single pair searches */
+	private int[] pairSources;
+	/** ids of the targets of the single pair searches */
+	private int[] pairTargets;
+
+	/**
+	 * Builds the random benchmark network and its snapshot
+	 */
+	@Setup
+	public void setUp() {
+	    Random random = new Random(42);
+	    CyNetwork network = new NetworkTestSupport().getNetwork();
+
+	    CyNode[] nodes = new CyNode[nodeCount];
+	    for (int i = 0; i < nodeCount; i++)
+	        nodes[i] = network.addNode();
+
+	    HashMap<CyEdge, Double> weights = new HashMap<CyEdge, Double>();
+	    for (int i = 0; i < nodeCount * degree; i++) {
+	        CyNode source = nodes[random.nextInt(nodeCount)];
+	        CyNode target = nodes[random.nextInt(nodeCount)];
+	        if (source == target)
+	            continue;
+
+	        weights.put(network.addEdge(source, target, true), 1 + random.nextDouble());
+	    }
+
+	    graph = new GraphSnapshot(network, weights);
+	    target = graph.getIndex(nodes[0]);
+
+	    pairSources = new int[PAIRS];
+	    pairTargets = new int[PAIRS];
+	    for (int i = 0; i < PAIRS; i++) {
+	        pairSources[i] = graph.getIndex(nodes[random.nextInt(nodeCount)]);
+	        pairTargets[i] = graph.getIndex(nodes[random.nextInt(nodeCount)]);
+	    }
+	}
+
+	/**
+	 * Reverse single source Dijkstra on the indexed d-ary heap, or
+	 * delta-stepping on the larger networks
+	 *
+	 * @return the distances, to keep the computation alive
+	 */
+	@Benchmark
+	public double[] reverseDijkstraIndexedHeap() {
+	    return Algorithms.reverseSingleSourceDijkstra(graph, target);
+	}
+
+	/**
+	 * Reverse single source delta-stepping on the common pool, whatever the
+	 * size of the network
+	 *
+	 * @return the distances, to keep the computation alive
+	 */
+	@Benchmark
+	public double[] reverseDeltaStepping() {
+	    return Algorithms.parallelReverseSingleSourceDijkstra(graph, target, new int[graph.nodeCount()],
+	            ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Reverse single source Dijkstra on a java.util.PriorityQueue, updating
+	 * the queue by removing and re-adding nodes as PathLinker used to
+	 *
+	 * @return the distances, to keep the computation alive
+	 */
+	@Benchmark
+	public double[] reverseDijkstraPriorityQueue() {
+	    final double[] distances = new double[graph.nodeCount()];
+	    PriorityQueue<Integer> pq = new PriorityQueue<Integer>(10, new Comparator<Integer>() {
+	        @Override
+	        public int compare(Integer o1, Integer o2) {
+	            return Double.compare(distances[o1], distances[o2]);
+	        }
+	    });
+
+	    Arrays.fill(distances, Integer.MAX_VALUE);
+	    distances[target] = 0.;
+	    pq.add(target);
+
+	    while (!pq.isEmpty()) {
+	        int current = pq.poll();
+
+	        for (int slot = graph.inBegin(current); slot < graph.inEnd(current); slot++) {
+	            int neighbor = graph.inSource(slot);
+	            double newCost = distances[current] + graph.inWeight(slot);
+
+	            if (newCost < distances[neighbor]) {
+	                pq.remove(neighbor);
+	                distances[neighbor] = newCost;
+	                pq.add(neighbor);
+	            }
+	        }
+	    }
+
+	    return distances;
+	}
+
+	/**
+	 * Single pair Dijkstra searching forward from the source, over all the
+	 * benchmark pairs
+	 *
+	 * @return the total number of edges of the paths, to keep the computation alive
+	 */
+	@Benchmark
+	public int singlePairDijkstra() {
+	    int edges = 0;
+	    for (int i = 0; i < PAIRS; i++) {
+	        int[] path = Algorithms.dijkstra(graph, pairSources[i], pairTargets[i]);
+	        edges += path != null ? path.length : 0;
+	    }
+
+	    return edges;
+	}
+
+	/**
+	 * Single pair bidirectional Dijkstra, over all the benchmark pairs
+	 *
+	 * @return the total number of edges of the paths, to keep the computation alive
+	 */
+	@Benchmark
+	public int singlePairBidirectionalDijkstra() {
+	    int edges = 0;
+	    for (int i = 0; i < PAIRS; i++) {
+	        int[] path = Algorithms.bidirectionalDijkstra(graph, pairSources[i], pairTargets[i]);
+	        edges += path != null ? path.length : 0;
+	    }
+
+	    return edges;
+	}
+
+	/**
+	 * Runs the benchmarks
+	 *
+	 * @param args
+	 *            unused
+	 * @throws RunnerException
+	 *             if the benchmarks fail to run
+	 */
+	public static void main(String[] args) throws RunnerException {
+	    Options options = new OptionsBuilder()
+	            .include(ShortestPathBenchmark.class.getSimpleName())
+	            .build();
+
+	    new Runner(options).run();
+	}
+}
@@ -0,0 +1,124 @@
+package com.dpgil.pathlinker.path_linker.internal;
+
+import static com.dpgil.pathlinker.path_linker.internal.KSPTestNetwork.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.dpgil.pathlinker.path_linker.internal.util.Algorithms;
+import com.dpgil.pathlinker.path_linker.internal.util.Algorithms.PathWay;
+import com.dpgil.pathlinker.path_linker.internal.util.EdgeWeightType;
+import com.dpgil.pathlinker.path_linker.internal.util.GraphSnapshot;
+import com.dpgil.pathlinker.path_linker.internal.util.HeuristicCache;
+import com.dpgil.pathlinker.path_linker.internal.util.KSPAlgorithm;
+import com.dpgil.pathlinker.path_linker.internal.util.KSPContext;
+
+/**
+ * JUnit test for the algorithms of the spur searches. The node
+ * classification finds paths of the same weights as Yen's algorithm, and so
+ * do the searches counting edges on an unweighted network. The spur
+ * searches answered from the tree, guided by the landmarks and run by the
+ * node classification return the same tied paths.
+ */
+public class SpurSearchTest {
+
+	/** the test network and its queries */
+	private KSPTestNetwork test;
+
+	/**
+	 * Creates a random network and the queries to run on it
+	 */
+	@Before
+	public void setUp() {
+	    test = new KSPTestNetwork();
+	}
+
+	/**
+	 * Test: runs every query with the node classification algorithm, in
+	 * sequence and in parallel, and compares the weights of the paths to the
+	 * result of Yen's algorithm. Paths of equal weight may come in another
+	 * order
+	 */
+	@Test
+	public void testNodeClassification() {
+	    ForkJoinPool pool = new ForkJoinPool(4);
+
+	    try {
+	        for (int i = 0; i < QUERIES; i++) {
+	            List<String> expected = weights(test.runQuery(i, null));
+	            assertEquals("query " + i, expected, weights(test.runQuery(i, null, KSPAlgorithm.NODE_CLASSIFICATION)));
+	            assertEquals("query " + i, expected, weights(test.runQuery(i, pool, KSPAlgorithm.NODE_CLASSIFICATION)));
+	        }
+	    } finally {
+	        pool.shutdownNow();
+	    }
+	}
+
+	/**
+	 * Test: runs every query on the network with every edge weighing 1, which
+	 * the searches count in edges, and with every edge weighing 2, which they
+	 * search as real weights. The lengths of the paths must be the same.
+	 * Paths of equal length may come in another order
+	 */
+	@Test
+	public void testHopCounts() {
+	    GraphSnapshot unweighted = new GraphSnapshot(test.network, test.uniformWeights(1.));
+	    GraphSnapshot weighted = new GraphSnapshot(test.network, test.uniformWeights(2.));
+	    assertTrue(unweighted.isHopCount());
+	    assertFalse(weighted.isHopCount());
+
+	    for (KSPAlgorithm algorithm : KSPAlgorithm.values()) {
+	        for (int i = 0; i < QUERIES; i++) {
+	            ArrayList<PathWay> expected = test.runQuery(weighted, i, algorithm);
+	            ArrayList<PathWay> result = test.runQuery(unweighted, i, algorithm);
+
+	            assertEquals("query " + i, expected.size(), result.size());
+	            for (int j = 0; j < expected.size(); j++)
+	                assertEquals("query " + i + " path " + j, expected.get(j).weight, 2 * result.get(j).weight, 0.);
+	        }
+	    }
+	}
+
+	/**
+	 * Test: runs every query with the ties, with the spur searches answered
+	 * from the tree of the shortest paths where they can, with the landmarks
+	 * and no tree, and with the node classification. The weights are whole
+	 * numbers, so paths of equal weight tie exactly, and every run must
+	 * return all the paths as light as its last one: the same paths
+	 */
+	@Test
+	public void testTreePathTies() {
+	    GraphSnapshot graph = test.graph;
+	    HeuristicCache cache = new HeuristicCache();
+
+	    for (int i = 0; i < QUERIES; i++) {
+	        int source = graph.getIndex(test.sources[i]);
+	        int target = graph.getIndex(test.targets[i]);
+	        ArrayList<List<String>> results = new ArrayList<List<String>>();
+
+	        for (int run = 0; run < 3; run++) {
+	            KSPContext context = test.context(i);
+	            if (run == 1) {
+	                context.setHeuristicCache(cache, new HeuristicCache.Key(test.network, WEIGHT_COLUMN,
+	                        EdgeWeightType.ADDITIVE, 0., false, Collections.singletonList(test.targets[i])));
+	                context.setLandmarkCount(4);
+	            }
+	            if (run == 2)
+	                context.setAlgorithm(KSPAlgorithm.NODE_CLASSIFICATION);
+
+	            ArrayList<PathWay> paths = Algorithms.ksp(context, test.cyNodeToId, source, target, K, true);
+	            Algorithms.sortResult(paths);
+	            results.add(describe(paths));
+	        }
+
+	        assertEquals("query " + i, results.get(0), results.get(1));
+	        assertEquals("query " + i, results.get(0), results.get(2));
+	    }
+	}
+}
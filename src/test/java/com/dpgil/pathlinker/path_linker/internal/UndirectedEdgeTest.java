@@ -0,0 +1,125 @@
+package com.dpgil.pathlinker.path_linker.internal;
+
+import static com.dpgil.pathlinker.path_linker.internal.KSPTestNetwork.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.model.NetworkTestSupport;
+import org.junit.Test;
+
+import com.dpgil.pathlinker.path_linker.internal.model.PathLinkerModel;
+import com.dpgil.pathlinker.path_linker.internal.util.EdgeWeightType;
+
+/**
+ * JUnit test for the undirected edges. The undirected edges, and the
+ * edges of a network treated as undirected, give the paths the two directed
+ * edges they stand for gave.
+ */
+public class UndirectedEdgeTest {
+
+	/**
+	 * Test: builds a random network of directed and undirected edges, and
+	 * copies of it with the undirected edges, or all the edges, doubled into
+	 * two directed edges, as the copy PathLinker ran on used to have them.
+	 * Runs the queries on the network, and treating it as undirected, and
+	 * compares them path by path to the runs on the doubled copies
+	 */
+	@Test
+	public void testUndirectedEdges() {
+	    Random random = new Random(13);
+	    int nodes = 100;
+	    ArrayList<int[]> pairs = new ArrayList<int[]>();
+	    HashSet<String> seen = new HashSet<String>();
+	    while (pairs.size() < 300) {
+	        int source = random.nextInt(nodes);
+	        int target = random.nextInt(nodes);
+	        if (source == target || !seen.add(Math.min(source, target) + "-" + Math.max(source, target)))
+	            continue;
+
+	        // the source, the target, the weight, and 1 for a directed edge
+	        pairs.add(new int[] { source, target, 1 + random.nextInt(4), random.nextInt(2) });
+	    }
+
+	    for (int query = 0; query < 8; query++) {
+	        List<String> querySources = Collections.singletonList("N" + random.nextInt(nodes));
+	        List<String> queryTargets = Collections.singletonList("N" + random.nextInt(nodes));
+	        if (querySources.equals(queryTargets))
+	            continue;
+
+	        for (boolean ties : new boolean[] { false, true }) {
+	            String name = "query " + query + (ties ? " with ties" : "");
+	            assertEquals(name, runUndirected(pairs, nodes, false, false, querySources, queryTargets, ties),
+	                    runUndirected(pairs, nodes, true, false, querySources, queryTargets, ties));
+	            assertEquals(name + " undirected", runUndirected(pairs, nodes, false, true, querySources, queryTargets, ties),
+	                    runUndirected(pairs, nodes, true, true, querySources, queryTargets, ties));
+	        }
+	    }
+	}
+
+	/**
+	 * Builds a network of directed and undirected edges and runs the model on it
+	 * @param pairs the source, target, weight and directedness, 1 for directed, of each edge
+	 * @param nodes the number of nodes, named N0 to N(nodes - 1)
+	 * @param doubled whether or not to add two directed edges for each edge that is
+	 *                undirected, or treated as undirected
+	 * @param undirected whether or not to treat the network as undirected
+	 * @param querySources the names of the sources
+	 * @param queryTargets the names of the targets
+	 * @param ties the option to include all paths of equal length
+	 * @return the paths found, as their weight followed by the names of the nodes
+	 */
+	private List<String> runUndirected(List<int[]> pairs, int nodes, boolean doubled, boolean undirected,
+	        List<String> querySources, List<String> queryTargets, boolean ties) {
+	    CyNetwork network = new NetworkTestSupport().getNetwork();
+	    network.getDefaultEdgeTable().createColumn(WEIGHT_COLUMN, Double.class, false);
+
+	    HashMap<CyNode, String> cyNodeToId = new HashMap<CyNode, String>();
+	    HashMap<String, CyNode> nameToNode = new HashMap<String, CyNode>();
+	    for (int i = 0; i < nodes; i++) {
+	        CyNode node = network.addNode();
+	        network.getRow(node).set(CyNetwork.NAME, "N" + i);
+	        cyNodeToId.put(node, "N" + i);
+	        nameToNode.put("N" + i, node);
+	    }
+
+	    for (int[] pair : pairs) {
+	        CyNode source = nameToNode.get("N" + pair[0]);
+	        CyNode target = nameToNode.get("N" + pair[1]);
+	        boolean directed = pair[3] == 1 && !(doubled && undirected);
+
+	        ArrayList<CyEdge> edges = new ArrayList<CyEdge>();
+	        if (directed || !doubled) {
+	            edges.add(network.addEdge(source, target, directed));
+	        } else {
+	            edges.add(network.addEdge(source, target, true));
+	            edges.add(network.addEdge(target, source, true));
+	        }
+	        for (CyEdge edge : edges)
+	            network.getRow(edge).set(WEIGHT_COLUMN, (double) pair[2]);
+	    }
+
+	    ArrayList<CyNode> sourceNodes = new ArrayList<CyNode>();
+	    for (String source : querySources)
+	        sourceNodes.add(nameToNode.get(source));
+	    ArrayList<CyNode> targetNodes = new ArrayList<CyNode>();
+	    for (String target : queryTargets)
+	        targetNodes.add(nameToNode.get(target));
+
+	    // the doubled copy is searched as directed, its edges stand for both directions
+	    PathLinkerModel model = new PathLinkerModel(network, undirected && !doubled, false, ties,
+	            new HashSet<String>(querySources), new HashSet<String>(queryTargets), sourceNodes, targetNodes,
+	            WEIGHT_COLUMN, K, EdgeWeightType.ADDITIVE, 0., cyNodeToId);
+	    model.runKSP();
+
+	    return describe(model.getResult());
+	}
+}
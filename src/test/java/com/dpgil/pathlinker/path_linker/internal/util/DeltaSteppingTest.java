@@ -0,0 +1,85 @@
+package com.dpgil.pathlinker.path_linker.internal.util;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.model.NetworkTestSupport;
+import org.junit.Test;
+
+/**
+ * JUnit test for the parallel delta-stepping of the distances to a target.
+ * The frontiers of a network small enough for a test never reach the size
+ * at which the steps run in parallel, so the search runs every step in
+ * parallel tasks of a few nodes each, which lower the distances of the same
+ * nodes with compare-and-set. The distances and the tree must be those of
+ * the serial reverse Dijkstra.
+ */
+public class DeltaSteppingTest {
+
+	/** the number of nodes of the test network */
+	private static final int NODES = 300;
+	/** the number of edges of the test network */
+	private static final int EDGES = 1500;
+	/** the number of targets searched */
+	private static final int QUERIES = 16;
+	/** the number of nodes of each parallel task */
+	private static final int CHUNK = 4;
+
+	/**
+	 * Test: computes the distances to random targets with every step in
+	 * parallel tasks, and compares the distances and the trees to the serial
+	 * search. Some edges weigh nothing, which ties nodes with their neighbors
+	 */
+	@Test
+	public void testParallelSteps() {
+	    Random random = new Random(23);
+	    CyNetwork network = new NetworkTestSupport().getNetwork();
+	    CyNode[] nodes = new CyNode[NODES];
+	    for (int i = 0; i < NODES; i++)
+	        nodes[i] = network.addNode();
+
+	    HashMap<CyEdge, Double> weights = new HashMap<CyEdge, Double>();
+	    for (int i = 0; i < EDGES; i++) {
+	        CyEdge edge = network.addEdge(nodes[random.nextInt(NODES)], nodes[random.nextInt(NODES)], true);
+	        weights.put(edge, random.nextInt(10) == 0 ? 0. : random.nextDouble());
+	    }
+
+	    GraphSnapshot graph = new GraphSnapshot(network, weights);
+	    ForkJoinPool pool = new ForkJoinPool(4);
+
+	    try {
+	        for (int i = 0; i < QUERIES; i++) {
+	            int target = random.nextInt(graph.nodeCount());
+	            int[] expectedTree = new int[graph.nodeCount()];
+	            double[] expected = Algorithms.reverseSingleSourceDijkstra(graph, target, expectedTree);
+
+	            int[] tree = new int[graph.nodeCount()];
+	            DeltaStepping search = new DeltaStepping(graph, pool, Algorithms.INFINITY, 1, CHUNK);
+	            double[] distances = search.reverseDistances(target, tree);
+	            assertNotNull("query " + i, distances);
+	            assertArrayEquals("query " + i, expected, distances, 0.);
+
+	            // the tree of the search takes any of the shortest paths, the
+	            // canonical tree of the distances is the one of the serial search
+	            for (int node = 0; node < graph.nodeCount(); node++) {
+	                if (tree[node] == -1)
+	                    continue;
+
+	                assertEquals("query " + i + " node " + node, distances[node],
+	                        graph.edgeWeight(tree[node]) + distances[graph.edgeTarget(tree[node])], 0.);
+	            }
+
+	            Algorithms.canonicalTree(graph, target, distances, tree);
+	            assertArrayEquals("query " + i, expectedTree, tree);
+	        }
+	    } finally {
+	        pool.shutdownNow();
+	    }
+	}
+}
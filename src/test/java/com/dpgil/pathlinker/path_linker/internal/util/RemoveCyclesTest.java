@@ -0,0 +1,107 @@
+package com.dpgil.pathlinker.path_linker.internal.util;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Random;
+
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.model.NetworkTestSupport;
+import org.junit.Test;
+
+/**
+ * JUnit test for removing the cycles of the paths the bidirectional search
+ * joins. Random walks on a small random network return to their nodes
+ * often, and the cycles removed must be those a loop erasure of the walk
+ * removes. The walks share a search space, one epoch each, so the stamps of
+ * a walk must not leak into the next.
+ */
+public class RemoveCyclesTest {
+
+	/** the number of nodes of the test network */
+	private static final int NODES = 20;
+	/** the number of edges of the test network */
+	private static final int EDGES = 80;
+	/** the number of random walks */
+	private static final int WALKS = 500;
+
+	/**
+	 * Test: removes the cycles of random walks and compares them to the loop
+	 * erasure of the walks
+	 */
+	@Test
+	public void testRandomWalks() {
+	    Random random = new Random(19);
+	    CyNetwork network = new NetworkTestSupport().getNetwork();
+	    CyNode[] nodes = new CyNode[NODES];
+	    for (int i = 0; i < NODES; i++)
+	        nodes[i] = network.addNode();
+
+	    HashMap<CyEdge, Double> weights = new HashMap<CyEdge, Double>();
+	    for (int i = 0; i < EDGES; i++)
+	        weights.put(network.addEdge(nodes[random.nextInt(NODES)], nodes[random.nextInt(NODES)], true), 0.);
+
+	    GraphSnapshot graph = new GraphSnapshot(network, weights);
+	    SearchSpace space = new SearchSpace(graph.nodeCount());
+	    int cycles = 0;
+
+	    for (int walk = 0; walk < WALKS; walk++) {
+	        int source = random.nextInt(graph.nodeCount());
+	        int length = 1 + random.nextInt(30);
+
+	        int[] path = new int[length];
+	        int node = source;
+	        int steps = 0;
+	        while (steps < length && graph.outBegin(node) < graph.outEnd(node)) {
+	            int slot = graph.outBegin(node) + random.nextInt(graph.outEnd(node) - graph.outBegin(node));
+	            path[steps++] = graph.outEdge(slot);
+	            node = graph.outTarget(slot);
+	        }
+	        path = Arrays.copyOf(path, steps);
+
+	        int[] expected = eraseLoops(graph, source, path);
+	        int[] result = Algorithms.removeCycles(graph, space, space.nextEpoch(), source, path);
+	        assertArrayEquals("walk " + walk, expected, result);
+	        if (expected.length < path.length)
+	            cycles++;
+	    }
+
+	    assertTrue(cycles > WALKS / 2);
+	}
+
+	/**
+	 * Erases the loops of a walk in order, the walk going back to the last
+	 * node it reached before each loop
+	 * @param graph the snapshot the walk is on
+	 * @param source the id of the first node of the walk
+	 * @param walk the ids of the edges of the walk
+	 * @return the ids of the edges of the walk without its loops
+	 */
+	private int[] eraseLoops(GraphSnapshot graph, int source, int[] walk) {
+	    ArrayList<Integer> pathNodes = new ArrayList<Integer>();
+	    ArrayList<Integer> pathEdges = new ArrayList<Integer>();
+	    pathNodes.add(source);
+
+	    for (int edge : walk) {
+	        int node = graph.edgeTarget(edge);
+	        int index = pathNodes.indexOf(node);
+	        if (index != -1) {
+	            pathNodes.subList(index + 1, pathNodes.size()).clear();
+	            pathEdges.subList(index, pathEdges.size()).clear();
+	        } else {
+	            pathNodes.add(node);
+	            pathEdges.add(edge);
+	        }
+	    }
+
+	    int[] edges = new int[pathEdges.size()];
+	    for (int i = 0; i < edges.length; i++)
+	        edges[i] = pathEdges.get(i);
+
+	    return edges;
+	}
+}